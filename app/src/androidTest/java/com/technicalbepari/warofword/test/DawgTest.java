@@ -0,0 +1,199 @@
+package com.technicalbepari.warofword.test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import junit.framework.Assert;
+import android.test.AndroidTestCase;
+
+import com.technicalbepari.warofword.model.Dawg;
+import com.technicalbepari.warofword.model.DawgBuilder;
+import com.technicalbepari.warofword.model.Dictionary;
+import com.technicalbepari.warofword.model.Lexicon;
+import com.technicalbepari.warofword.model.WordList;
+
+public class DawgTest extends AndroidTestCase {
+
+	private static final String[] SAMPLE_WORDS = {
+			"AARDVARK", "JOKE", "ROOT", "ZOO" };
+
+	/*
+	 * Test lookups against a small graph, including words that share
+	 * prefixes and suffixes.
+	 */
+	public void test_functional() {
+
+		DawgBuilder builder = new DawgBuilder();
+		builder.add("CAT");
+		builder.add("CATS");
+		builder.add("DOG");
+		builder.add("DOGS");
+		builder.add("DOGS");
+		builder.add("ZEBRA");
+		Dawg d = builder.build();
+
+		Assert.assertEquals(5, d.size());
+
+		Assert.assertTrue(d.wordInDictionary("CAT"));
+		Assert.assertTrue(d.wordInDictionary("CATS"));
+		Assert.assertTrue(d.wordInDictionary("DOG"));
+		Assert.assertTrue(d.wordInDictionary("DOGS"));
+		Assert.assertTrue(d.wordInDictionary("ZEBRA"));
+
+		// Prefixes and extensions of words
+		Assert.assertFalse(d.wordInDictionary("CA"));
+		Assert.assertFalse(d.wordInDictionary("CATSS"));
+		Assert.assertFalse(d.wordInDictionary("ZEBRAS"));
+
+		// Shared suffix, but not a word
+		Assert.assertFalse(d.wordInDictionary("COG"));
+
+		Assert.assertFalse(d.wordInDictionary("cat"));
+		Assert.assertFalse(d.wordInDictionary(null));
+		Assert.assertFalse(d.wordInDictionary(""));
+
+		// Words must be added in order
+		try {
+			builder = new DawgBuilder();
+			builder.add("DOG");
+			builder.add("CAT");
+			Assert.fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+
+	}
+
+	/*
+	 * Test that a Dawg survives being written to and read from an image, and
+	 * that corrupt images are rejected.
+	 */
+	public void test_image() throws IOException {
+
+		DawgBuilder builder = new DawgBuilder();
+		builder.add("CAT");
+		builder.add("DOG");
+		Dawg d = builder.build();
+
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		d.write(bos);
+		byte[] image = bos.toByteArray();
+
+		Dawg n = Dawg.read(new ByteArrayInputStream(image));
+		Assert.assertEquals(d.getChecksum(), n.getChecksum());
+		Assert.assertEquals(2, n.size());
+		Assert.assertTrue(n.wordInDictionary("CAT"));
+		Assert.assertTrue(n.wordInDictionary("DOG"));
+		Assert.assertFalse(n.wordInDictionary("COG"));
+
+		// Map the image from a file
+		File file = new File(getContext().getCacheDir(), "test.dawg");
+		FileOutputStream fos = new FileOutputStream(file);
+		fos.write(image);
+		fos.close();
+
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		Dawg m = Dawg.map(raf.getChannel(), 0, raf.length());
+		raf.close();
+		file.delete();
+
+		Assert.assertEquals(d.getChecksum(), m.getChecksum());
+		Assert.assertTrue(m.wordInDictionary("CAT"));
+		Assert.assertTrue(m.wordInDictionary("DOG"));
+		Assert.assertFalse(m.wordInDictionary("COG"));
+
+		// Flip a bit in the last edge
+		image[image.length - 1] ^= 1;
+		assertNotRead(image);
+		image[image.length - 1] ^= 1;
+
+		// Headers are checked before the edges are read
+		assertNotRead(withInt(image, 0, 0x12345678));
+		assertNotRead(withInt(image, 4, 2));
+		assertNotRead(withInt(image, 16, -1));
+		assertNotRead(withInt(image, 16, Integer.MAX_VALUE));
+		assertNotRead(withInt(image, 16, 1 << 30));
+		assertNotRead(Arrays.copyOf(image, image.length - 1));
+		assertNotRead(Arrays.copyOf(image, 7));
+
+	}
+
+	private static void assertNotRead(byte[] image) {
+		try {
+			Dawg.read(new ByteArrayInputStream(image));
+			Assert.fail();
+		} catch (IOException e) {
+			// expected
+		}
+	}
+
+	private static byte[] withInt(byte[] image, int offset, int value) {
+		byte[] copy = image.clone();
+		ByteBuffer.wrap(copy).putInt(offset, value);
+		return copy;
+	}
+
+	/*
+	 * The dictionary must accept and reject the same words as the WordList
+	 * database.
+	 */
+	public void test_wordList() {
+
+		Lexicon d = Dictionary.getLexicon(getContext());
+
+		for (String word : SAMPLE_WORDS) {
+			Assert.assertTrue(d.wordInDictionary(word));
+		}
+
+		Assert.assertFalse(d.wordInDictionary("aardvark"));
+		Assert.assertFalse(d.wordInDictionary("A"));
+		Assert.assertFalse(d.wordInDictionary("ABCD"));
+		Assert.assertFalse(d.wordInDictionary("EX-WIFE"));
+		Assert.assertFalse(d.wordInDictionary("LET'S"));
+		Assert.assertFalse(d.wordInDictionary(null));
+		Assert.assertFalse(d.wordInDictionary(""));
+		Assert.assertFalse(d.wordInDictionary("; DROP TABLE words;"));
+
+	}
+
+	/*
+	 * Lookups must be faster than the WordList database.
+	 */
+	public void test_latency() {
+
+		final int ITERATIONS = 100;
+
+		Lexicon d = Dictionary.getLexicon(getContext());
+		WordList wl = new WordList(getContext());
+
+		// Warm up both
+		d.wordInDictionary("JOKE");
+		wl.wordInDictionary("JOKE");
+
+		long start = System.nanoTime();
+		for (int i = 0; i < ITERATIONS; ++i) {
+			for (String word : SAMPLE_WORDS) {
+				d.wordInDictionary(word);
+			}
+		}
+		long dawgTime = System.nanoTime() - start;
+
+		start = System.nanoTime();
+		for (int i = 0; i < ITERATIONS; ++i) {
+			for (String word : SAMPLE_WORDS) {
+				wl.wordInDictionary(word);
+			}
+		}
+		long wordListTime = System.nanoTime() - start;
+
+		Assert.assertTrue(dawgTime < wordListTime);
+
+	}
+
+}
@@ -4,6 +4,7 @@ import java.util.List;
 
 import junit.framework.Assert;
 
+import com.technicalbepari.warofword.model.Dictionary;
 import com.technicalbepari.warofword.model.GameDataBase;
 import com.technicalbepari.warofword.model.GameModel;
 
@@ -13,7 +14,7 @@ public class GameDataBaseTests extends AndroidTestCase {
 
 	public void test() {
 
-		final GameModel gm = new GameModel(getContext());
+		final GameModel gm = new GameModel(Dictionary.getLexicon(getContext()));
 
 		// Create
 		GameDataBase gdb = new GameDataBase(getContext());
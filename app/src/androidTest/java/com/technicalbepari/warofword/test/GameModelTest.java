@@ -1,10 +1,12 @@
 package com.technicalbepari.warofword.test;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import android.test.AndroidTestCase;
 
+import com.technicalbepari.warofword.model.Dictionary;
 import com.technicalbepari.warofword.model.GameModel;
 import com.technicalbepari.warofword.model.GameModel.GameResult;
 import com.technicalbepari.warofword.model.GameModel.GameState;
@@ -173,7 +175,7 @@ public class GameModelTest extends AndroidTestCase {
 				gameState,
 				p1Points,
 				p2Points,
-				getContext());
+				Dictionary.getLexicon(getContext()));
 		return gm;
 	}
 
@@ -204,13 +206,163 @@ public class GameModelTest extends AndroidTestCase {
 		Assert.assertEquals("player 2 score", 3, points2);
 	}
 
+	/* The points must include the word being assembled as its letters are
+	 * added, moved and removed, and as the turn changes under it. Player 1
+	 * plays "MY", then player 2 assembles "ME" a letter at a time.
+	 */
+	public void test_wordPoints() {
+		final char[] testGrid =
+			("XXXMY" +
+			 "XXXXE" +
+			 "XXXXX" +
+			 "XXXXX" +
+			 "XXXXX").toCharArray();
+		final int m = 3;
+		final int e = 9;
+
+		GameModel gm = createSampleModel(testGrid);
+
+		gm.setWord(generateIndexListFromWord("MY", testGrid));
+		Assert.assertEquals("MY pending", 2, gm.getPoints(GameModel.PLAYER1));
+		gm.playTurn();
+
+		gm.addTile(e);
+		Assert.assertEquals("E player 1", 2, gm.getPoints(GameModel.PLAYER1));
+		Assert.assertEquals("E player 2", 1, gm.getPoints(GameModel.PLAYER2));
+
+		gm.insertTile(0, m);
+		Assert.assertEquals("ME player 1", 1, gm.getPoints(GameModel.PLAYER1));
+		Assert.assertEquals("ME player 2", 2, gm.getPoints(GameModel.PLAYER2));
+
+		// A letter only scores once, wherever it is in the word
+		gm.addTile(e);
+		gm.moveTile(2, 0);
+		Assert.assertEquals("EME", gm.getWord());
+		Assert.assertEquals("EME player 2", 2, gm.getPoints(GameModel.PLAYER2));
+		Assert.assertEquals(e, gm.removeTile(0));
+		Assert.assertEquals("ME", gm.getWord());
+		Assert.assertEquals("ME player 2", 2, gm.getPoints(GameModel.PLAYER2));
+
+		Assert.assertEquals(e, gm.removeTile(1));
+		Assert.assertEquals("M player 1", 1, gm.getPoints(GameModel.PLAYER1));
+		Assert.assertEquals("M player 2", 1, gm.getPoints(GameModel.PLAYER2));
+
+		// Playing the word adds the capture of the Y
+		gm.addTile(e);
+		Assert.assertEquals(TurnResult.SUCCESS, gm.playTurn());
+		Assert.assertEquals(0, gm.getWordLength());
+		Assert.assertEquals("played player 1", 0, gm.getPoints(GameModel.PLAYER1));
+		Assert.assertEquals("played player 2", 3, gm.getPoints(GameModel.PLAYER2));
+
+		gm.addTile(m);
+		Assert.assertEquals("M player 1", 1, gm.getPoints(GameModel.PLAYER1));
+		Assert.assertEquals("M player 2", 2, gm.getPoints(GameModel.PLAYER2));
+
+		// Once player 1 passes, player 2 already owns the M
+		gm.passTurn();
+		Assert.assertEquals("after pass player 1", 0, gm.getPoints(GameModel.PLAYER1));
+		Assert.assertEquals("after pass player 2", 3, gm.getPoints(GameModel.PLAYER2));
+
+		gm.clearWord();
+		Assert.assertEquals(0, gm.getWordLength());
+		Assert.assertEquals("cleared player 2", 3, gm.getPoints(GameModel.PLAYER2));
+	}
+
+	/* Capturing must mark the surrounded letter, and the letters around it
+	 * must stay owned. Player 2 steals the M from "MY" with "ME", which
+	 * leaves the Y surrounded by player 2.
+	 */
+	public void testCaptureStates() {
+		final char[] testGrid =
+			("XXXMY" +
+			 "XXXXE" +
+			 "XXXXX" +
+			 "XXXXX" +
+			 "XXXXX").toCharArray();
+
+		GameModel gm = createSampleModel(testGrid);
+
+		gm.setWord(generateIndexListFromWord("MY", testGrid));
+		gm.playTurn();
+
+		Assert.assertEquals("M after turn 1", LetterState.PLAYER1_OWNED, gm.getLetterState(3));
+		Assert.assertEquals("Y after turn 1", LetterState.PLAYER1_OWNED, gm.getLetterState(4));
+		Assert.assertEquals("E after turn 1", LetterState.UNPLAYED, gm.getLetterState(9));
+
+		gm.setWord(generateIndexListFromWord("ME", testGrid));
+		gm.playTurn();
+
+		Assert.assertEquals("M after turn 2", LetterState.PLAYER2_OWNED, gm.getLetterState(3));
+		Assert.assertEquals("Y after turn 2", LetterState.PLAYER2_SURROUNDED, gm.getLetterState(4));
+		Assert.assertEquals("E after turn 2", LetterState.PLAYER2_OWNED, gm.getLetterState(9));
+		Assert.assertEquals("untouched tile", LetterState.UNPLAYED, gm.getLetterState(0));
+	}
+
+	/*
+	 * Replay the sample games with each turn's captures checked against a
+	 * full scan of the grid.
+	 */
+	public void test_incrementalCaptures() {
+		GameModel.setVerifyCaptures(true);
+		try {
+			test_fullGame();
+			testCaptureScore();
+			testCaptureStates();
+		} finally {
+			GameModel.setVerifyCaptures(false);
+		}
+	}
+
+	/* Captures must follow the grid's own width. On a 3x2 grid the Y has
+	 * only two neighbours, so "ME" surrounds it.
+	 */
+	public void test_gridSize() {
+		final char[] testGrid =
+			("AMY" +
+			 "XXE").toCharArray();
+		final LetterState[] states = new LetterState[testGrid.length];
+		Arrays.fill(states, LetterState.UNPLAYED);
+
+		GameModel gm = new GameModel(3, 2, testGrid, states,
+				GameState.PLAYER1_TURN, 0, 0,
+				Dictionary.getLexicon(getContext()));
+
+		Assert.assertEquals("width", 3, gm.getGridWidth());
+		Assert.assertEquals("height", 2, gm.getGridHeight());
+		Assert.assertEquals("size", 6, gm.getGridSize());
+
+		gm.setWord(generateIndexListFromWord("MY", testGrid));
+		gm.playTurn();
+		gm.setWord(generateIndexListFromWord("ME", testGrid));
+		gm.playTurn();
+
+		Assert.assertEquals("Y", LetterState.PLAYER2_SURROUNDED, gm.getLetterState(2));
+		Assert.assertEquals("player 1 score", 0, gm.getPoints(GameModel.PLAYER1));
+		Assert.assertEquals("player 2 score", 3, gm.getPoints(GameModel.PLAYER2));
+	}
+
+	/*
+	 * Test that a large random grid is filled with letters
+	 */
+	public void test_largeGrid() {
+		GameModel gm = new GameModel(100, 80,
+				Dictionary.getLexicon(getContext()));
+
+		Assert.assertEquals("size", 8000, gm.getGridSize());
+		for (int i = 0; i < gm.getGridSize(); ++i) {
+			char c = gm.getLetter(i);
+			Assert.assertTrue("letter " + i, c >= 'A' && c <= 'Z');
+			Assert.assertEquals("state " + i, LetterState.UNPLAYED, gm.getLetterState(i));
+		}
+	}
+
 	/*
 	 * Test that instances can be serialized and restored
 	 */
 	public void test_serialization() {
 
 		// Serialize our game model
-		GameModel gm = new GameModel(getContext());
+		GameModel gm = new GameModel(Dictionary.getLexicon(getContext()));
 		byte[] s = gm.serialize();
 		Assert.assertNotNull(s);
 
@@ -219,7 +371,8 @@ public class GameModelTest extends AndroidTestCase {
 		System.gc();
 
 		// Restore it
-		GameModel gm2 = GameModel.deserialize(s, getContext());
+		GameModel gm2 = GameModel.deserialize(s,
+				Dictionary.getLexicon(getContext()));
 		Assert.assertNotNull(gm2);
 
 	}
@@ -1,9 +1,18 @@
 package com.technicalbepari.warofword.test;
 
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
 import junit.framework.Assert;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
 import android.test.AndroidTestCase;
 
+import com.technicalbepari.warofword.model.DictionaryService;
 import com.technicalbepari.warofword.model.WordList;
+import com.technicalbepari.warofword.model.WordListImporter;
 
 public class WordListTest extends AndroidTestCase {
 
@@ -44,4 +53,150 @@ public class WordListTest extends AndroidTestCase {
 		Assert.assertFalse(wl.wordInDictionary("; DROP TABLE words;"));
 	}
 
+	/*
+	 * Test that the service gives the same answers as the database, and that
+	 * repeated lookups are served from its cache.
+	 */
+	public void test_service() {
+		DictionaryService ds = DictionaryService.getInstance(mContext);
+
+		Assert.assertTrue(ds.wordInDictionary("JOKE"));
+		Assert.assertFalse(ds.wordInDictionary("ABCD"));
+		Assert.assertFalse(ds.wordInDictionary("joke"));
+		Assert.assertFalse(ds.wordInDictionary(null));
+		Assert.assertFalse(ds.wordInDictionary("; DROP TABLE words;"));
+
+		long hits = ds.getHitCount();
+		long misses = ds.getMissCount();
+
+		Assert.assertTrue(ds.wordInDictionary("JOKE"));
+		Assert.assertFalse(ds.wordInDictionary("ABCD"));
+
+		Assert.assertEquals(hits + 2, ds.getHitCount());
+		Assert.assertEquals(misses, ds.getMissCount());
+	}
+
+	/*
+	 * Hands out a word list a little at a time, and fails part of the way
+	 * through, as if the process had been killed.
+	 */
+	private static class FailingStream extends FilterInputStream {
+
+		private static final int READ_SIZE = 1000;
+
+		private final int mFailAt;
+		private int mPosition;
+
+		FailingStream(InputStream in, int failAt) {
+			super(in);
+			mFailAt = failAt;
+		}
+
+		@Override
+		public int read(byte[] buffer, int offset, int length)
+				throws IOException {
+			if (mPosition >= mFailAt)
+				throw new IOException("Interrupted");
+			final int n = super.read(buffer, offset, Math.min(length,
+					Math.min(READ_SIZE, mFailAt - mPosition)));
+			if (n > 0)
+				mPosition += n;
+			return n;
+		}
+	}
+
+	private static class LastProgress implements
+			WordListImporter.ProgressListener {
+
+		int mWords = -1;
+
+		@Override
+		public void onProgress(long bytesRead, long totalBytes,
+				int wordsImported) {
+			mWords = wordsImported;
+		}
+	}
+
+	/*
+	 * 5000 different three letter words, then an adjacent repeat, a word
+	 * that isn't letters, and repeats of words from the start of the list.
+	 */
+	private static byte[] createWordList() {
+
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 5000; ++i) {
+			sb.append((char) ('a' + i / 676));
+			sb.append((char) ('a' + i / 26 % 26));
+			sb.append((char) ('a' + i % 26));
+			sb.append('\n');
+		}
+		sb.append("hkh\nex-wife\n");
+		for (int i = 0; i < 10; ++i) {
+			sb.append("aa").append((char) ('a' + i)).append('\n');
+		}
+
+		return sb.toString().getBytes();
+	}
+
+	private static int countWords(SQLiteDatabase db) {
+		Cursor c = db.rawQuery("SELECT COUNT(*) FROM words", null);
+		try {
+			c.moveToFirst();
+			return c.getInt(0);
+		} finally {
+			c.close();
+		}
+	}
+
+	/*
+	 * Test that an import interrupted part of the way through picks up from
+	 * its last checkpoint, and that repeated words aren't counted.
+	 */
+	public void test_importResume() throws IOException {
+
+		WordList wl = new WordList(mContext);
+		SQLiteDatabase db = wl.getWritableDatabase();
+
+		try {
+			// Empty the tables, without importing the bundled list
+			wl.onUpgrade(db, 0, 0);
+
+			final byte[] list = createWordList();
+			WordListImporter importer = new WordListImporter(db);
+			LastProgress progress = new LastProgress();
+
+			try {
+				importer.importWords(new FailingStream(
+						new ByteArrayInputStream(list), 3000 * 4), progress);
+				Assert.fail("The import wasn't interrupted");
+			} catch (IOException e) {
+				// Expected
+			}
+
+			// Only the first chunk was committed
+			Assert.assertFalse(importer.isComplete());
+			Assert.assertEquals(2000, progress.mWords);
+			Assert.assertEquals(2000, countWords(db));
+
+			progress = new LastProgress();
+			importer.importWords(new ByteArrayInputStream(list), progress);
+
+			Assert.assertTrue(importer.isComplete());
+			Assert.assertEquals(5000, progress.mWords);
+			Assert.assertEquals(5000, countWords(db));
+			Assert.assertTrue(wl.wordInDictionary("AAA"));
+			Assert.assertTrue(wl.wordInDictionary("HKH"));
+			Assert.assertFalse(wl.wordInDictionary("EXWIFE"));
+
+			// A finished import isn't run again
+			progress = new LastProgress();
+			importer.importWords(new ByteArrayInputStream(list), progress);
+			Assert.assertEquals(-1, progress.mWords);
+
+		} finally {
+			// Put the bundled list back
+			wl.reCreate();
+		}
+	}
+
 }
@@ -0,0 +1,48 @@
+package com.technicalbepari.warofword.model;
+
+import java.io.File;
+
+import android.content.Context;
+
+/**
+ * Provides the process-wide AnalysisCache, which keeps what is worked out
+ * about each grid in the app's cache directory. The system may clear the
+ * directory, which only costs the time to analyse the grids again.
+ *
+ * Grids can only be analysed with a compiled dictionary, so without one
+ * there is no cache.
+ *
+ * @author Andrew Smith
+ */
+public final class Analyses {
+
+	private static final String CACHE_FILE = "analysis.cache";
+
+	private static AnalysisCache mCache;
+
+	/**
+	 * @return the cache, or null if the dictionary isn't compiled. The file
+	 *         isn't read until the cache is first used.
+	 */
+	public static synchronized AnalysisCache getCache(Context context) {
+
+		if (mCache == null) {
+			Lexicon lexicon = Dictionary.getLexicon(context);
+			if (lexicon instanceof Dawg) {
+				File file = new File(context.getApplicationContext()
+						.getCacheDir(), CACHE_FILE);
+				mCache = new AnalysisCache(file, (Dawg) lexicon,
+						AnalysisCache.DEFAULT_MAX_BYTES);
+			}
+		}
+
+		return mCache;
+
+	}
+
+	// Suppress default constructor for noninstantiability
+	private Analyses() {
+		throw new AssertionError();
+	}
+
+}
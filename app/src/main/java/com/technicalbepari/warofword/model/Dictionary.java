@@ -0,0 +1,94 @@
+package com.technicalbepari.warofword.model;
+
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+
+/**
+ * Provides the process-wide Lexicon used to check that played words are in
+ * the English dictionary.
+ *
+ * The dictionary is a Dawg image compiled from the word list at build time
+ * and stored uncompressed in the APK. The image is memory mapped straight out
+ * of the APK, so there is nothing to parse, it costs no heap, and its pages
+ * stay in the page cache across app restarts. If the image can't be mapped
+ * it is read in a single sequential stream, and if it can't be read at all,
+ * lookups fall back to the WordList database through the DictionaryService.
+ *
+ * @author Andrew Smith
+ */
+public final class Dictionary {
+
+	private static final String DICTIONARY_ASSET = "wordlist.dawg";
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private static Lexicon mLexicon;
+
+	public static synchronized Lexicon getLexicon(Context context) {
+
+		if (mLexicon == null) {
+			mLexicon = loadLexicon(context.getApplicationContext());
+		}
+
+		return mLexicon;
+
+	}
+
+	private static Lexicon loadLexicon(Context context) {
+
+		try {
+			return mapDictionary(context);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+
+		try {
+			return readDictionary(context);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+
+		return DictionaryService.getInstance(context);
+
+	}
+
+	private static Dawg mapDictionary(Context context) throws IOException {
+
+		AssetFileDescriptor afd = context.getAssets().openFd(DICTIONARY_ASSET);
+		FileInputStream fis = null;
+
+		try {
+			fis = afd.createInputStream();
+			return Dawg.map(fis.getChannel(), afd.getStartOffset(),
+					afd.getLength());
+		} finally {
+			if (fis != null)
+				fis.close();
+			afd.close();
+		}
+
+	}
+
+	private static Dawg readDictionary(Context context) throws IOException {
+
+		InputStream is = new BufferedInputStream(context.getAssets().open(
+				DICTIONARY_ASSET), BUFFER_SIZE);
+
+		try {
+			return Dawg.read(is);
+		} finally {
+			is.close();
+		}
+
+	}
+
+	// Suppress default constructor for noninstantiability
+	private Dictionary() {
+		throw new AssertionError();
+	}
+
+}
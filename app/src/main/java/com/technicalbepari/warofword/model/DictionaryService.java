@@ -0,0 +1,225 @@
+package com.technicalbepari.warofword.model;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+/**
+ * A process-wide Lexicon backed by the WordList database.
+ *
+ * Unlike WordList.wordInDictionary(), which opens the database and prepares
+ * a new query for every word, the service keeps a single read connection
+ * open and reuses one compiled statement. Recent answers, both positive and
+ * negative, are kept in a bounded LRU cache so that resubmitting a word
+ * doesn't touch the database at all.
+ *
+ * Most rejected words aren't words at all, so lookups are first checked
+ * against a Bloom filter of the word list. The filter is compiled at build
+ * time alongside the dictionary image, and answers most misses without
+ * consulting the cache or the database.
+ *
+ * @author Andrew Smith
+ */
+public class DictionaryService implements Lexicon {
+
+	private static final int CACHE_SIZE = 512;
+	private static final String BLOOM_FILTER_ASSET = "wordlist.bloom";
+	private static final int BUFFER_SIZE = 64 * 1024;
+	private static final String LOOKUP_QUERY = "SELECT COUNT(*) FROM "
+			+ WordList.TABLE_WORDS + " WHERE " + WordList.KEY_WORD + " = ?";
+
+	private static DictionaryService mInstance;
+
+	private final WordList mWordList;
+	private final BloomFilter mBloomFilter;
+	private SQLiteDatabase mDatabase;
+	private SQLiteStatement mLookup;
+
+	private final Map<String, Boolean> mCache = new LinkedHashMap<String, Boolean>(
+			CACHE_SIZE, 0.75f, true) {
+
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+			return size() > CACHE_SIZE;
+		}
+
+	};
+
+	private long mHits;
+	private long mMisses;
+	private long mBloomRejections;
+	private long mBloomFalsePositives;
+
+	public static synchronized DictionaryService getInstance(Context context) {
+
+		if (mInstance == null) {
+			mInstance = new DictionaryService(context.getApplicationContext());
+		}
+
+		return mInstance;
+
+	}
+
+	private DictionaryService(Context context) {
+		mWordList = new WordList(context);
+		mBloomFilter = loadBloomFilter(context);
+	}
+
+	private static BloomFilter loadBloomFilter(Context context) {
+
+		try {
+			InputStream is = new BufferedInputStream(context.getAssets().open(
+					BLOOM_FILTER_ASSET), BUFFER_SIZE);
+			try {
+				return BloomFilter.read(is);
+			} finally {
+				is.close();
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+			return null;
+		}
+
+	}
+
+	@Override
+	public synchronized boolean wordInDictionary(CharSequence word) {
+
+		if (!WordList.isUpperCaseWord(word))
+			return false;
+
+		if (mBloomFilter != null && !mBloomFilter.mightContain(word)) {
+			++mBloomRejections;
+			return false;
+		}
+
+		return lookupCached(word.toString());
+
+	}
+
+	@Override
+	public synchronized boolean wordInDictionary(char[] word, int offset,
+			int length) {
+
+		if (word == null || length == 0)
+			return false;
+
+		for (int i = offset; i < offset + length; ++i) {
+			if (word[i] < 'A' || word[i] > 'Z')
+				return false;
+		}
+
+		if (mBloomFilter != null
+				&& !mBloomFilter.mightContain(word, offset, length)) {
+			++mBloomRejections;
+			return false;
+		}
+
+		return lookupCached(new String(word, offset, length));
+
+	}
+
+	private boolean lookupCached(String word) {
+
+		Boolean cached = mCache.get(word);
+		if (cached != null) {
+			++mHits;
+			return cached;
+		}
+
+		++mMisses;
+
+		boolean ret = lookup(word);
+		mCache.put(word, ret);
+
+		if (!ret && mBloomFilter != null)
+			++mBloomFalsePositives;
+
+		return ret;
+
+	}
+
+	/**
+	 * Build the WordList database if it hasn't been built already. Lookups
+	 * do this automatically, but calling it first allows the import's
+	 * progress to be reported.
+	 *
+	 * @param listener - notified of the import's progress, may be null.
+	 * @return true if the database is ready.
+	 */
+	public synchronized boolean importWords(
+			WordListImporter.ProgressListener listener) {
+		return mWordList.importWords(listener);
+	}
+
+	/**
+	 * @return the number of lookups answered from the cache.
+	 */
+	public synchronized long getHitCount() {
+		return mHits;
+	}
+
+	/**
+	 * @return the number of lookups that had to query the database.
+	 */
+	public synchronized long getMissCount() {
+		return mMisses;
+	}
+
+	/**
+	 * @return the number of lookups rejected by the Bloom filter.
+	 */
+	public synchronized long getBloomRejectionCount() {
+		return mBloomRejections;
+	}
+
+	/**
+	 * @return the fraction of words not in the dictionary that the Bloom
+	 *         filter failed to reject, measured over the lookups that reached
+	 *         the database.
+	 */
+	public synchronized double getObservedFalsePositiveRate() {
+		final long negatives = mBloomRejections + mBloomFalsePositives;
+		return (negatives == 0) ? 0 : (double) mBloomFalsePositives / negatives;
+	}
+
+	/**
+	 * Release the database connection. It will be reopened by the next
+	 * lookup that isn't cached.
+	 */
+	public synchronized void close() {
+
+		if (mLookup != null) {
+			mLookup.close();
+			mLookup = null;
+		}
+
+		if (mDatabase != null) {
+			mDatabase.close();
+			mDatabase = null;
+		}
+
+	}
+
+	private boolean lookup(String word) {
+
+		if (mLookup == null) {
+			mWordList.importWords(null);
+			mDatabase = mWordList.getReadableDatabase();
+			mLookup = mDatabase.compileStatement(LOOKUP_QUERY);
+		}
+
+		mLookup.bindString(1, word);
+		return mLookup.simpleQueryForLong() > 0;
+
+	}
+
+}
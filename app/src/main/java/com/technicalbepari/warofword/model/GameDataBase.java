@@ -88,7 +88,7 @@ public class GameDataBase extends SQLiteOpenHelper {
 		if (cursor != null && cursor.getCount() > 0) {
 			cursor.moveToFirst();
 			byte[] blob = cursor.getBlob(cursor.getColumnIndex(KEY_GAME_BLOB));
-			ret = GameModel.deserialize(blob, mContext);
+			ret = GameModel.deserialize(blob, Dictionary.getLexicon(mContext));
 		}
 
 		cursor.close();
@@ -1,15 +1,10 @@
 package com.technicalbepari.warofword.model;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.util.Locale;
 
-import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
-import android.database.sqlite.SQLiteConstraintException;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
 
@@ -20,18 +15,21 @@ import com.technicalbepari.warofword.R;
  * used to determine if a given string is an English word.
  *
  * The database is initially constructed from a list of words contained in a
- * text file.
+ * text file. The words are imported by a WordListImporter in chunks, outside
+ * of onCreate(), so that an import interrupted by the process being killed
+ * can be resumed.
  *
  * @author Andrew Smith
  */
-public class WordList extends SQLiteOpenHelper {
+public class WordList extends SQLiteOpenHelper implements Lexicon {
 
-	private static final int DATABASE_VERSION = 1;
+	private static final int DATABASE_VERSION = 2;
 	private static final String DATABASE_NAME = "wordlist";
-	private static final String TABLE_WORDS = "words";
-	private static final String KEY_WORD = "word";
+	static final String TABLE_WORDS = "words";
+	static final String KEY_WORD = "word";
 
 	protected Context mContext;
+	private boolean mImported;
 
 	public WordList(Context context) {
 
@@ -44,7 +42,7 @@ public class WordList extends SQLiteOpenHelper {
 	public void onCreate(SQLiteDatabase db) {
 
 		addWordsTable(db);
-		addWords(db);
+		WordListImporter.createProgressTable(db);
 
 	}
 
@@ -52,6 +50,7 @@ public class WordList extends SQLiteOpenHelper {
 	public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
 
 		db.execSQL("DROP TABLE IF EXISTS " + TABLE_WORDS);
+		db.execSQL("DROP TABLE IF EXISTS " + WordListImporter.TABLE_PROGRESS);
 		onCreate(db);
 
 	}
@@ -60,9 +59,10 @@ public class WordList extends SQLiteOpenHelper {
 	 * Used for testing only
 	 */
 	public void reCreate() {
-		SQLiteDatabase db = getReadableDatabase();
-		db.execSQL("DROP TABLE IF EXISTS " + TABLE_WORDS);
-		onCreate(db);
+		SQLiteDatabase db = getWritableDatabase();
+		onUpgrade(db, DATABASE_VERSION, DATABASE_VERSION);
+		mImported = false;
+		importWords(null);
 	}
 
 	private void addWordsTable(SQLiteDatabase db) {
@@ -73,69 +73,61 @@ public class WordList extends SQLiteOpenHelper {
 
 	}
 
-	/*
-	 * Prepare a word for storage in the DB. Reject words less than two letters
-	 * in length. Reject words with non-alphabetical characters (e.g.
-	 * apostrophes/hyphens). Convert words to upper case.
+	/**
+	 * Add the word list to the DB, unless it has already been added. If a
+	 * previous import was interrupted, it is resumed.
+	 *
+	 * @param listener - notified of the import's progress, may be null.
+	 * @return true if the word list has been completely imported.
 	 */
-	private String normaliseWord(String word) {
+	public synchronized boolean importWords(
+			WordListImporter.ProgressListener listener) {
+
+		if (mImported)
+			return true;
+
+		WordListImporter importer = new WordListImporter(getWritableDatabase());
+
+		if (!importer.isComplete()) {
+			InputStream is = mContext.getResources().openRawResource(
+					R.raw.wordlist);
+			try {
+				importer.importWords(is, listener);
+			} catch (IOException e) {
+				e.printStackTrace();
+			} finally {
+				try {
+					is.close();
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+			}
+		}
 
-		if (word == null)
-			return null;
-		if (word.length() < 2)
-			return null;
-		word = word.toUpperCase(Locale.getDefault());
-		if (!word.matches("^[A-Z]+$"))
-			return null;
-		return word;
+		mImported = importer.isComplete();
+		return mImported;
 
 	}
 
-	/*
-	 * Add the word list to the DB. This may take several minutes.
-	 */
-	public void addWords(SQLiteDatabase db) {
-
-		InputStream is = mContext.getResources()
-				.openRawResource(R.raw.wordlist);
-		BufferedReader reader = new BufferedReader(new InputStreamReader(is));
-
-		db.beginTransaction();
-
-		String line;
-		try {
-			while ((line = reader.readLine()) != null) {
-
-				String word = normaliseWord(line);
-				if (word == null)
-					continue;
-
-				ContentValues values = new ContentValues();
-				values.put(KEY_WORD, word);
-				try {
-					db.insert(TABLE_WORDS, null, values);
-				} catch (SQLiteConstraintException e) {
-					// Duplicate word in file, or from prev attempt to populate
-					// the word list. Consume exception and keep going
-				}
+	@Override
+	public boolean wordInDictionary(char[] word, int offset, int length) {
 
-			}
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
-		db.setTransactionSuccessful();
-		db.endTransaction();
+		if (word == null)
+			return false;
 
+		return wordInDictionary(new String(word, offset, length));
 	}
 
-	public boolean wordInDictionary(String word) {
+	@Override
+	public boolean wordInDictionary(CharSequence word) {
 
-		if (word==null || !word.matches("^[A-Z]+$")) {
+		if (!isUpperCaseWord(word)) {
 			return false;
 		}
 
-		SQLiteDatabase db = getReadableDatabase();
+		importWords(null);
 
+		SQLiteDatabase db = getReadableDatabase();
 		Cursor c = db.rawQuery("SELECT * FROM " + TABLE_WORDS + " WHERE "
 				+ KEY_WORD + "= '" + word + "'", null);
 		boolean ret = (c != null && c.getCount() > 0);
@@ -146,4 +138,19 @@ public class WordList extends SQLiteOpenHelper {
 		return ret;
 	}
 
+	static boolean isUpperCaseWord(CharSequence word) {
+
+		if (word == null || word.length() == 0)
+			return false;
+
+		for (int i = 0; i < word.length(); ++i) {
+			char c = word.charAt(i);
+			if (c < 'A' || c > 'Z')
+				return false;
+		}
+
+		return true;
+
+	}
+
 }
@@ -0,0 +1,269 @@
+package com.technicalbepari.warofword.model;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+/**
+ * Imports a plain text word list into the WordList database.
+ *
+ * The list is read as raw ASCII bytes and each line is validated and
+ * converted to upper case in a reused buffer, so no regex or per-line objects
+ * are needed; the only allocation is the String bound to the insert statement
+ * for each accepted word. Consecutive duplicates are dropped as the list is
+ * streamed (the bundled list is sorted), and any others are ignored by the
+ * database.
+ *
+ * Words are inserted with a single compiled statement in chunked
+ * transactions. The byte offset reached is committed with each chunk, so if
+ * the process is killed mid-import the next import resumes from the last
+ * committed chunk rather than starting again.
+ *
+ * @author Andrew Smith
+ */
+public class WordListImporter {
+
+	public interface ProgressListener {
+
+		/**
+		 * @param bytesRead - the number of bytes of the word list imported.
+		 * @param totalBytes - the size of the word list, or -1 if unknown.
+		 * @param wordsImported - the number of words in the database.
+		 */
+		void onProgress(long bytesRead, long totalBytes, int wordsImported);
+
+	}
+
+	static final String TABLE_PROGRESS = "import_progress";
+	private static final String KEY_ID = "_id";
+	private static final String KEY_OFFSET = "byte_offset";
+	private static final String KEY_WORDS = "words";
+	private static final String KEY_COMPLETE = "complete";
+
+	private static final int CHUNK_SIZE = 2000; // words per transaction
+	private static final int BUFFER_SIZE = 64 * 1024;
+	private static final int MAX_WORD_LENGTH = 64;
+	private static final int MIN_WORD_LENGTH = 2;
+
+	private final SQLiteDatabase mDatabase;
+
+	private final byte[] mBuffer = new byte[BUFFER_SIZE];
+	private final char[] mWord = new char[MAX_WORD_LENGTH];
+	private final char[] mPreviousWord = new char[MAX_WORD_LENGTH];
+	private int mWordLength;
+	private int mPreviousWordLength;
+	private boolean mWordValid = true;
+
+	public WordListImporter(SQLiteDatabase db) {
+		mDatabase = db;
+	}
+
+	static void createProgressTable(SQLiteDatabase db) {
+
+		String CREATE_PROGRESS_TABLE = "CREATE TABLE " + TABLE_PROGRESS + "("
+				+ KEY_ID + " INTEGER PRIMARY KEY," + KEY_OFFSET + " INTEGER,"
+				+ KEY_WORDS + " INTEGER," + KEY_COMPLETE + " INTEGER" + ")";
+		db.execSQL(CREATE_PROGRESS_TABLE);
+
+	}
+
+	/**
+	 * @return true if a previous import ran to completion.
+	 */
+	public boolean isComplete() {
+		Cursor c = queryProgress();
+		boolean ret = c.moveToFirst() && c.getInt(2) != 0;
+		c.close();
+		return ret;
+	}
+
+	/**
+	 * Import the word list, resuming a previous import if there is one.
+	 *
+	 * @param is - the word list, positioned at its start.
+	 * @param listener - notified after each chunk is committed, may be null.
+	 */
+	public void importWords(InputStream is, ProgressListener listener)
+			throws IOException {
+
+		long offset = 0;
+		int words = 0;
+
+		Cursor c = queryProgress();
+		if (c.moveToFirst()) {
+			offset = c.getLong(0);
+			words = c.getInt(1);
+			if (c.getInt(2) != 0) {
+				c.close();
+				return;
+			}
+		}
+		c.close();
+
+		// The raw resource stream reports the full length of the list
+		final int available = is.available();
+		final long totalBytes = (available > 0) ? available : -1;
+
+		long skipped = 0;
+		while (skipped < offset) {
+			long n = is.skip(offset - skipped);
+			if (n <= 0)
+				throw new IOException("Word list is shorter than the import");
+			skipped += n;
+		}
+
+		SQLiteStatement insert = mDatabase.compileStatement("INSERT OR IGNORE INTO "
+				+ WordList.TABLE_WORDS + " (" + WordList.KEY_WORD + ") VALUES (?)");
+		SQLiteStatement checkpoint = mDatabase.compileStatement("INSERT OR REPLACE INTO "
+				+ TABLE_PROGRESS + " (" + KEY_ID + "," + KEY_OFFSET + ","
+				+ KEY_WORDS + "," + KEY_COMPLETE + ") VALUES (0, ?, ?, ?)");
+
+		mWordLength = 0;
+		mPreviousWordLength = 0;
+		mWordValid = true;
+
+		long position = offset;
+		int chunk = 0;
+
+		mDatabase.beginTransaction();
+		try {
+
+			int n;
+			while ((n = is.read(mBuffer)) > 0) {
+				for (int i = 0; i < n; ++i) {
+
+					final byte b = mBuffer[i];
+					++position;
+
+					if (b != '\n' && b != '\r') {
+						appendToWord(b);
+						continue;
+					}
+
+					if (endWord(insert)) {
+						++words;
+						++chunk;
+					}
+
+					if (chunk >= CHUNK_SIZE) {
+						commitChunk(checkpoint, position, words);
+						chunk = 0;
+						if (listener != null)
+							listener.onProgress(position, totalBytes, words);
+					}
+				}
+			}
+
+			// The last line may not end with a new line
+			if (endWord(insert))
+				++words;
+
+			checkpoint(checkpoint, position, words, true);
+			mDatabase.setTransactionSuccessful();
+
+		} finally {
+			mDatabase.endTransaction();
+			insert.close();
+			checkpoint.close();
+		}
+
+		if (listener != null)
+			listener.onProgress(position, totalBytes, words);
+
+	}
+
+	private Cursor queryProgress() {
+		return mDatabase.query(TABLE_PROGRESS, new String[] { KEY_OFFSET,
+				KEY_WORDS, KEY_COMPLETE }, KEY_ID + "=0", null, null, null,
+				null, null);
+	}
+
+	/*
+	 * Add a byte to the current word, converting it to upper case. Words
+	 * containing anything other than letters (e.g. apostrophes/hyphens) are
+	 * rejected.
+	 */
+	private void appendToWord(byte b) {
+
+		if (!mWordValid)
+			return;
+
+		char c = (char) b;
+		if (c >= 'a' && c <= 'z') {
+			c -= 'a' - 'A';
+		} else if (c < 'A' || c > 'Z') {
+			mWordValid = false;
+			return;
+		}
+
+		if (mWordLength == MAX_WORD_LENGTH) {
+			mWordValid = false;
+			return;
+		}
+
+		mWord[mWordLength++] = c;
+
+	}
+
+	/*
+	 * Insert the current word if it is valid and isn't a repeat of the
+	 * previous word, then start a new word.
+	 *
+	 * @return true if the word was inserted, rather than ignored by the
+	 *         database as a repeat of a word further back.
+	 */
+	private boolean endWord(SQLiteStatement insert) {
+
+		final boolean accept = mWordValid && mWordLength >= MIN_WORD_LENGTH
+				&& !isRepeat();
+		boolean inserted = false;
+
+		if (accept) {
+			insert.bindString(1, new String(mWord, 0, mWordLength));
+			inserted = insert.executeInsert() != -1;
+
+			System.arraycopy(mWord, 0, mPreviousWord, 0, mWordLength);
+			mPreviousWordLength = mWordLength;
+		}
+
+		mWordLength = 0;
+		mWordValid = true;
+
+		return inserted;
+
+	}
+
+	private boolean isRepeat() {
+
+		if (mWordLength != mPreviousWordLength)
+			return false;
+
+		for (int i = 0; i < mWordLength; ++i) {
+			if (mWord[i] != mPreviousWord[i])
+				return false;
+		}
+
+		return true;
+
+	}
+
+	private void commitChunk(SQLiteStatement checkpoint, long position,
+			int words) {
+		checkpoint(checkpoint, position, words, false);
+		mDatabase.setTransactionSuccessful();
+		mDatabase.endTransaction();
+		mDatabase.beginTransaction();
+	}
+
+	private void checkpoint(SQLiteStatement checkpoint, long position,
+			int words, boolean complete) {
+		checkpoint.bindLong(1, position);
+		checkpoint.bindLong(2, words);
+		checkpoint.bindLong(3, complete ? 1 : 0);
+		checkpoint.executeInsert();
+	}
+
+}
@@ -11,6 +11,7 @@ import android.content.Context;
 import android.content.DialogInterface;
 import android.content.res.Resources;
 import android.graphics.Color;
+import android.os.AsyncTask;
 import android.util.AttributeSet;
 
 import com.technicalbepari.warofword.R;
@@ -22,7 +23,14 @@ import com.technicalbepari.warofword.gameframework.TranslationAnimation;
 import com.technicalbepari.warofword.gameframework.Widget;
 import com.technicalbepari.warofword.gameframework.WidgetClickListener;
 import com.technicalbepari.warofword.gameframework.WidgetDragListener;
+import com.technicalbepari.warofword.model.Analyses;
+import com.technicalbepari.warofword.model.ComputerPlayer;
+import com.technicalbepari.warofword.model.Dawg;
+import com.technicalbepari.warofword.model.Dictionary;
 import com.technicalbepari.warofword.model.GameModel;
+import com.technicalbepari.warofword.model.HintEngine;
+import com.technicalbepari.warofword.model.Lexicon;
+import com.technicalbepari.warofword.model.Move;
 
 /**
  * Controls the rendering of the board, including the letter grid, the word, the
@@ -47,6 +55,7 @@ public class Board extends RenderSurface implements WidgetClickListener,
 	private static final int COLOR_INVISIBLE = 0x00000000;
 	private static final int PLACEHOLDER_UNUSED = -1;
 	private final static double MIN_HEIGHT_TO_WIDTH = 1.4;
+	private static final long COMPUTER_TURN_BUDGET = 800; // milliseconds
 
 	private GameModel mGameModel;
 
@@ -64,6 +73,10 @@ public class Board extends RenderSurface implements WidgetClickListener,
 
 	private static Random mRand = new Random();
 
+	private static ComputerPlayer mComputerPlayer;
+	private ComputerTurnTask mComputerTurn;
+	private static HintEngine mHintEngine;
+
 	private enum DragAnimation {
 		NONE, EXPANDING, CONTRACTING
 	};
@@ -83,13 +96,60 @@ public class Board extends RenderSurface implements WidgetClickListener,
 
 	TextWidget mClearButton;
 	TextWidget mPlayButton;
+	TextWidget mHintButton;
+	TextWidget mUndoButton;
 	TextWidget mPlayer1Score;
 	TextWidget mPlayer2Score;
 
+	/**
+	 * Searches for the computer's move away from the UI thread, then plays it.
+	 */
+	private class ComputerTurnTask extends AsyncTask<Void, Void, Move> {
+
+		private final Context mContext;
+		private final GameModel.Snapshot mSnapshot;
+
+		public ComputerTurnTask(Context context) {
+			super();
+			mContext = context.getApplicationContext();
+			mSnapshot = mGameModel.getSnapshot();
+		}
+
+		@Override
+		protected Move doInBackground(Void... params) {
+
+			ComputerPlayer player = getComputerPlayer(mContext);
+			if (player == null)
+				return null;
+
+			return player.chooseMove(new GameModel(mSnapshot),
+					COMPUTER_TURN_BUDGET);
+		}
+
+		@Override
+		protected void onPostExecute(Move move) {
+			mComputerTurn = null;
+			playComputerMove(move);
+		}
+
+	} // ComputerTurnTask
+
 	public Board(Context context, GameModel gameModel) {
 		super(context);
 		mGameModel = gameModel;
 		init();
+
+		// Work out hints for each turn as it starts
+		HintEngine hintEngine = getHintEngine(context);
+		if (hintEngine != null) {
+			mGameModel.setTurnListener(hintEngine);
+			hintEngine.update(mGameModel);
+		}
+
+		// A game saved while the computer was thinking
+		if (mGameModel.isComputerTurn()) {
+			startComputerTurn();
+		}
 	}
 
 	public Board(Context context, AttributeSet attrs) {
@@ -117,12 +177,16 @@ public class Board extends RenderSurface implements WidgetClickListener,
 
 		final String clearButtonText = res.getString(R.string.clear_button);
 		final String submitButtonText = res.getString(R.string.submit_button);
+		final String hintButtonText = res.getString(R.string.hint_button);
+		final String undoButtonText = res.getString(R.string.undo_button);
 
 		setBackgroundColor(mBackgroundColor);
 
-		mTiles = new Tile[GameModel.GRID_ITEMS];
+		final int gridSize = mGameModel.getGridSize();
 
-		for (int i = 0; i < GameModel.GRID_ITEMS; ++i) {
+		mTiles = new Tile[gridSize];
+
+		for (int i = 0; i < gridSize; ++i) {
 
 			int tileColor = getColor(i);
 
@@ -143,6 +207,8 @@ public class Board extends RenderSurface implements WidgetClickListener,
 
 			@Override
 			public void onClick(Widget w) {
+				if (isComputerThinking())
+					return;
 				returnAllTilesToGrid();
 				presentWord();
 			}
@@ -156,6 +222,8 @@ public class Board extends RenderSurface implements WidgetClickListener,
 
 			@Override
 			public void onClick(Widget widget) {
+				if (isComputerThinking())
+					return;
 				submitWord();
 			}
 
@@ -163,6 +231,34 @@ public class Board extends RenderSurface implements WidgetClickListener,
 		mPlayButton.setColor(mPlayer1Color);
 		addWidget(mPlayButton);
 
+		mHintButton = new TextWidget(COLOR_INVISIBLE, hintButtonText,
+				Color.BLACK);
+		mHintButton.setClickListener(new WidgetClickListener() {
+
+			@Override
+			public void onClick(Widget widget) {
+				if (isComputerThinking())
+					return;
+				showHint();
+			}
+
+		});
+		addWidget(mHintButton);
+
+		mUndoButton = new TextWidget(COLOR_INVISIBLE, undoButtonText,
+				Color.BLACK);
+		mUndoButton.setClickListener(new WidgetClickListener() {
+
+			@Override
+			public void onClick(Widget widget) {
+				if (isComputerThinking())
+					return;
+				takeBackTurn();
+			}
+
+		});
+		addWidget(mUndoButton);
+
 		String player1Score = String.valueOf(mGameModel
 				.getPoints(GameModel.PLAYER1));
 		String player2Score = String.valueOf(mGameModel
@@ -208,10 +304,12 @@ public class Board extends RenderSurface implements WidgetClickListener,
 
 	private void layoutBoard() {
 
-		int tileWidth = getWidth() / GameModel.GRID_COLUMNS;
+		final int columns = mGameModel.getGridWidth();
+
+		int tileWidth = getWidth() / columns;
 		int tileHeight = tileWidth;
 
-		mGridTop = getHeight() - tileHeight * GameModel.GRID_ROWS;
+		mGridTop = getHeight() - tileHeight * mGameModel.getGridHeight();
 
 		mWordTop = (int) ((mGridTop / 2.0) - tileHeight / 2.0);
 		mAddToWordThreshold = (int) ((mGridTop / 2.0) + tileHeight * 0.25);
@@ -221,10 +319,10 @@ public class Board extends RenderSurface implements WidgetClickListener,
 		mTileWidthInWord = (int) (tileWidth * TILE_IN_WORD_SCALE_FACTOR);
 		Tile.widthInWord = mTileWidthInWord;
 
-		for (int i = 0; i < GameModel.GRID_ITEMS; ++i) {
+		for (int i = 0; i < mTiles.length; ++i) {
 
-			int x = tileWidth * (i % GameModel.GRID_COLUMNS);
-			int y = mGridTop + tileWidth * (i / GameModel.GRID_COLUMNS);
+			int x = tileWidth * (i % columns);
+			int y = mGridTop + tileWidth * (i / columns);
 			mTiles[i].applyLayout(x, y, tileWidth, tileHeight);
 
 		}
@@ -234,6 +332,10 @@ public class Board extends RenderSurface implements WidgetClickListener,
 		mClearButton.applyLayout(0, 0, mTileWidthInWord, mTileWidthInWord);
 		mPlayButton.applyLayout(getWidth() - mTileWidthInWord, 0,
 				mTileWidthInWord, mTileWidthInWord);
+		mHintButton.applyLayout(mTileWidthInWord, 0, mTileWidthInWord,
+				mTileWidthInWord);
+		mUndoButton.applyLayout(getWidth() - 2 * mTileWidthInWord, 0,
+				mTileWidthInWord, mTileWidthInWord);
 		mPlayer1Score.applyLayout(getWidth() / 2 - mTileWidthInWord, 0,
 				mTileWidthInWord, mTileWidthInWord);
 		mPlayer2Score.applyLayout(getWidth() / 2, 0, mTileWidthInWord,
@@ -255,12 +357,14 @@ public class Board extends RenderSurface implements WidgetClickListener,
 		case UNPLAYED:
 			/* falls through */
 		default:
-			return (tileIndex % 2 == 0) ? mEvenTileColor : mOddTileColor;
+			final int columns = mGameModel.getGridWidth();
+			final int parity = tileIndex % columns + tileIndex / columns;
+			return (parity % 2 == 0) ? mEvenTileColor : mOddTileColor;
 		}
 	}
 
 	private void updateGrid() {
-		for (int i = 0; i < GameModel.GRID_ITEMS; ++i) {
+		for (int i = 0; i < mTiles.length; ++i) {
 			int tileColor = getColor(i);
 			mTiles[i].setColor(tileColor);
 		}
@@ -269,6 +373,9 @@ public class Board extends RenderSurface implements WidgetClickListener,
 	@Override
 	public void onClick(Widget w) {
 
+		if (isComputerThinking())
+			return;
+
 		Tile t = (Tile) w;
 
 		if (w.getY() == mWordTop) {
@@ -287,6 +394,9 @@ public class Board extends RenderSurface implements WidgetClickListener,
 		mDragAnimation = DragAnimation.NONE;
 		mPlaceHolderIndex = PLACEHOLDER_UNUSED;
 
+		if (isComputerThinking())
+			return;
+
 		Tile tile = (Tile) widget;
 
 		removeTileFromWord(tile);
@@ -304,6 +414,12 @@ public class Board extends RenderSurface implements WidgetClickListener,
 
 		Tile tile = (Tile) widget;
 
+		if (isComputerThinking()) {
+			animateToPosition(tile, tile.mPositionInGrid_x,
+					tile.mPositionInGrid_y, Tile.widthInGrid);
+			return;
+		}
+
 		tile.setShadow(0, 0);
 
 		tile.cancelAllAnimations();
@@ -311,6 +427,8 @@ public class Board extends RenderSurface implements WidgetClickListener,
 
 		if (widget.getY() <= mAddToWordThreshold
 				&& mPlaceHolderIndex != PLACEHOLDER_UNUSED) {
+			mGameModel.insertTile(getWordPosition(mPlaceHolderIndex),
+					tile.getIndex());
 			mWord.add(mPlaceHolderIndex, tile);
 		} else {
 			animateToPosition(tile, tile.mPositionInGrid_x,
@@ -327,6 +445,9 @@ public class Board extends RenderSurface implements WidgetClickListener,
 	@Override
 	public void onDrag(Widget widget, int x, int y) {
 
+		if (isComputerThinking())
+			return;
+
 		Tile tile = (Tile) widget;
 
 		// Reposition tile according to drag coordinates
@@ -368,7 +489,7 @@ public class Board extends RenderSurface implements WidgetClickListener,
 				mWord.remove(mPlaceHolderTile);
 
 				mWord.add(Math.min(index, mWord.size()), mPlaceHolderTile);
-				presentWord();
+				layoutWord();
 			}
 		}
 	}
@@ -391,16 +512,45 @@ public class Board extends RenderSurface implements WidgetClickListener,
 	}
 
 	private void addTileToWord(Tile tile) {
-		mWord.remove(tile);
+
+		final int index = mWord.indexOf(tile);
+		if (index >= 0) {
+			mGameModel.moveTile(getWordPosition(index),
+					mGameModel.getWordLength() - 1);
+			mWord.remove(index);
+		} else {
+			mGameModel.addTile(tile.getIndex());
+		}
+
 		mWord.add(tile);
 		presentWord();
 	}
 
 	private void removeTileFromWord(Tile tile) {
-		mWord.remove(tile);
+
+		final int index = mWord.indexOf(tile);
+		if (index >= 0) {
+			mGameModel.removeTile(getWordPosition(index));
+			mWord.remove(index);
+		}
+
 		presentWord();
 	}
 
+	/*
+	 * @return the position in the game's word of the tile at an index of
+	 *         mWord, which may also hold the place holder.
+	 */
+	private int getWordPosition(int index) {
+
+		int position = 0;
+		for (int i = 0; i < index; ++i) {
+			if (mWord.get(i) != mPlaceHolderTile)
+				++position;
+		}
+		return position;
+	}
+
 	private void returnAllTilesToGrid() {
 
 		ListIterator<Tile> it = mWord.listIterator();
@@ -411,6 +561,7 @@ public class Board extends RenderSurface implements WidgetClickListener,
 					Tile.widthInGrid);
 		}
 
+		mGameModel.clearWord();
 	}
 
 	private void resizeTilesToFitWord() {
@@ -421,14 +572,22 @@ public class Board extends RenderSurface implements WidgetClickListener,
 		}
 	}
 
+	/*
+	 * Show the word after its letters change. The game's word is kept in step
+	 * with mWord as tiles are added and removed.
+	 */
 	private void presentWord() {
+		layoutWord();
+		updateScore();
+	}
+
+	private void layoutWord() {
 
 		resizeTilesToFitWord();
 
 		int offset = (int) (getWidth() / 2 - (Tile.widthInWord / 2.0)
 				* mWord.size());
 
-		List<Integer> letters = new LinkedList<Integer>();
 		for (int i = 0; i < mWord.size(); ++i) {
 
 			Tile t = mWord.get(i);
@@ -436,16 +595,8 @@ public class Board extends RenderSurface implements WidgetClickListener,
 			int y = mWordTop;
 
 			animateToPosition(t, x, y, Tile.widthInWord);
-
-			if (t.getIndex() >= 0) {
-				letters.add(t.getIndex());
-			}
 		}
 
-		mGameModel.setWord(letters);
-
-		updateScore();
-
 	}
 
 	private void updateScore() {
@@ -531,7 +682,20 @@ public class Board extends RenderSurface implements WidgetClickListener,
 
 		GameModel.GameState state = mGameModel.getGameState();
 
-		if (state != GameModel.GameState.GAME_OVER) {
+		if (state != GameModel.GameState.GAME_OVER
+				&& mGameModel.getComputerPlayer() != GameModel.NO_PLAYER) {
+
+			int playerColor = state == GameModel.GameState.PLAYER1_TURN ? mPlayer1Color
+					: mPlayer2Color;
+			mPlayButton.setColor(playerColor);
+
+			if (mGameModel.isComputerTurn()) {
+				startComputerTurn();
+			} else if (mLastPlayedWord != null) {
+				shakeTiles(mLastPlayedWord);
+			}
+
+		} else if (state != GameModel.GameState.GAME_OVER) {
 
 			String message = res.getString(R.string.turn_played);
 			message = String
@@ -588,4 +752,195 @@ public class Board extends RenderSurface implements WidgetClickListener,
 
 		}
 	}
+
+	private void showHint() {
+
+		final Resources res = getResources();
+		final String dismiss = res.getString(R.string.dismiss_message);
+
+		final HintEngine.Hint hint = (mHintEngine == null) ? null
+				: mHintEngine.getHint(mGameModel);
+
+		AlertDialog.Builder builder = new AlertDialog.Builder(getContext());
+		builder.setPositiveButton(dismiss, null);
+
+		if (hint == null) {
+			builder.setMessage(res.getString(R.string.hint_not_ready));
+		} else if (hint.getBestScoring() == null) {
+			builder.setMessage(res.getString(R.string.hint_no_words));
+		} else {
+			final Move bestScoring = hint.getBestScoring();
+			final Move bestCapturing = hint.getBestCapturing();
+
+			String message = String.format(res.getString(R.string.hint_best_score),
+					bestScoring.getWord(), bestScoring.getScore());
+
+			builder.setNegativeButton(res.getString(R.string.hint_use_best_score),
+					new DialogInterface.OnClickListener() {
+
+						@Override
+						public void onClick(DialogInterface dialog, int which) {
+							showWord(bestScoring);
+						}
+					});
+
+			if (bestCapturing != null) {
+				message += "\n" + String.format(
+						res.getString(R.string.hint_best_capture),
+						bestCapturing.getWord(), hint.getCaptures());
+
+				builder.setNeutralButton(res.getString(R.string.hint_use_best_capture),
+						new DialogInterface.OnClickListener() {
+
+							@Override
+							public void onClick(DialogInterface dialog, int which) {
+								showWord(bestCapturing);
+							}
+						});
+			}
+
+			builder.setMessage(message);
+		}
+
+		builder.show();
+	}
+
+	/*
+	 * Replace the word being assembled with a move's tiles.
+	 */
+	private void showWord(Move move) {
+
+		returnAllTilesToGrid();
+
+		for (int tile : move.getTiles()) {
+			mWord.add(mTiles[tile]);
+			mGameModel.addTile(tile);
+		}
+
+		presentWord();
+	}
+
+	/*
+	 * Take back the last turn. Against the computer, its reply is taken back
+	 * too, so that it is the player's turn again.
+	 */
+	private void takeBackTurn() {
+
+		if (!mGameModel.canUndo())
+			return;
+
+		returnAllTilesToGrid();
+
+		do {
+			mGameModel.undoTurn();
+		} while (mGameModel.isComputerTurn() && mGameModel.canUndo());
+
+		mLastPlayedWord = null;
+		presentWord();
+		updateGrid();
+		mPlayButton.setColor(mGameModel.getGameState() == GameModel.GameState.PLAYER1_TURN ? mPlayer1Color
+				: mPlayer2Color);
+
+		if (mGameModel.isComputerTurn()) {
+			startComputerTurn();
+		}
+	}
+
+	private boolean isComputerThinking() {
+		return mComputerTurn != null;
+	}
+
+	private void startComputerTurn() {
+		mComputerTurn = new ComputerTurnTask(getContext());
+		mComputerTurn.execute();
+	}
+
+	private void playComputerMove(Move move) {
+
+		final Resources res = getResources();
+		final String dismiss = res.getString(R.string.dismiss_message);
+
+		String message;
+		mLastPlayedWord = null;
+
+		if (move != null) {
+			mGameModel.setWord(move.getTiles(), move.getLength());
+		}
+
+		if (move != null
+				&& mGameModel.playTurn() == GameModel.TurnResult.SUCCESS) {
+
+			mLastPlayedWord = new LinkedList<Tile>();
+			for (int tile : move.getTiles()) {
+				mLastPlayedWord.add(mTiles[tile]);
+			}
+			message = String.format(res.getString(R.string.computer_played),
+					move.getWord());
+
+		} else {
+			mGameModel.passTurn();
+			message = res.getString(R.string.computer_passed);
+		}
+
+		updateScore();
+
+		if (mGameModel.getGameState() == GameModel.GameState.GAME_OVER) {
+			endTurn();
+			return;
+		}
+
+		updateGrid();
+		mPlayButton.setColor(mGameModel.getGameState() == GameModel.GameState.PLAYER1_TURN ? mPlayer1Color
+				: mPlayer2Color);
+
+		AlertDialog.Builder builder = new AlertDialog.Builder(getContext());
+		builder.setMessage(message)
+				.setPositiveButton(dismiss, new AlertDialog.OnClickListener() {
+
+					@Override
+					public void onClick(DialogInterface arg0, int arg1) {
+						if (mLastPlayedWord != null) {
+							shakeTiles(mLastPlayedWord);
+						}
+					}
+
+				}).show();
+	}
+
+	/*
+	 * The hint engine is shared by every game, so only one background thread
+	 * is ever started for it. Hints need a compiled dictionary, and start
+	 * from the analysis cache.
+	 */
+	private static synchronized HintEngine getHintEngine(Context context) {
+
+		if (mHintEngine == null) {
+			Lexicon lexicon = Dictionary.getLexicon(context);
+			if (lexicon instanceof Dawg) {
+				mHintEngine = new HintEngine((Dawg) lexicon);
+				mHintEngine.setAnalysisCache(Analyses.getCache(context));
+			}
+		}
+
+		return mHintEngine;
+	}
+
+	/*
+	 * The computer player is shared by every game, so it can keep what it
+	 * learned about the dictionary. Only a compiled dictionary can be searched
+	 * for moves, so without one the computer always passes.
+	 */
+	private static synchronized ComputerPlayer getComputerPlayer(
+			Context context) {
+
+		if (mComputerPlayer == null) {
+			Lexicon lexicon = Dictionary.getLexicon(context);
+			if (lexicon instanceof Dawg) {
+				mComputerPlayer = new ComputerPlayer((Dawg) lexicon);
+				mComputerPlayer.setAnalysisCache(Analyses.getCache(context));
+			}
+		}
+
+		return mComputerPlayer;
+	}
 }
@@ -12,7 +12,6 @@ import android.content.DialogInterface;
 import android.content.DialogInterface.OnClickListener;
 import android.content.Intent;
 import android.content.res.Resources;
-import android.database.sqlite.SQLiteDatabase;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
 import android.os.AsyncTask;
@@ -30,8 +29,11 @@ import android.widget.ListView;
 import android.widget.TextView;
 
 import com.technicalbepari.warofword.R;
+import com.technicalbepari.warofword.model.Dictionary;
+import com.technicalbepari.warofword.model.DictionaryService;
 import com.technicalbepari.warofword.model.GameDataBase;
-import com.technicalbepari.warofword.model.WordList;
+import com.technicalbepari.warofword.model.Lexicon;
+import com.technicalbepari.warofword.model.WordListImporter;
 
 /**
  * The activity that displays the main menu, allowing the creation of a new
@@ -42,9 +44,10 @@ import com.technicalbepari.warofword.model.WordList;
 public class DashboardActivity extends Activity implements OnItemClickListener,
 		OnItemLongClickListener {
 
-	private static final int FIXED_OPTIONS = 2;
+	private static final int FIXED_OPTIONS = 3;
 	private static final int NEW_GAME = 0;
-	private static final int HOW_TO_PLAY = 1;
+	private static final int NEW_COMPUTER_GAME = 1;
+	private static final int HOW_TO_PLAY = 2;
 
 	private List<Long> mSavedGames;
 	private ListView mListView;
@@ -54,7 +57,8 @@ public class DashboardActivity extends Activity implements OnItemClickListener,
 
 	private GameDataBase mSavedGameDB;
 
-	private class LoadDBTask extends AsyncTask<Void, Void, Boolean> {
+	private class LoadDBTask extends AsyncTask<Void, Integer, Boolean>
+			implements WordListImporter.ProgressListener {
 
 		private final Context mContext;
 		private ProgressDialog progressDialog;
@@ -75,14 +79,32 @@ public class DashboardActivity extends Activity implements OnItemClickListener,
 		@Override
 		protected Boolean doInBackground(Void... params) {
 
-			// Ensure the database has been initialised
-			WordList db = new WordList(mContext);
-			SQLiteDatabase temp = db.getReadableDatabase();
-			temp.close();
+			// Load the compiled dictionary used to check played words
+			Lexicon lexicon = Dictionary.getLexicon(mContext);
+
+			// If the compiled dictionary couldn't be loaded, words are looked
+			// up in the word list database, which has to be built first
+			if (lexicon instanceof DictionaryService) {
+				((DictionaryService) lexicon).importWords(this);
+			}
 
 			return true;
 		}
 
+		@Override
+		public void onProgress(long bytesRead, long totalBytes,
+				int wordsImported) {
+			if (totalBytes > 0) {
+				publishProgress((int) (100 * bytesRead / totalBytes));
+			}
+		}
+
+		@Override
+		protected void onProgressUpdate(Integer... values) {
+			progressDialog.setMessage(getString(R.string.import_message,
+					values[0]));
+		}
+
 		@Override
 		protected void onPostExecute(Boolean result) {
 			if (result) {
@@ -120,7 +142,7 @@ public class DashboardActivity extends Activity implements OnItemClickListener,
 			if (position<FIXED_OPTIONS) {
 				ImageView icon = (ImageView) view.findViewById(R.id.list_image);
 				Bitmap bm;
-				if (position==NEW_GAME) {
+				if (position==NEW_GAME || position==NEW_COMPUTER_GAME) {
 					bm = BitmapFactory.decodeResource(getResources(), R.drawable.plus_icon);
 				} else {
 					bm = BitmapFactory.decodeResource(getResources(), R.drawable.help_icon);
@@ -160,6 +182,7 @@ public class DashboardActivity extends Activity implements OnItemClickListener,
 		mOptions = new LinkedList<String>();
 
 		mOptions.add(getString(R.string.new_game));
+		mOptions.add(getString(R.string.new_computer_game));
 		mOptions.add(getString(R.string.how_to_play));
 
 		String savedGame = getResources().getString(R.string.saved_game);
@@ -181,6 +204,12 @@ public class DashboardActivity extends Activity implements OnItemClickListener,
 			Intent newGameintent = new Intent(DashboardActivity.this,
 					GameActivity.class);
 
+			startActivity(newGameintent);
+		} else if (pos == NEW_COMPUTER_GAME) {
+			Intent newGameintent = new Intent(DashboardActivity.this,
+					GameActivity.class);
+
+			newGameintent.putExtra(GameActivity.EXTRA_COMPUTER_OPPONENT, true);
 			startActivity(newGameintent);
 		} else if (pos == HOW_TO_PLAY) {
 			Intent instructionsIntent = new Intent(DashboardActivity.this,
@@ -1,27 +1,80 @@
 package com.technicalbepari.warofword.ui;
 
+import java.io.IOException;
+
 import android.app.Activity;
 import android.content.Intent;
+import android.os.AsyncTask;
 import android.os.Bundle;
 import android.view.Window;
 
 import com.technicalbepari.warofword.R;
+import com.technicalbepari.warofword.model.Analyses;
+import com.technicalbepari.warofword.model.AnalysisCache;
+import com.technicalbepari.warofword.model.BoardGenerator;
+import com.technicalbepari.warofword.model.Dawg;
+import com.technicalbepari.warofword.model.Dictionary;
 import com.technicalbepari.warofword.model.GameDataBase;
 import com.technicalbepari.warofword.model.GameModel;
+import com.technicalbepari.warofword.model.Lexicon;
 
 /**
  * The activity that presents the game board.
  *
+ * The analysis cache is read the first time a game is opened, and written
+ * out in the background whenever the activity is paused.
+ *
  * @author Andrew Smith
  */
 public class GameActivity extends Activity {
 
 	public final static String EXTRA_GAME_ID = "gameId";
+	public final static String EXTRA_COMPUTER_OPPONENT = "computerOpponent";
+
+	private static BoardGenerator mBoardGenerator;
 
 	Board mBoard;
 	GameModel mGameModel;
 	long mSavedGameId;
 
+	/**
+	 * Reads the analysis cache away from the UI thread, then lets the board
+	 * generator use it. Until then, grids are rated without it.
+	 */
+	private static class LoadAnalysesTask extends
+			AsyncTask<AnalysisCache, Void, AnalysisCache> {
+
+		@Override
+		protected AnalysisCache doInBackground(AnalysisCache... caches) {
+			caches[0].load();
+			return caches[0];
+		}
+
+		@Override
+		protected void onPostExecute(AnalysisCache cache) {
+			mBoardGenerator.setAnalysisCache(cache);
+		}
+
+	} // LoadAnalysesTask
+
+	/**
+	 * Writes out the analysis cache away from the UI thread.
+	 */
+	private static class SaveAnalysesTask extends
+			AsyncTask<AnalysisCache, Void, Void> {
+
+		@Override
+		protected Void doInBackground(AnalysisCache... caches) {
+			try {
+				caches[0].save();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+			return null;
+		}
+
+	} // SaveAnalysesTask
+
 	@Override
 	public void onCreate(Bundle savedInstanceState) {
 		super.onCreate(savedInstanceState);
@@ -34,8 +87,16 @@ public class GameActivity extends Activity {
 		if (mSavedGameId >= 0) {
 			GameDataBase gdb = new GameDataBase(this);
 			mGameModel = gdb.getGame(mSavedGameId);
-		} else {
-			mGameModel = new GameModel(this);
+		}
+
+		if (mGameModel == null) {
+			// New game, or a saved game from an incompatible version of the
+			// app. The saved game entry (if any) is replaced in onPause().
+			mGameModel = newGame();
+
+			if (intent.getBooleanExtra(EXTRA_COMPUTER_OPPONENT, false)) {
+				mGameModel.setComputerPlayer(GameModel.PLAYER2);
+			}
 		}
 
 		mBoard = new Board(this, mGameModel);
@@ -43,6 +104,28 @@ public class GameActivity extends Activity {
 
 	}
 
+	/*
+	 * Start a game on a grid with enough words to play. Grids can only be
+	 * checked against a compiled dictionary.
+	 */
+	private GameModel newGame() {
+
+		Lexicon lexicon = Dictionary.getLexicon(this);
+
+		if (lexicon instanceof Dawg) {
+			if (mBoardGenerator == null) {
+				mBoardGenerator = new BoardGenerator((Dawg) lexicon);
+				AnalysisCache cache = Analyses.getCache(this);
+				if (cache != null)
+					new LoadAnalysesTask().execute(cache);
+			}
+			return mBoardGenerator.newGame(GameModel.GRID_COLUMNS,
+					GameModel.GRID_ROWS);
+		}
+
+		return new GameModel(lexicon);
+	}
+
 	@Override
 	public void onPause() {
 		super.onPause();
@@ -60,6 +143,10 @@ public class GameActivity extends Activity {
 			// Update current saved game
 			gdb.updateGame(mSavedGameId, mGameModel);
 		}
+
+		AnalysisCache cache = Analyses.getCache(this);
+		if (cache != null)
+			new SaveAnalysesTask().execute(cache);
 	}
 
 }
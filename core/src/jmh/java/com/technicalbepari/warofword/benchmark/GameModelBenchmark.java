@@ -0,0 +1,161 @@
+package com.technicalbepari.warofword.benchmark;
+
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.technicalbepari.warofword.model.BoardGenerator;
+import com.technicalbepari.warofword.model.Dawg;
+import com.technicalbepari.warofword.model.GameModel;
+import com.technicalbepari.warofword.model.Move;
+import com.technicalbepari.warofword.model.MoveGenerator;
+
+/**
+ * Measures the parts of the engine that the computer players and the
+ * simulator spend their time in, on a fixed set of generated boards.
+ *
+ * Run with ./gradlew :core:jmh, which loads the app's word list. Another
+ * word list can be given with -PjmhArgs="-p wordList=&lt;path&gt;".
+ *
+ * @author Andrew Smith
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class GameModelBenchmark {
+
+	private static final int BOARDS = 64;
+
+	@Param("../app/src/main/res/raw/wordlist.txt")
+	public String wordList;
+
+	private BoardGenerator mBoardGenerator;
+	private MoveGenerator mMoveGenerator;
+	private GameModel[] mBoards;
+	private char[][] mGrids;
+	// The moves of a greedy game on each board, with null for a pass
+	private List<List<Move>> mGames;
+	private int mNext;
+
+	@Setup
+	public void setUp() throws IOException {
+
+		Dawg dawg;
+		InputStream is = new BufferedInputStream(new FileInputStream(wordList));
+		try {
+			dawg = Dawg.fromWordList(is);
+		} finally {
+			is.close();
+		}
+
+		mBoardGenerator = new BoardGenerator(dawg, 1);
+		mMoveGenerator = new MoveGenerator(dawg);
+		mBoards = new GameModel[BOARDS];
+		mGrids = new char[BOARDS][];
+		mGames = new ArrayList<List<Move>>(BOARDS);
+
+		for (int i = 0; i < BOARDS; ++i) {
+
+			mBoards[i] = mBoardGenerator.newGame(GameModel.GRID_COLUMNS,
+					GameModel.GRID_ROWS, i);
+
+			mGrids[i] = new char[mBoards[i].getGridSize()];
+			for (int j = 0; j < mGrids[i].length; ++j) {
+				mGrids[i][j] = mBoards[i].getLetter(j);
+			}
+
+			mGames.add(playGreedyGame(new GameModel(mBoards[i])));
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		mBoardGenerator.shutdown();
+	}
+
+	private List<Move> playGreedyGame(GameModel game) {
+
+		List<Move> moves = new ArrayList<Move>();
+
+		while (game.getGameState() != GameModel.GameState.GAME_OVER) {
+			List<Move> candidates = mMoveGenerator.generateMoves(game);
+			if (candidates.isEmpty()) {
+				moves.add(null);
+				game.passTurn();
+			} else {
+				Move move = candidates.get(0);
+				moves.add(move);
+				game.setWord(move.getTiles(), move.getLength());
+				game.playTurn();
+			}
+		}
+
+		return moves;
+	}
+
+	private int nextBoard() {
+		mNext = (mNext + 1) % BOARDS;
+		return mNext;
+	}
+
+	/**
+	 * Find and score every legal move on a new board.
+	 */
+	@Benchmark
+	public List<Move> generateMoves() {
+		return mMoveGenerator.generateMoves(mBoards[nextBoard()]);
+	}
+
+	/**
+	 * Play a whole recorded game through the rules engine.
+	 */
+	@Benchmark
+	public int replayGame() {
+
+		final int board = nextBoard();
+		GameModel game = new GameModel(mBoards[board]);
+
+		for (Move move : mGames.get(board)) {
+			if (move == null) {
+				game.passTurn();
+			} else {
+				game.setWord(move.getTiles(), move.getLength());
+				game.playTurn();
+			}
+		}
+
+		return game.getPoints(GameModel.PLAYER1);
+	}
+
+	/**
+	 * Count the words in a grid, as the board generator does for each
+	 * candidate grid.
+	 */
+	@Benchmark
+	public int countWords() {
+		return mBoardGenerator.countWords(mGrids[nextBoard()],
+				Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Write a game in progress, as is done each time a turn is saved.
+	 */
+	@Benchmark
+	public byte[] serialize() {
+		return mBoards[nextBoard()].serialize();
+	}
+}
@@ -0,0 +1,564 @@
+package com.technicalbepari.warofword.model;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * Keeps the BoardAnalysis of recent grids, in memory and in a file, so that
+ * a grid that comes up again, in this process or a later one, doesn't have
+ * to be analysed again. Grids are keyed by their size and letters. A
+ * generator seed always gives the same letters with the same dictionary,
+ * so it needs no key of its own.
+ *
+ * Each analysis is kept as a compact byte array, and decoded when it is
+ * asked for, outside the cache's lock. Its word count is kept alongside,
+ * so that BoardGenerator can rate a grid without decoding it. Its words
+ * are listed in dictionary order, each stored as the length of the prefix
+ * it shares with the word before and the letters that follow. Numbers
+ * are unsigned variable length integers, 7 bits to a byte. The least
+ * recently used analyses are dropped once the arrays add up to more than
+ * the cache's size.
+ *
+ * The file is read the first time the cache is used, unless load is called
+ * sooner, and only written by save, which doesn't hold up lookups while it
+ * writes. It starts with the dictionary's checksum, so a file written with
+ * another dictionary is ignored, as is one that can't be read.
+ *
+ * @author Andrew Smith
+ */
+public class AnalysisCache {
+
+	public static final int DEFAULT_MAX_BYTES = 1 << 20;
+
+	private static final int MAGIC = 0x574f5741; // "WOWA"
+	private static final int VERSION = 1;
+	private static final int BUFFER_SIZE = 16 * 1024;
+	private static final int INITIAL_CAPACITY = 16;
+
+	private final File mFile;
+	private final Dawg mDawg;
+	private final int mMaxBytes;
+	private final MoveGenerator mGenerator;
+
+	// Accessed in order, so the eldest entry was used least recently
+	private final LinkedHashMap<String, Entry> mEntries =
+			new LinkedHashMap<String, Entry>(INITIAL_CAPACITY, 0.75f, true);
+	private int mBytes;
+	private boolean mLoaded;
+	private boolean mChanged;
+
+	private int mHits;
+	private int mMisses;
+
+	// Held while the file is written, so saves don't overlap
+	private final Object mSaveLock = new Object();
+
+	/**
+	 * @param file - where to keep the analyses between processes, or null
+	 *        to only keep them in memory.
+	 * @param dawg - the dictionary the grids are played with.
+	 * @param maxBytes - the most bytes of analyses to keep.
+	 */
+	public AnalysisCache(File file, Dawg dawg, int maxBytes) {
+		mFile = file;
+		mDawg = dawg;
+		mMaxBytes = maxBytes;
+		mGenerator = new MoveGenerator(dawg);
+	}
+
+	/**
+	 * @return the analysis of a game's grid, worked out now if it isn't in
+	 *         the cache.
+	 */
+	public BoardAnalysis get(GameModel model) {
+
+		final char[] grid = new char[model.getGridSize()];
+		for (int i = 0; i < grid.length; ++i) {
+			grid[i] = model.getLetter(i);
+		}
+
+		return get(model.getGridWidth(), model.getGridHeight(), grid);
+	}
+
+	/**
+	 * @return the analysis of a grid, worked out now if it isn't in the
+	 *         cache.
+	 */
+	public BoardAnalysis get(int columns, int rows, char[] grid) {
+
+		BoardAnalysis analysis = peek(columns, rows, grid);
+		if (analysis != null)
+			return analysis;
+
+		// Other grids can be looked up while this one is analysed
+		analysis = mGenerator.analyse(columns, rows, grid);
+		put(analysis);
+
+		return analysis;
+	}
+
+	/**
+	 * @return the analysis of a grid, or null if it isn't in the cache.
+	 */
+	public BoardAnalysis peek(int columns, int rows, char[] grid) {
+
+		final String key = BoardAnalysis.getKey(columns, rows, grid);
+		final Entry entry = find(key);
+		if (entry == null)
+			return null;
+
+		// Other threads can use the cache while the entry is decoded
+		try {
+			final BoardAnalysis analysis = decode(entry.mBytes);
+			synchronized (this) {
+				++mHits;
+			}
+			return analysis;
+		} catch (IllegalArgumentException e) {
+			// Only the headers are checked when the file is read
+			synchronized (this) {
+				if (mEntries.get(key) == entry) {
+					mEntries.remove(key);
+					mBytes -= entry.mBytes.length;
+					mChanged = true;
+				}
+				++mMisses;
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * @return the number of words a grid's letters make, as
+	 *         BoardAnalysis.getWordCount, or -1 if the grid isn't in the
+	 *         cache. The analysis isn't decoded.
+	 */
+	public int getWordCount(int columns, int rows, char[] grid) {
+
+		final Entry entry = find(BoardAnalysis.getKey(columns, rows, grid));
+		if (entry == null)
+			return -1;
+
+		synchronized (this) {
+			++mHits;
+		}
+		return entry.mWordCount;
+	}
+
+	/**
+	 * Add an analysis, dropping the least recently used ones if the cache
+	 * grows too big.
+	 */
+	public synchronized void put(BoardAnalysis analysis) {
+		load();
+		final Entry entry = new Entry(encode(analysis), analysis.getWordCount());
+		if (add(analysis.getKey(), entry))
+			mChanged = true;
+	}
+
+	/**
+	 * Read the file, if it hasn't been read yet. The cache does this itself
+	 * when it is first used, so it only needs calling to do it sooner, or on
+	 * another thread.
+	 */
+	public synchronized void load() {
+
+		if (mLoaded)
+			return;
+		mLoaded = true;
+
+		if (mFile == null || !mFile.exists())
+			return;
+
+		try {
+			read();
+		} catch (IOException e) {
+			// Start again, and replace the file on the next save
+			e.printStackTrace();
+			mEntries.clear();
+			mBytes = 0;
+			mChanged = true;
+		}
+	}
+
+	/**
+	 * Write the analyses to the file, if anything was added since it was
+	 * read. The file is written alongside and then renamed, so a failed
+	 * save leaves the old file as it was. The analyses are copied before the
+	 * file is written, so the cache can be used meanwhile.
+	 */
+	public void save() throws IOException {
+
+		synchronized (mSaveLock) {
+
+			final byte[][] entries;
+			synchronized (this) {
+				if (mFile == null || !mChanged)
+					return;
+
+				// Least recently used first, so they are read back in order
+				entries = new byte[mEntries.size()][];
+				int i = 0;
+				for (Entry entry : mEntries.values()) {
+					entries[i++] = entry.mBytes;
+				}
+				mChanged = false;
+			}
+
+			boolean saved = false;
+			try {
+				write(entries);
+				saved = true;
+			} finally {
+				if (!saved) {
+					synchronized (this) {
+						mChanged = true;
+					}
+				}
+			}
+		}
+	}
+
+	private void write(byte[][] entries) throws IOException {
+
+		final File temp = new File(mFile.getPath() + ".tmp");
+		final DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(new FileOutputStream(temp),
+						BUFFER_SIZE));
+
+		try {
+			out.writeInt(MAGIC);
+			out.writeByte(VERSION);
+			out.writeInt(mDawg.getChecksum());
+			out.writeInt(entries.length);
+			for (byte[] bytes : entries) {
+				out.writeInt(bytes.length);
+				out.write(bytes);
+			}
+		} finally {
+			out.close();
+		}
+
+		if (!temp.renameTo(mFile)) {
+			temp.delete();
+			throw new IOException("Can't replace " + mFile);
+		}
+	}
+
+	/**
+	 * @return the number of analyses in the cache.
+	 */
+	public synchronized int size() {
+		load();
+		return mEntries.size();
+	}
+
+	/**
+	 * @return the number of bytes the analyses take up.
+	 */
+	public synchronized int getByteCount() {
+		load();
+		return mBytes;
+	}
+
+	/**
+	 * @return the number of lookups that found an analysis.
+	 */
+	public synchronized int getHitCount() {
+		return mHits;
+	}
+
+	/**
+	 * @return the number of lookups that didn't find an analysis.
+	 */
+	public synchronized int getMissCount() {
+		return mMisses;
+	}
+
+	/*
+	 * @return the entry for a key, counting a miss if there isn't one.
+	 */
+	private synchronized Entry find(String key) {
+
+		load();
+
+		final Entry entry = mEntries.get(key);
+		if (entry == null)
+			++mMisses;
+
+		return entry;
+	}
+
+	/*
+	 * @return false if the entry is too big to keep.
+	 */
+	private boolean add(String key, Entry entry) {
+
+		if (entry.mBytes.length > mMaxBytes)
+			return false;
+
+		final Entry old = mEntries.put(key, entry);
+		if (old != null)
+			mBytes -= old.mBytes.length;
+		mBytes += entry.mBytes.length;
+
+		final Iterator<Entry> eldest = mEntries.values().iterator();
+		while (mBytes > mMaxBytes) {
+			mBytes -= eldest.next().mBytes.length;
+			eldest.remove();
+		}
+
+		return true;
+	}
+
+	private void read() throws IOException {
+
+		final DataInputStream in = new DataInputStream(new BufferedInputStream(
+				new FileInputStream(mFile), BUFFER_SIZE));
+
+		try {
+			if (in.readInt() != MAGIC)
+				throw new IOException("Not an analysis cache");
+			if (in.readByte() != VERSION || in.readInt() != mDawg.getChecksum()) {
+				// Written by another version, or with another dictionary
+				mChanged = true;
+				return;
+			}
+
+			final int count = in.readInt();
+			for (int i = 0; i < count; ++i) {
+
+				final int length = in.readInt();
+				if (length < 0 || length > mMaxBytes)
+					throw new IOException("Invalid entry length " + length);
+				final byte[] bytes = new byte[length];
+				in.readFully(bytes);
+
+				try {
+					addEntry(bytes);
+				} catch (IllegalArgumentException e) {
+					throw new IOException(e.getMessage());
+				}
+			}
+		} finally {
+			in.close();
+		}
+	}
+
+	static byte[] encode(BoardAnalysis analysis) {
+
+		final Writer out = new Writer();
+		final int columns = analysis.getGridWidth();
+		final int rows = analysis.getGridHeight();
+
+		out.writeVarint(columns);
+		out.writeVarint(rows);
+		for (int i = 0; i < columns * rows; ++i) {
+			out.writeByte(analysis.getLetter(i));
+		}
+
+		final List<char[]> words = analysis.getWords();
+		out.writeVarint(words.size());
+		char[] previous = new char[0];
+		for (char[] word : words) {
+
+			int shared = 0;
+			final int limit = Math.min(word.length, previous.length);
+			while (shared < limit && word[shared] == previous[shared]) {
+				++shared;
+			}
+
+			out.writeVarint(shared);
+			out.writeVarint(word.length - shared);
+			for (int i = shared; i < word.length; ++i) {
+				out.writeByte(word[i]);
+			}
+			previous = word;
+		}
+
+		final List<Move> openings = analysis.getOpenings();
+		out.writeVarint(openings.size());
+		for (Move move : openings) {
+			out.writeVarint(move.getLength());
+			for (int tile : move.getTiles()) {
+				out.writeVarint(tile);
+			}
+			// Zigzag, as a score can be negative
+			out.writeVarint((move.getScore() << 1) ^ (move.getScore() >> 31));
+		}
+
+		return out.toByteArray();
+	}
+
+	/*
+	 * Add an analysis read from the file, decoding only its grid and word
+	 * count.
+	 */
+	private void addEntry(byte[] bytes) {
+		final Reader in = new Reader(bytes);
+		final int columns = in.readVarint();
+		final int rows = in.readVarint();
+		final char[] grid = readGrid(in, columns, rows);
+		add(BoardAnalysis.getKey(columns, rows, grid),
+				new Entry(bytes, in.readVarint()));
+	}
+
+	private static char[] readGrid(Reader in, int columns, int rows) {
+
+		if (columns < 1 || rows < 1 || columns > in.getLength() / rows)
+			throw new IllegalArgumentException("Invalid grid size " + columns
+					+ "x" + rows);
+
+		final char[] grid = new char[columns * rows];
+		for (int i = 0; i < grid.length; ++i) {
+			grid[i] = (char) in.readByte();
+		}
+
+		return grid;
+	}
+
+	/**
+	 * @throws IllegalArgumentException if the bytes aren't an analysis.
+	 */
+	static BoardAnalysis decode(byte[] bytes) {
+
+		final Reader in = new Reader(bytes);
+
+		final int columns = in.readVarint();
+		final int rows = in.readVarint();
+		final char[] grid = readGrid(in, columns, rows);
+
+		final int wordCount = in.readVarint();
+		final List<char[]> words = new ArrayList<char[]>(Math.min(wordCount,
+				bytes.length));
+		char[] previous = new char[0];
+		for (int w = 0; w < wordCount; ++w) {
+
+			final int shared = in.readVarint();
+			final int rest = in.readVarint();
+			if (shared > previous.length || rest > grid.length - shared)
+				throw new IllegalArgumentException("Invalid word");
+
+			final char[] word = Arrays.copyOf(previous, shared + rest);
+			for (int i = shared; i < word.length; ++i) {
+				word[i] = (char) in.readByte();
+			}
+			words.add(word);
+			previous = word;
+		}
+
+		final int openingCount = in.readVarint();
+		final List<Move> openings = new ArrayList<Move>(Math.min(
+				openingCount, BoardAnalysis.MAX_OPENINGS));
+		for (int m = 0; m < openingCount; ++m) {
+
+			final int length = in.readVarint();
+			if (length > grid.length)
+				throw new IllegalArgumentException("Invalid opening");
+
+			final int[] tiles = new int[length];
+			final char[] word = new char[length];
+			for (int i = 0; i < length; ++i) {
+				tiles[i] = in.readVarint();
+				if (tiles[i] >= grid.length)
+					throw new IllegalArgumentException("Invalid opening");
+				word[i] = grid[tiles[i]];
+			}
+
+			final int zigzag = in.readVarint();
+			openings.add(new Move(new String(word), tiles, (zigzag >>> 1)
+					^ -(zigzag & 1)));
+		}
+
+		if (!in.isAtEnd())
+			throw new IllegalArgumentException("Unexpected bytes after analysis");
+
+		return new BoardAnalysis(columns, rows, grid, words, openings);
+	}
+
+	// An encoded analysis, and its word count
+	private static final class Entry {
+
+		final byte[] mBytes;
+		final int mWordCount;
+
+		Entry(byte[] bytes, int wordCount) {
+			mBytes = bytes;
+			mWordCount = wordCount;
+		}
+	}
+
+	private static final class Writer {
+
+		private byte[] mBytes = new byte[256];
+		private int mLength;
+
+		void writeByte(int b) {
+			if (mLength == mBytes.length)
+				mBytes = Arrays.copyOf(mBytes, 2 * mBytes.length);
+			mBytes[mLength++] = (byte) b;
+		}
+
+		void writeVarint(int value) {
+			while ((value & ~0x7f) != 0) {
+				writeByte((value & 0x7f) | 0x80);
+				value >>>= 7;
+			}
+			writeByte(value);
+		}
+
+		byte[] toByteArray() {
+			return Arrays.copyOf(mBytes, mLength);
+		}
+	}
+
+	private static final class Reader {
+
+		private final byte[] mBytes;
+		private int mPosition;
+
+		Reader(byte[] bytes) {
+			mBytes = bytes;
+		}
+
+		int getLength() {
+			return mBytes.length;
+		}
+
+		boolean isAtEnd() {
+			return mPosition == mBytes.length;
+		}
+
+		int readByte() {
+			if (mPosition >= mBytes.length)
+				throw new IllegalArgumentException("The analysis is truncated");
+			return mBytes[mPosition++] & 0xff;
+		}
+
+		int readVarint() {
+			int value = 0;
+			for (int shift = 0; shift < 32; shift += 7) {
+				final int b = readByte();
+				value |= (b & 0x7f) << shift;
+				if ((b & 0x80) == 0) {
+					if (value < 0)
+						break;
+					return value;
+				}
+			}
+			throw new IllegalArgumentException("Invalid number in the analysis");
+		}
+	}
+
+}
@@ -0,0 +1,200 @@
+package com.technicalbepari.warofword.model;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * A Bloom filter over a set of words. A negative answer from
+ * mightContain() is always correct, so the filter can cheaply reject most
+ * words that aren't in the dictionary before the authoritative store is
+ * consulted. A positive answer is wrong with a probability that is chosen
+ * when the filter is created.
+ *
+ * Words are hashed with 64 bit FNV-1a, and the k bit positions are derived
+ * from the two halves of the hash by double hashing, so neither adding nor
+ * querying a word allocates.
+ *
+ * @author Andrew Smith
+ */
+public class BloomFilter {
+
+	private static final int MAGIC = 0x574F5742; // "WOWB"
+	private static final int FORMAT_VERSION = 1;
+
+	private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	private final long[] mBits;
+	private final long mBitCount;
+	private final int mHashCount;
+
+	/**
+	 * Create an empty filter sized for the given number of words.
+	 *
+	 * @param expectedInsertions - the number of words that will be added.
+	 * @param falsePositiveRate - the desired probability that mightContain()
+	 *            returns true for a word that wasn't added, e.g. 0.01.
+	 */
+	public BloomFilter(int expectedInsertions, double falsePositiveRate) {
+
+		if (expectedInsertions < 1)
+			expectedInsertions = 1;
+		if (falsePositiveRate <= 0 || falsePositiveRate >= 1)
+			throw new IllegalArgumentException("Invalid false positive rate: "
+					+ falsePositiveRate);
+
+		final double ln2 = Math.log(2);
+		long bitCount = (long) Math.ceil(-expectedInsertions
+				* Math.log(falsePositiveRate) / (ln2 * ln2));
+
+		mBits = new long[(int) ((bitCount + 63) / 64)];
+		mBitCount = mBits.length * 64L;
+		mHashCount = Math.max(1,
+				(int) Math.round((double) mBitCount / expectedInsertions * ln2));
+
+	}
+
+	private BloomFilter(long[] bits, int hashCount) {
+		mBits = bits;
+		mBitCount = bits.length * 64L;
+		mHashCount = hashCount;
+	}
+
+	public static BloomFilter read(InputStream is) throws IOException {
+
+		DataInputStream in = new DataInputStream(is);
+
+		if (in.readInt() != MAGIC)
+			throw new IOException("Not a Bloom filter");
+		if (in.readInt() != FORMAT_VERSION)
+			throw new IOException("Unsupported Bloom filter version");
+
+		final int hashCount = in.readInt();
+		final int length = in.readInt();
+
+		if (hashCount < 1 || length < 1)
+			throw new IOException("Bloom filter is corrupt");
+
+		long[] bits = new long[length];
+		for (int i = 0; i < length; ++i) {
+			bits[i] = in.readLong();
+		}
+
+		return new BloomFilter(bits, hashCount);
+
+	}
+
+	public void write(OutputStream os) throws IOException {
+
+		DataOutputStream out = new DataOutputStream(os);
+
+		out.writeInt(MAGIC);
+		out.writeInt(FORMAT_VERSION);
+		out.writeInt(mHashCount);
+		out.writeInt(mBits.length);
+		for (long bits : mBits) {
+			out.writeLong(bits);
+		}
+		out.flush();
+
+	}
+
+	public void add(CharSequence word) {
+
+		final long hash = hash(word);
+		final int h1 = (int) hash;
+		final int h2 = (int) (hash >>> 32);
+
+		for (int i = 0; i < mHashCount; ++i) {
+			final long bit = index(h1 + i * h2);
+			mBits[(int) (bit >>> 6)] |= 1L << bit;
+		}
+
+	}
+
+	/**
+	 * @return false if the word was definitely not added to the filter, or
+	 *         true if it probably was.
+	 */
+	public boolean mightContain(CharSequence word) {
+
+		if (word == null)
+			return false;
+
+		return mightContain(hash(word));
+
+	}
+
+	/**
+	 * @return false if the word was definitely not added to the filter, or
+	 *         true if it probably was.
+	 */
+	public boolean mightContain(char[] word, int offset, int length) {
+
+		if (word == null)
+			return false;
+
+		return mightContain(hash(word, offset, length));
+
+	}
+
+	/**
+	 * @return the size of the filter in bytes.
+	 */
+	public int sizeInBytes() {
+		return mBits.length * 8;
+	}
+
+	/**
+	 * @return the probability of a false positive implied by how many of the
+	 *         filter's bits are set.
+	 */
+	public double expectedFalsePositiveRate() {
+		long set = 0;
+		for (long bits : mBits) {
+			set += Long.bitCount(bits);
+		}
+		return Math.pow((double) set / mBitCount, mHashCount);
+	}
+
+	private boolean mightContain(long hash) {
+
+		final int h1 = (int) hash;
+		final int h2 = (int) (hash >>> 32);
+
+		for (int i = 0; i < mHashCount; ++i) {
+			final long bit = index(h1 + i * h2);
+			if ((mBits[(int) (bit >>> 6)] & (1L << bit)) == 0)
+				return false;
+		}
+
+		return true;
+
+	}
+
+	private long index(int combinedHash) {
+		return (combinedHash & Integer.MAX_VALUE) % mBitCount;
+	}
+
+	private static long hash(CharSequence word) {
+		long hash = FNV_OFFSET_BASIS;
+		for (int i = 0; i < word.length(); ++i) {
+			hash ^= word.charAt(i);
+			hash *= FNV_PRIME;
+		}
+		return hash;
+	}
+
+	private static long hash(char[] word, int offset, int length) {
+		long hash = FNV_OFFSET_BASIS;
+		for (int i = offset; i < offset + length; ++i) {
+			hash ^= word[i];
+			hash *= FNV_PRIME;
+		}
+		return hash;
+	}
+
+}
@@ -0,0 +1,102 @@
+package com.technicalbepari.warofword.model;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * What is worked out about a grid before a game on it is played: every
+ * dictionary word its letters can make, and the best moves for the opening
+ * turn. It depends only on the grid and the dictionary, so it can be kept
+ * in an AnalysisCache and used again whenever the same grid comes up.
+ *
+ * An analysis is never changed once it is made.
+ *
+ * @author Andrew Smith
+ */
+public final class BoardAnalysis {
+
+	/**
+	 * The most opening moves kept.
+	 */
+	public static final int MAX_OPENINGS = 16;
+
+	private final int mColumns;
+	private final int mRows;
+	private final char[] mGrid;
+	private final List<char[]> mWords;
+	private final List<Move> mOpenings;
+
+	/**
+	 * @param words - the words, in the order the dictionary lists them.
+	 * @param openings - the best opening moves, best first.
+	 */
+	BoardAnalysis(int columns, int rows, char[] grid, List<char[]> words,
+			List<Move> openings) {
+		mColumns = columns;
+		mRows = rows;
+		mGrid = grid;
+		mWords = Collections.unmodifiableList(words);
+		mOpenings = Collections.unmodifiableList(openings);
+	}
+
+	public int getGridWidth() {
+		return mColumns;
+	}
+
+	public int getGridHeight() {
+		return mRows;
+	}
+
+	public char getLetter(int index) {
+		return mGrid[index];
+	}
+
+	/**
+	 * @return true if this is the analysis of a grid.
+	 */
+	public boolean isFor(int columns, int rows, char[] grid) {
+		return columns == mColumns && rows == mRows
+				&& Arrays.equals(grid, mGrid);
+	}
+
+	/**
+	 * @return the number of words the grid's letters make, which is how
+	 *         BoardGenerator rates grids.
+	 */
+	public int getWordCount() {
+		return mWords.size();
+	}
+
+	/**
+	 * @return the words the grid's letters make. The arrays must not be
+	 *         modified.
+	 */
+	List<char[]> getWords() {
+		return mWords;
+	}
+
+	/**
+	 * @return up to MAX_OPENINGS moves for the first turn on the grid, best
+	 *         first. Before any tiles are taken, both players have the same
+	 *         moves.
+	 */
+	public List<Move> getOpenings() {
+		return mOpenings;
+	}
+
+	/**
+	 * @return the key of the grid in an AnalysisCache.
+	 */
+	static String getKey(int columns, int rows, char[] grid) {
+		StringBuilder sb = new StringBuilder(grid.length + 8);
+		sb.append(columns).append('x').append(rows).append(':');
+		sb.append(grid);
+		return sb.toString();
+	}
+
+	String getKey() {
+		return getKey(mColumns, mRows, mGrid);
+	}
+
+}
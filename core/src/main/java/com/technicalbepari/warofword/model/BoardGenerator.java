@@ -0,0 +1,282 @@
+package com.technicalbepari.warofword.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Starts games on grids that have enough words to play.
+ *
+ * A game's seed picks a sequence of candidate grids. Each candidate is scored
+ * by counting the dictionary words its letters can make, and the first with
+ * at least the minimum number of words is used, so the same seed always gives
+ * the same grid. If none of the first MAX_CANDIDATES is good enough, the best
+ * of them is used.
+ *
+ * Most grids pass, so the first candidate is scored on the calling thread.
+ * After that, candidates are scored a batch at a time on a thread per core.
+ * Candidates already in the generator's AnalysisCache, if it has one, are
+ * scored by the word count of their analysis instead.
+ *
+ * @author Andrew Smith
+ */
+public class BoardGenerator {
+
+	public static final int DEFAULT_MIN_WORDS = 300;
+
+	private static final int ALPHABET_SIZE = 26;
+	private static final int MIN_WORD_LENGTH = 2;
+	private static final int MAX_CANDIDATES = 64;
+	private static final long SEED_INCREMENT = 0x9E3779B97F4A7C15L;
+
+	private final Dawg mDawg;
+	private final int mThreads;
+	private ExecutorService mExecutor;
+	private volatile AnalysisCache mCache;
+
+	private int mMinWords = DEFAULT_MIN_WORDS;
+	private int mVowels = -1; // the game's default for the grid size
+	private boolean mQNeedsU = true;
+
+	public BoardGenerator(Dawg dawg) {
+		this(dawg, Runtime.getRuntime().availableProcessors());
+	}
+
+	public BoardGenerator(Dawg dawg, int threads) {
+		mDawg = dawg;
+		mThreads = Math.max(1, threads);
+	}
+
+	/**
+	 * @param minWords - the number of words a grid's letters must make.
+	 */
+	public void setMinWords(int minWords) {
+		mMinWords = minWords;
+	}
+
+	/**
+	 * @param vowels - the number of vowels on each grid, or -1 for the
+	 *        game's default.
+	 */
+	public void setVowels(int vowels) {
+		mVowels = vowels;
+	}
+
+	/**
+	 * @param qNeedsU - only place Q on grids that have a U.
+	 */
+	public void setQNeedsU(boolean qNeedsU) {
+		mQNeedsU = qNeedsU;
+	}
+
+	/**
+	 * @param cache - where to look up the word counts of grids, or null.
+	 */
+	public void setAnalysisCache(AnalysisCache cache) {
+		mCache = cache;
+	}
+
+	/**
+	 * Start a game on a random grid.
+	 */
+	public GameModel newGame(int columns, int rows) {
+		return newGame(columns, rows, new Random().nextLong());
+	}
+
+	/**
+	 * Start a game on the grid picked by a seed. The seed is saved with the
+	 * game, and gives the same grid again with the same dictionary and
+	 * settings.
+	 */
+	public GameModel newGame(int columns, int rows, long seed) {
+		return new GameModel(columns, rows, generate(columns, rows, seed),
+				seed, mDawg);
+	}
+
+	/**
+	 * @return the grid picked by a seed.
+	 */
+	public char[] generate(int columns, int rows, long seed) {
+
+		final int size = columns * rows;
+
+		char[] grid = createCandidate(size, seed, 0);
+		int words = rate(columns, rows, grid);
+		if (words >= mMinWords)
+			return grid;
+
+		char[] best = grid;
+		int bestWords = words;
+
+		for (int first = 1; first < MAX_CANDIDATES; first += mThreads) {
+
+			final int count = Math.min(mThreads, MAX_CANDIDATES - first);
+			final char[][] grids = new char[count][];
+			final int[] counts = scoreCandidates(columns, rows, seed, first,
+					grids);
+
+			// The lowest index wins, whichever thread finished first
+			for (int i = 0; i < count; ++i) {
+				if (counts[i] >= mMinWords)
+					return grids[i];
+				if (counts[i] > bestWords) {
+					bestWords = counts[i];
+					best = grids[i];
+				}
+			}
+		}
+
+		return best;
+	}
+
+	/**
+	 * Count the dictionary words, of two or more letters, that can be made
+	 * from a grid's letters.
+	 *
+	 * @param limit - stop counting at this many words.
+	 * @return the number of words, up to limit.
+	 */
+	public int countWords(char[] grid, int limit) {
+
+		if (mDawg.size() == 0)
+			return 0;
+
+		int[] counts = new int[ALPHABET_SIZE];
+		for (char c : grid) {
+			final int letter = c - 'A';
+			if (letter >= 0 && letter < ALPHABET_SIZE)
+				++counts[letter];
+		}
+
+		return countWords(Dawg.ROOT, 0, grid.length, counts, 0, limit);
+	}
+
+	private int countWords(int node, int depth, int maxDepth, int[] counts,
+			int found, int limit) {
+
+		for (int i = node;; ++i) {
+
+			final int edge = mDawg.getEdge(i);
+			final int letter = edge & Dawg.LETTER_MASK;
+
+			if (counts[letter] > 0) {
+
+				if ((edge & Dawg.TERMINAL_FLAG) != 0
+						&& depth + 1 >= MIN_WORD_LENGTH && ++found >= limit)
+					return found;
+
+				final int target = edge >>> Dawg.TARGET_SHIFT;
+				if (target != Dawg.ROOT && depth + 1 < maxDepth) {
+					--counts[letter];
+					found = countWords(target, depth + 1, maxDepth, counts,
+							found, limit);
+					++counts[letter];
+					if (found >= limit)
+						return found;
+				}
+			}
+
+			if ((edge & Dawg.LAST_FLAG) != 0)
+				return found;
+		}
+	}
+
+	/*
+	 * @return the number of words a grid's letters make, up to mMinWords
+	 *         unless it was counted before.
+	 */
+	private int rate(int columns, int rows, char[] grid) {
+
+		final AnalysisCache cache = mCache;
+		if (cache != null) {
+			final int count = cache.getWordCount(columns, rows, grid);
+			if (count >= 0)
+				return count;
+		}
+
+		return countWords(grid, mMinWords);
+	}
+
+	/**
+	 * Stop the scoring threads. The generator can still be used, and starts
+	 * them again if it needs them.
+	 */
+	public synchronized void shutdown() {
+		if (mExecutor != null) {
+			mExecutor.shutdownNow();
+			mExecutor = null;
+		}
+	}
+
+	private char[] createCandidate(int size, long seed, int index) {
+
+		char[] grid = new char[size];
+		final int vowels = (mVowels < 0) ? GameModel.getDefaultVowels(size)
+				: mVowels;
+
+		GameModel.generateRandomLetterGrid(grid, new Random(seed + index
+				* SEED_INCREMENT), vowels, mQNeedsU);
+
+		return grid;
+	}
+
+	/*
+	 * Create and score candidates first to first + grids.length - 1.
+	 */
+	private int[] scoreCandidates(final int columns, final int rows,
+			final long seed, final int first, final char[][] grids) {
+
+		final int[] counts = new int[grids.length];
+
+		List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+		for (int i = 0; i < grids.length; ++i) {
+			final int index = i;
+			tasks.add(new Callable<Void>() {
+				@Override
+				public Void call() {
+					grids[index] = createCandidate(columns * rows, seed, first
+							+ index);
+					counts[index] = rate(columns, rows, grids[index]);
+					return null;
+				}
+			});
+		}
+
+		try {
+			for (Future<Void> future : getExecutor().invokeAll(tasks)) {
+				future.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException(e.getCause());
+		}
+
+		return counts;
+	}
+
+	private synchronized ExecutorService getExecutor() {
+
+		if (mExecutor == null) {
+			mExecutor = Executors.newFixedThreadPool(mThreads,
+					new ThreadFactory() {
+						@Override
+						public Thread newThread(Runnable r) {
+							Thread thread = new Thread(r, "BoardGenerator");
+							thread.setDaemon(true);
+							return thread;
+						}
+					});
+		}
+
+		return mExecutor;
+	}
+
+}
@@ -0,0 +1,302 @@
+package com.technicalbepari.warofword.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A computer opponent. It looks ahead with an iterative deepening alpha-beta
+ * search, and plays the best move of the deepest search that finished within
+ * its time budget.
+ *
+ * Positions are searched on a copy of the game, using applyMove and undoMove,
+ * and are scored by the difference in points. Results are kept in a
+ * transposition table keyed by the game's Zobrist hash, which also supplies
+ * the first move to try when a position is searched again. The hash doesn't
+ * cover the letters, so the table is cleared when a search is on a different
+ * grid from the last one. Below the root, only the MAX_BRANCHING best scoring
+ * moves and passing are considered.
+ *
+ * Given an AnalysisCache, the first turn on an empty grid searches the
+ * grid's cached openings, rather than every word, so it starts deeper.
+ *
+ * @author Andrew Smith
+ */
+public class ComputerPlayer {
+
+	private static final int TABLE_BITS = 16;
+	private static final int MAX_DEPTH = 32;
+	private static final int MAX_BRANCHING = 24;
+	private static final int WIN_SCORE = 1 << 20;
+	private static final int INFINITY = 1 << 30;
+
+	private final MoveGenerator mGenerator;
+	private final TranspositionTable mTable = new TranspositionTable(TABLE_BITS);
+	private AnalysisCache mCache;
+
+	// The grid of the last search, whose results are in the table
+	private char[] mGrid;
+	private int mColumns;
+
+	private long mDeadline;
+	private boolean mTimeUp;
+	private int mNodes;
+	private int mDepth;
+
+	public ComputerPlayer(Dawg dawg) {
+		this(new MoveGenerator(dawg));
+	}
+
+	public ComputerPlayer(MoveGenerator generator) {
+		mGenerator = generator;
+	}
+
+	/**
+	 * @param cache - where to look up what is known about a grid, or null.
+	 */
+	public synchronized void setAnalysisCache(AnalysisCache cache) {
+		mCache = cache;
+		mGenerator.setAnalysisCache(cache);
+	}
+
+	/**
+	 * Choose a move for the player whose turn it is.
+	 *
+	 * @param model - the game. It isn't changed.
+	 * @param budgetMillis - how long to search for.
+	 * @return the move, or null to pass.
+	 */
+	public synchronized Move chooseMove(GameModel model, long budgetMillis) {
+
+		mDeadline = System.nanoTime() + budgetMillis * 1000000L;
+		mTimeUp = false;
+		mNodes = 0;
+		mDepth = 0;
+
+		final GameModel game = new GameModel(model);
+		if (isNewGrid(game)) {
+			mTable.clear();
+		}
+		mTable.newSearch();
+		final int player = (game.getGameState() == GameModel.GameState.PLAYER1_TURN) ? GameModel.PLAYER1
+				: GameModel.PLAYER2;
+
+		final List<Move> moves;
+		if (mCache != null && game.getUnplayedTileCount() == game.getGridSize()) {
+			moves = new ArrayList<Move>(mCache.get(game).getOpenings());
+		} else {
+			moves = mGenerator.generateMoves(game);
+		}
+		if (moves.isEmpty())
+			return null;
+
+		// Until a search finishes, play the best scoring word
+		int best = 0;
+
+		for (int depth = 1; depth <= MAX_DEPTH; ++depth) {
+
+			int alpha = -INFINITY;
+			int bestAtDepth = best;
+
+			// The root considers every word and passing, starting with the
+			// best move of the last depth
+			for (int k = -1; k <= moves.size(); ++k) {
+
+				if (k == best)
+					continue;
+				final int i = (k < 0) ? best : k;
+
+				final int score = -search(game, i, moves, depth - 1,
+						-INFINITY, -alpha, 1 - player);
+				if (mTimeUp)
+					break;
+
+				if (score > alpha) {
+					alpha = score;
+					bestAtDepth = i;
+				}
+			}
+
+			if (mTimeUp)
+				break;
+
+			best = bestAtDepth;
+			mDepth = depth;
+
+			// The result is known
+			if (alpha >= WIN_SCORE || alpha <= -WIN_SCORE)
+				break;
+		}
+
+		return (best == moves.size()) ? null : moves.get(best);
+	}
+
+	/*
+	 * @return true if the game's grid isn't the one the table's results are
+	 *         for. It is remembered for next time.
+	 */
+	private boolean isNewGrid(GameModel game) {
+
+		final int size = game.getGridSize();
+		boolean same = (mGrid != null && mGrid.length == size && mColumns == game
+				.getGridWidth());
+		for (int i = 0; i < size && same; ++i) {
+			same = (mGrid[i] == game.getLetter(i));
+		}
+
+		if (!same) {
+			mGrid = new char[size];
+			for (int i = 0; i < size; ++i) {
+				mGrid[i] = game.getLetter(i);
+			}
+			mColumns = game.getGridWidth();
+		}
+
+		return !same;
+	}
+
+	/**
+	 * @return the depth of the last completed search of chooseMove.
+	 */
+	public int getSearchDepth() {
+		return mDepth;
+	}
+
+	/**
+	 * @return the number of positions visited by the last chooseMove.
+	 */
+	public int getNodeCount() {
+		return mNodes;
+	}
+
+	/*
+	 * Play a move (or pass, if index is the number of moves), search the
+	 * resulting position, and take the move back.
+	 */
+	private int search(GameModel game, int index, List<Move> moves,
+			int depth, int alpha, int beta, int player) {
+
+		if (index == moves.size()) {
+			game.applyPass();
+		} else {
+			game.applyMove(moves.get(index));
+		}
+
+		final int score = search(game, depth, alpha, beta, player);
+
+		game.undoMove();
+
+		return score;
+	}
+
+	/*
+	 * Negamax search with alpha-beta pruning.
+	 *
+	 * @return the score of the position for the player whose turn it is.
+	 */
+	private int search(GameModel game, int depth, int alpha, int beta,
+			int player) {
+
+		// Every node generates moves, so the clock is cheap by comparison
+		++mNodes;
+		if (mTimeUp || System.nanoTime() > mDeadline) {
+			mTimeUp = true;
+			return 0;
+		}
+
+		if (game.getGameState() == GameModel.GameState.GAME_OVER)
+			return evaluateEnd(game, player);
+
+		if (depth == 0)
+			return evaluate(game, player);
+
+		final long key = game.getStateHash();
+		final int alphaBefore = alpha;
+		int first = TranspositionTable.NO_MOVE;
+
+		if (mTable.probe(key)) {
+			if (mTable.getDepth() >= depth) {
+				final int score = mTable.getScore();
+				switch (mTable.getFlag()) {
+				case TranspositionTable.EXACT:
+					return score;
+				case TranspositionTable.LOWER_BOUND:
+					alpha = Math.max(alpha, score);
+					break;
+				case TranspositionTable.UPPER_BOUND:
+					beta = Math.min(beta, score);
+					break;
+				}
+				if (alpha >= beta)
+					return score;
+			}
+			first = mTable.getMove();
+		}
+
+		final List<Move> moves = mGenerator.generateMoves(game);
+		final int count = Math.min(moves.size(), MAX_BRANCHING);
+		final List<Move> considered = moves.subList(0, count);
+
+		// Index count is passing
+		if (first > count)
+			first = TranspositionTable.NO_MOVE;
+
+		int best = -INFINITY;
+		int bestIndex = TranspositionTable.NO_MOVE;
+
+		for (int k = -1; k <= count; ++k) {
+
+			int i;
+			if (k < 0) {
+				if (first == TranspositionTable.NO_MOVE)
+					continue;
+				i = first;
+			} else {
+				if (k == first)
+					continue;
+				i = k;
+			}
+
+			final int score = -search(game, i, considered, depth - 1, -beta,
+					-alpha, 1 - player);
+			if (mTimeUp)
+				return 0;
+
+			if (score > best) {
+				best = score;
+				bestIndex = i;
+			}
+			if (best > alpha)
+				alpha = best;
+			if (alpha >= beta)
+				break;
+		}
+
+		final int flag;
+		if (best <= alphaBefore) {
+			flag = TranspositionTable.UPPER_BOUND;
+		} else if (best >= beta) {
+			flag = TranspositionTable.LOWER_BOUND;
+		} else {
+			flag = TranspositionTable.EXACT;
+		}
+		mTable.store(key, depth, best, flag, bestIndex);
+
+		return best;
+	}
+
+	private static int evaluate(GameModel game, int player) {
+		return game.getPoints(player) - game.getPoints(1 - player);
+	}
+
+	private static int evaluateEnd(GameModel game, int player) {
+
+		final int difference = evaluate(game, player);
+
+		if (difference > 0)
+			return WIN_SCORE + difference;
+		if (difference < 0)
+			return -WIN_SCORE + difference;
+		return 0;
+	}
+
+}
@@ -0,0 +1,371 @@
+package com.technicalbepari.warofword.model;
+
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * A minimal acyclic word graph (DAWG) used to answer dictionary lookups in
+ * O(word length) without allocating.
+ *
+ * The whole graph is held in a single flat buffer of ints, which is either an
+ * array on the heap or a memory mapped dictionary image. The edges leaving a
+ * node are stored contiguously and sorted by letter, and a node is identified
+ * by the index of its first edge. The root node is always at index 0. Each
+ * edge is packed into an int as follows:
+ *
+ * <pre>
+ * bits 0-4  letter (0 = 'A' ... 25 = 'Z')
+ * bit  5    terminal: the word ending with this edge is in the dictionary
+ * bit  6    last: this is the last edge leaving its node
+ * bits 7-31 index of the target node, or 0 if the target has no edges
+ * </pre>
+ *
+ * Use a DawgBuilder to construct instances. A Dawg can be written to a binary
+ * image, which is how the dictionary is shipped with the app: the image is
+ * compiled from the word list at build time by DictionaryCompiler. The image
+ * consists of a header of five big-endian ints (magic number, format version,
+ * checksum, word count, edge count) followed by the edges, so it can be
+ * mapped into memory and searched in place without being parsed.
+ *
+ * @author Andrew Smith
+ */
+public class Dawg implements Lexicon {
+
+	static final int LETTER_MASK = 0x1F;
+	static final int TERMINAL_FLAG = 1 << 5;
+	static final int LAST_FLAG = 1 << 6;
+	static final int TARGET_SHIFT = 7;
+	static final int MAX_TARGET = -1 >>> TARGET_SHIFT;
+
+	static final int MAGIC = 0x574F5744; // "WOWD"
+	static final int FORMAT_VERSION = 1;
+	static final int HEADER_SIZE = 5 * 4;
+
+	static final int ROOT = 0;
+	static final int NO_EDGE = -1;
+
+	private static final int ALPHABET_SIZE = 26;
+	private static final int MIN_WORD_LENGTH = 2;
+
+	private final IntBuffer mEdges;
+	private final int mWordCount;
+	private final int mChecksum;
+
+	Dawg(int[] edges, int wordCount) {
+		mEdges = IntBuffer.wrap(edges);
+		mWordCount = wordCount;
+		mChecksum = computeChecksum();
+	}
+
+	private Dawg(IntBuffer edges, int wordCount, int checksum) {
+		mEdges = edges;
+		mWordCount = wordCount;
+		mChecksum = checksum;
+	}
+
+	/**
+	 * Build a Dawg from a plain text word list with one word per line. Words
+	 * are normalised in the same way as the WordList database: words shorter
+	 * than two letters and words containing anything other than the letters
+	 * A-Z (e.g. apostrophes/hyphens) are rejected, and words are converted to
+	 * upper case.
+	 */
+	public static Dawg fromWordList(InputStream is) throws IOException {
+
+		DawgBuilder builder = new DawgBuilder();
+		for (String word : readWordList(is)) {
+			builder.add(word);
+		}
+
+		return builder.build();
+
+	}
+
+	/**
+	 * Read and normalise a plain text word list, as for fromWordList().
+	 *
+	 * @return the normalised words in sorted order. The list may contain
+	 *         duplicates.
+	 */
+	public static List<String> readWordList(InputStream is) throws IOException {
+
+		BufferedReader reader = new BufferedReader(new InputStreamReader(is,
+				"US-ASCII"));
+
+		List<String> words = new ArrayList<String>();
+
+		String line;
+		while ((line = reader.readLine()) != null) {
+			String word = normaliseWord(line);
+			if (word != null)
+				words.add(word);
+		}
+
+		Collections.sort(words);
+
+		return words;
+
+	}
+
+	/**
+	 * Map a binary image written by write() into memory. Lookups read the
+	 * mapped pages directly, so nothing is parsed or copied onto the heap,
+	 * and the pages are shared through the page cache with any other mapping
+	 * of the same file. The image is not checksummed, because that would
+	 * mean touching every page up front.
+	 *
+	 * @param channel - a channel open for reading.
+	 * @param position - the offset of the image within the channel.
+	 * @param size - the length of the image in bytes.
+	 * @throws IOException if the region is not a valid dictionary image.
+	 */
+	public static Dawg map(FileChannel channel, long position, long size)
+			throws IOException {
+		return wrap(channel.map(FileChannel.MapMode.READ_ONLY, position, size));
+	}
+
+	/**
+	 * Read a Dawg from a binary image written by write(). Unlike map(), the
+	 * image is copied onto the heap and its checksum is verified.
+	 *
+	 * @throws IOException if the stream is not a valid dictionary image.
+	 */
+	public static Dawg read(InputStream is) throws IOException {
+
+		DataInputStream in = new DataInputStream(is);
+
+		byte[] header = new byte[HEADER_SIZE];
+		in.readFully(header);
+		final int edgeCount = checkHeader(ByteBuffer.wrap(header));
+
+		ByteBuffer image = ByteBuffer.allocate(HEADER_SIZE + edgeCount * 4);
+		image.put(header);
+		in.readFully(image.array(), HEADER_SIZE, edgeCount * 4);
+
+		Dawg dawg = wrap(image);
+		if (dawg.computeChecksum() != dawg.getChecksum())
+			throw new IOException("Dictionary image is corrupt");
+
+		return dawg;
+
+	}
+
+	/*
+	 * Check the header of an image and create a Dawg that searches its edges
+	 * in place.
+	 */
+	private static Dawg wrap(ByteBuffer image) throws IOException {
+
+		final int edgeCount = checkHeader(image);
+		final int checksum = image.getInt(8);
+		final int wordCount = image.getInt(12);
+
+		if (image.capacity() - HEADER_SIZE < edgeCount * 4L)
+			throw new IOException("Dictionary image is truncated");
+
+		image.position(HEADER_SIZE);
+		IntBuffer edges = image.slice().asIntBuffer();
+		edges.limit(edgeCount);
+
+		return new Dawg(edges, wordCount, checksum);
+
+	}
+
+	/*
+	 * Check the magic number, version and edge count at the start of an
+	 * image, before anything is allocated for its edges.
+	 *
+	 * @return the edge count.
+	 */
+	private static int checkHeader(ByteBuffer image) throws IOException {
+
+		if (image.capacity() < HEADER_SIZE || image.getInt(0) != MAGIC)
+			throw new IOException("Not a dictionary image");
+		if (image.getInt(4) != FORMAT_VERSION)
+			throw new IOException("Unsupported dictionary image version");
+
+		// Every edge must be a valid target, so there can't be more
+		final int edgeCount = image.getInt(16);
+		if (edgeCount < 0 || edgeCount > MAX_TARGET + 1)
+			throw new IOException("Invalid dictionary edge count " + edgeCount);
+
+		return edgeCount;
+
+	}
+
+	/**
+	 * Write the binary image of this Dawg to a stream.
+	 */
+	public void write(OutputStream os) throws IOException {
+
+		DataOutputStream out = new DataOutputStream(os);
+
+		out.writeInt(MAGIC);
+		out.writeInt(FORMAT_VERSION);
+		out.writeInt(getChecksum());
+		out.writeInt(mWordCount);
+		out.writeInt(mEdges.limit());
+		out.write(edgeBytes());
+		out.flush();
+
+	}
+
+	/**
+	 * @return a CRC32 checksum of the graph. Dictionaries built from the same
+	 *         word list have the same checksum, so it also serves as the
+	 *         version of the dictionary.
+	 */
+	public int getChecksum() {
+		return mChecksum;
+	}
+
+	private int computeChecksum() {
+		CRC32 crc = new CRC32();
+		crc.update(edgeBytes());
+		return (int) crc.getValue();
+	}
+
+	private byte[] edgeBytes() {
+		IntBuffer edges = mEdges.duplicate();
+		edges.rewind();
+		ByteBuffer buffer = ByteBuffer.allocate(edges.limit() * 4);
+		buffer.asIntBuffer().put(edges);
+		return buffer.array();
+	}
+
+	/*
+	 * Convert a line of the word list to upper case, or return null if it is
+	 * not a valid word.
+	 */
+	static String normaliseWord(String line) {
+
+		final int length = line.length();
+		if (length < MIN_WORD_LENGTH)
+			return null;
+
+		char[] word = new char[length];
+		for (int i = 0; i < length; ++i) {
+			char c = line.charAt(i);
+			if (c >= 'a' && c <= 'z') {
+				c -= 'a' - 'A';
+			} else if (c < 'A' || c > 'Z') {
+				return null;
+			}
+			word[i] = c;
+		}
+
+		return new String(word);
+
+	}
+
+	/**
+	 * @return the number of words in the dictionary.
+	 */
+	public int size() {
+		return mWordCount;
+	}
+
+	@Override
+	public boolean wordInDictionary(CharSequence word) {
+
+		if (word == null)
+			return false;
+
+		final int length = word.length();
+		if (length == 0)
+			return false;
+
+		int node = ROOT;
+
+		for (int i = 0;; ++i) {
+
+			int edge = findEdge(node, word.charAt(i));
+
+			if (edge == NO_EDGE)
+				return false;
+
+			if (i == length - 1)
+				return (edge & TERMINAL_FLAG) != 0;
+
+			node = edge >>> TARGET_SHIFT;
+
+			// Only nodes without edges have a target of ROOT
+			if (node == ROOT)
+				return false;
+		}
+
+	}
+
+	@Override
+	public boolean wordInDictionary(char[] word, int offset, int length) {
+
+		if (word == null || length == 0)
+			return false;
+
+		final int last = offset + length - 1;
+		int node = ROOT;
+
+		for (int i = offset;; ++i) {
+
+			int edge = findEdge(node, word[i]);
+
+			if (edge == NO_EDGE)
+				return false;
+
+			if (i == last)
+				return (edge & TERMINAL_FLAG) != 0;
+
+			node = edge >>> TARGET_SHIFT;
+
+			if (node == ROOT)
+				return false;
+		}
+
+	}
+
+	/**
+	 * Read an edge of the graph. The edges leaving a node start at the
+	 * node's index and end with the edge that has LAST_FLAG set.
+	 */
+	int getEdge(int index) {
+		return mEdges.get(index);
+	}
+
+	/*
+	 * Find the edge leaving the given node that is labelled with the given
+	 * letter, or NO_EDGE if there isn't one.
+	 */
+	private int findEdge(int node, char c) {
+
+		final int letter = c - 'A';
+		if (letter < 0 || letter >= ALPHABET_SIZE || node >= mEdges.limit())
+			return NO_EDGE;
+
+		for (int i = node;; ++i) {
+
+			final int edge = mEdges.get(i);
+			final int edgeLetter = edge & LETTER_MASK;
+
+			if (edgeLetter == letter)
+				return edge;
+
+			// Edges are sorted, so we can stop once we've passed the letter
+			if (edgeLetter > letter || (edge & LAST_FLAG) != 0)
+				return NO_EDGE;
+		}
+
+	}
+
+}
@@ -0,0 +1,217 @@
+package com.technicalbepari.warofword.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Constructs a minimal Dawg from a sorted list of words, using the
+ * incremental algorithm described by Daciuk et al. in "Incremental
+ * Construction of Minimal Acyclic Finite-State Automata".
+ *
+ * Words must be added in sorted order. Once a word has been added, any
+ * states that can no longer change are merged with an equivalent state
+ * that has already been seen, so the graph is kept minimal as it is built.
+ *
+ * @author Andrew Smith
+ */
+public class DawgBuilder {
+
+	private static final int FIRST_CHAR = 'A';
+	private static final int LAST_CHAR = 'Z';
+
+	private final State mRoot = new State();
+	private final Map<State, State> mRegister = new HashMap<State, State>();
+
+	private String mPreviousWord = "";
+	private int mWordCount = 0;
+
+	private static class State {
+
+		public boolean mTerminal;
+		public byte[] mLetters = new byte[1];
+		public State[] mChildren = new State[1];
+		public int mChildCount;
+
+		public State lastChild() {
+			return mChildren[mChildCount - 1];
+		}
+
+		public void addChild(int letter, State child) {
+			if (mChildCount == mChildren.length) {
+				mLetters = Arrays.copyOf(mLetters, mChildCount * 2);
+				mChildren = Arrays.copyOf(mChildren, mChildCount * 2);
+			}
+			mLetters[mChildCount] = (byte) letter;
+			mChildren[mChildCount] = child;
+			++mChildCount;
+		}
+
+		/*
+		 * Two states are equivalent if they are both terminal or both
+		 * non-terminal, and they have the same outgoing edges. Children are
+		 * compared by identity because they have already been minimised.
+		 */
+		@Override
+		public boolean equals(Object o) {
+
+			if (!(o instanceof State))
+				return false;
+
+			State s = (State) o;
+			if (s.mTerminal != mTerminal || s.mChildCount != mChildCount)
+				return false;
+
+			for (int i = 0; i < mChildCount; ++i) {
+				if (s.mLetters[i] != mLetters[i]
+						|| s.mChildren[i] != mChildren[i])
+					return false;
+			}
+
+			return true;
+		}
+
+		@Override
+		public int hashCode() {
+			int hash = mTerminal ? 1 : 0;
+			for (int i = 0; i < mChildCount; ++i) {
+				hash = 31 * hash + mLetters[i];
+				hash = 31 * hash + System.identityHashCode(mChildren[i]);
+			}
+			return hash;
+		}
+
+	} // class State
+
+	/**
+	 * Add a word to the graph. Words must be upper case and must be added in
+	 * sorted order. Adding the same word twice in a row has no effect.
+	 *
+	 * @throws IllegalArgumentException if the word is invalid or out of order.
+	 */
+	public void add(String word) {
+
+		if (word == null || word.length() == 0)
+			throw new IllegalArgumentException("Empty word");
+
+		final int order = word.compareTo(mPreviousWord);
+		if (order == 0)
+			return;
+		if (order < 0)
+			throw new IllegalArgumentException("Word added out of order: "
+					+ word);
+
+		for (int i = 0; i < word.length(); ++i) {
+			char c = word.charAt(i);
+			if (c < FIRST_CHAR || c > LAST_CHAR)
+				throw new IllegalArgumentException("Invalid word: " + word);
+		}
+
+		// Follow the prefix shared with the previous word
+		int prefixLength = 0;
+		State state = mRoot;
+		final int maxPrefix = Math.min(word.length(), mPreviousWord.length());
+		while (prefixLength < maxPrefix
+				&& word.charAt(prefixLength) == mPreviousWord
+						.charAt(prefixLength)) {
+			state = state.lastChild();
+			++prefixLength;
+		}
+
+		// The rest of the previous word can no longer change
+		if (state.mChildCount > 0)
+			replaceOrRegister(state);
+
+		// Add the remaining suffix
+		for (int i = prefixLength; i < word.length(); ++i) {
+			State next = new State();
+			state.addChild(word.charAt(i) - FIRST_CHAR, next);
+			state = next;
+		}
+		state.mTerminal = true;
+
+		mPreviousWord = word;
+		++mWordCount;
+
+	}
+
+	/**
+	 * Minimise the remaining states and flatten the graph.
+	 *
+	 * @return a Dawg containing every word that was added.
+	 */
+	public Dawg build() {
+
+		if (mRoot.mChildCount > 0)
+			replaceOrRegister(mRoot);
+
+		// Assign each state with edges the index of its first edge, root first
+		Map<State, Integer> offsets = new IdentityHashMap<State, Integer>();
+		List<State> states = new ArrayList<State>();
+		offsets.put(mRoot, 0);
+		states.add(mRoot);
+
+		int edgeCount = 0;
+		for (int i = 0; i < states.size(); ++i) {
+			State state = states.get(i);
+			offsets.put(state, edgeCount);
+			edgeCount += state.mChildCount;
+
+			for (int j = 0; j < state.mChildCount; ++j) {
+				State child = state.mChildren[j];
+				if (child.mChildCount > 0 && !offsets.containsKey(child)) {
+					offsets.put(child, 0);
+					states.add(child);
+				}
+			}
+		}
+
+		if (edgeCount > Dawg.MAX_TARGET)
+			throw new IllegalStateException("Too many edges: " + edgeCount);
+
+		int[] edges = new int[edgeCount];
+		int index = 0;
+		for (State state : states) {
+			for (int j = 0; j < state.mChildCount; ++j) {
+				State child = state.mChildren[j];
+
+				int edge = state.mLetters[j];
+				if (child.mTerminal)
+					edge |= Dawg.TERMINAL_FLAG;
+				if (j == state.mChildCount - 1)
+					edge |= Dawg.LAST_FLAG;
+				if (child.mChildCount > 0)
+					edge |= offsets.get(child) << Dawg.TARGET_SHIFT;
+
+				edges[index++] = edge;
+			}
+		}
+
+		return new Dawg(edges, mWordCount);
+
+	}
+
+	/*
+	 * Minimise the most recently added branch below the given state, merging
+	 * each state with an equivalent registered state if there is one.
+	 */
+	private void replaceOrRegister(State state) {
+
+		State child = state.lastChild();
+
+		if (child.mChildCount > 0)
+			replaceOrRegister(child);
+
+		State registered = mRegister.get(child);
+		if (registered != null) {
+			state.mChildren[state.mChildCount - 1] = registered;
+		} else {
+			mRegister.put(child, child);
+		}
+
+	}
+
+}
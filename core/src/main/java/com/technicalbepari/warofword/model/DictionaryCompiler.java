@@ -0,0 +1,89 @@
+package com.technicalbepari.warofword.model;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * A command line tool, run by the compileDictionary build task, that
+ * normalises the plain text word list and compiles it into the binary
+ * dictionary image loaded by Dictionary, and the Bloom filter loaded by
+ * DictionaryService.
+ *
+ * Usage: DictionaryCompiler &lt;word list&gt; &lt;dictionary image&gt;
+ * &lt;bloom filter&gt; [false positive rate]
+ *
+ * @author Andrew Smith
+ */
+public final class DictionaryCompiler {
+
+	private static final double DEFAULT_FALSE_POSITIVE_RATE = 0.01;
+
+	public static void main(String[] args) throws IOException {
+
+		if (args.length != 3 && args.length != 4) {
+			System.err.println("Usage: DictionaryCompiler <word list> "
+					+ "<dictionary image> <bloom filter> [false positive rate]");
+			System.exit(1);
+		}
+
+		final double falsePositiveRate = (args.length == 4) ? Double
+				.parseDouble(args[3]) : DEFAULT_FALSE_POSITIVE_RATE;
+
+		List<String> words;
+		InputStream is = new FileInputStream(args[0]);
+		try {
+			words = Dawg.readWordList(is);
+		} finally {
+			is.close();
+		}
+
+		DawgBuilder builder = new DawgBuilder();
+		BloomFilter filter = new BloomFilter(words.size(), falsePositiveRate);
+		for (String word : words) {
+			builder.add(word);
+			filter.add(word);
+		}
+		Dawg dawg = builder.build();
+
+		File image = new File(args[1]);
+		OutputStream os = openOutput(image);
+		try {
+			dawg.write(os);
+		} finally {
+			os.close();
+		}
+
+		File bloom = new File(args[2]);
+		os = openOutput(bloom);
+		try {
+			filter.write(os);
+		} finally {
+			os.close();
+		}
+
+		System.out.println(String.format("Compiled %d words to %s (checksum %08x)",
+				dawg.size(), image, dawg.getChecksum()));
+		System.out.println(String.format(
+				"Wrote %d byte Bloom filter to %s (false positive rate %.4f)",
+				filter.sizeInBytes(), bloom,
+				filter.expectedFalsePositiveRate()));
+
+	}
+
+	private static OutputStream openOutput(File file) throws IOException {
+		file.getParentFile().mkdirs();
+		return new BufferedOutputStream(new FileOutputStream(file));
+	}
+
+	// Suppress default constructor for noninstantiability
+	private DictionaryCompiler() {
+		throw new AssertionError();
+	}
+
+}
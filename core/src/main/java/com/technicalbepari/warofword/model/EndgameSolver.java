@@ -0,0 +1,283 @@
+package com.technicalbepari.warofword.model;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Works out how a game ends under perfect play, once only a few tiles are
+ * unplayed. Every choice of tiles for every playable word is searched, and
+ * passing, which ends the game if the opponent passed last.
+ *
+ * Positions are scored as won, drawn or lost rather than by points, so the
+ * search can stop as soon as a move is found that wins. Each position's moves
+ * are played once before any is searched deeper, which scores the moves that
+ * end the game and leaves out choices of tiles for a word that lead to the
+ * same position as another. Results are kept in a transposition table keyed
+ * by the game's state hash, which covers the tile states, whose turn it is, a
+ * pending pass and the played words, as they decide which words can still be
+ * played, mixed with the difference in points.
+ *
+ * Taking the last tiles isn't the only way to go on, so the number of words
+ * to search doesn't shrink with the unplayed tiles. A search is given a time
+ * budget, and gives up rather than guess when it runs out.
+ *
+ * @author Andrew Smith
+ */
+public class EndgameSolver {
+
+	/**
+	 * Games with more unplayed tiles than this aren't searched.
+	 */
+	public static final int MAX_UNPLAYED_TILES = 6;
+
+	public static final long DEFAULT_BUDGET_MILLIS = 500;
+
+	private static final int TABLE_BITS = 16;
+
+	// Scores, for the player whose turn it is
+	private static final int LOSS = -1;
+	private static final int DRAW = 0;
+	private static final int WIN = 1;
+
+	private static final long DIFFERENCE_KEY = 0x9E3779B97F4A7C15L;
+
+	/**
+	 * The result of a game under perfect play, from the position that was
+	 * solved, and a move that gets it.
+	 */
+	public static final class Solution {
+
+		private final Move mMove;
+		private final GameModel.GameResult mResult;
+		private final int mNodes;
+
+		Solution(Move move, GameModel.GameResult result, int nodes) {
+			mMove = move;
+			mResult = result;
+			mNodes = nodes;
+		}
+
+		/**
+		 * @return the move for the player whose turn it was, or null to
+		 *         pass.
+		 */
+		public Move getMove() {
+			return mMove;
+		}
+
+		public GameModel.GameResult getResult() {
+			return mResult;
+		}
+
+		/**
+		 * @return the number of positions that were searched.
+		 */
+		public int getNodeCount() {
+			return mNodes;
+		}
+	}
+
+	private final MoveGenerator mGenerator;
+	private final TranspositionTable mTable = new TranspositionTable(TABLE_BITS);
+
+	private long mDeadline;
+	private boolean mTimeUp;
+	private int mNodes;
+	private Move mBestMove;
+
+	public EndgameSolver(Dawg dawg) {
+		this(new MoveGenerator(dawg));
+	}
+
+	public EndgameSolver(MoveGenerator generator) {
+		mGenerator = generator;
+	}
+
+	public Solution solve(GameModel model) {
+		return solve(model, DEFAULT_BUDGET_MILLIS);
+	}
+
+	/**
+	 * Work out how the game ends under perfect play, and a move that gets
+	 * that result for the player whose turn it is.
+	 *
+	 * @param model - the game. It isn't changed.
+	 * @param budgetMillis - how long to search for.
+	 * @return the solution, or null if the game is over, more than
+	 *         MAX_UNPLAYED_TILES tiles are unplayed or the time ran out.
+	 */
+	public synchronized Solution solve(GameModel model, long budgetMillis) {
+
+		if (model.getGameState() == GameModel.GameState.GAME_OVER
+				|| model.getUnplayedTileCount() > MAX_UNPLAYED_TILES)
+			return null;
+
+		mDeadline = System.nanoTime() + budgetMillis * 1000000L;
+		mTimeUp = false;
+		mNodes = 0;
+
+		// The hash doesn't cover the letters, so results for another grid
+		// could be mistaken for this one's
+		mTable.clear();
+
+		final GameModel game = new GameModel(model);
+		final int player = (game.getGameState() == GameModel.GameState.PLAYER1_TURN) ? GameModel.PLAYER1
+				: GameModel.PLAYER2;
+
+		final int best = search(game, LOSS, WIN, player, 0);
+		if (mTimeUp)
+			return null;
+
+		final GameModel.GameResult result;
+		if (best == DRAW) {
+			result = GameModel.GameResult.DRAW;
+		} else if ((best == WIN) == (player == GameModel.PLAYER1)) {
+			result = GameModel.GameResult.PLAYER1_WIN;
+		} else {
+			result = GameModel.GameResult.PLAYER2_WIN;
+		}
+
+		return new Solution(mBestMove, result, mNodes);
+	}
+
+	private static void play(GameModel game, int index, List<Move> moves) {
+		if (index == moves.size()) {
+			game.applyPass();
+		} else {
+			game.applyMove(moves.get(index));
+		}
+	}
+
+	/*
+	 * Negamax search with alpha-beta pruning, to the end of the game. At
+	 * the root, the best move is kept in mBestMove.
+	 *
+	 * @return WIN, DRAW or LOSS for the player whose turn it is.
+	 */
+	private int search(GameModel game, int alpha, int beta, int player,
+			int ply) {
+
+		// Every node generates moves, so the clock is cheap by comparison
+		++mNodes;
+		if (mTimeUp || System.nanoTime() > mDeadline) {
+			mTimeUp = true;
+			return DRAW;
+		}
+
+		if (game.getGameState() == GameModel.GameState.GAME_OVER)
+			return Integer.signum(game.getPoints(player)
+					- game.getPoints(1 - player));
+
+		final long key = getKey(game, player);
+		final int alphaBefore = alpha;
+		int first = TranspositionTable.NO_MOVE;
+
+		if (mTable.probe(key)) {
+			final int score = mTable.getScore();
+			switch (mTable.getFlag()) {
+			case TranspositionTable.EXACT:
+				return score;
+			case TranspositionTable.LOWER_BOUND:
+				alpha = Math.max(alpha, score);
+				break;
+			case TranspositionTable.UPPER_BOUND:
+				beta = Math.min(beta, score);
+				break;
+			}
+			if (alpha >= beta)
+				return score;
+			first = mTable.getMove();
+		}
+
+		final List<Move> moves = mGenerator.generateAllMoves(game);
+		final int pass = moves.size();
+
+		if (first > pass)
+			first = TranspositionTable.NO_MOVE;
+
+		int best = LOSS - 1;
+		int bestIndex = TranspositionTable.NO_MOVE;
+
+		// First, play each move to find the ones that end the game: taking
+		// the last unplayed tiles, by letters or captures, or passing after
+		// the opponent passed. Passing comes last, so a word is chosen over
+		// passing when they do as well. Of the rest, only the first move to
+		// reach each position is kept.
+		final int[] children = new int[pass + 1];
+		int childCount = 0;
+		boolean searchFirst = false;
+		final Set<Long> positions = new HashSet<Long>();
+
+		for (int i = 0; i <= pass && alpha < beta; ++i) {
+
+			play(game, i, moves);
+			if (game.getGameState() == GameModel.GameState.GAME_OVER) {
+				final int score = Integer.signum(game.getPoints(player)
+						- game.getPoints(1 - player));
+				if (score > best) {
+					best = score;
+					bestIndex = i;
+				}
+				if (best > alpha)
+					alpha = best;
+			} else if (positions.add(getKey(game, 1 - player))) {
+				if (i == first) {
+					searchFirst = true;
+				} else {
+					children[childCount++] = i;
+				}
+			}
+			game.undoMove();
+		}
+
+		// Then search the rest, starting with the best move last time
+		for (int c = -1; c < childCount && alpha < beta; ++c) {
+
+			if (c < 0 && !searchFirst)
+				continue;
+			final int i = (c < 0) ? first : children[c];
+
+			play(game, i, moves);
+			final int score = -search(game, -beta, -alpha, 1 - player,
+					ply + 1);
+			game.undoMove();
+			if (mTimeUp)
+				return DRAW;
+
+			if (score > best) {
+				best = score;
+				bestIndex = i;
+			}
+			if (best > alpha)
+				alpha = best;
+		}
+
+		final int flag;
+		if (best <= alphaBefore) {
+			flag = TranspositionTable.UPPER_BOUND;
+		} else if (best >= beta) {
+			flag = TranspositionTable.LOWER_BOUND;
+		} else {
+			flag = TranspositionTable.EXACT;
+		}
+		mTable.store(key, 0, best, flag,
+				Math.min(bestIndex, TranspositionTable.NO_MOVE));
+
+		if (ply == 0)
+			mBestMove = (bestIndex == pass) ? null : moves.get(bestIndex);
+
+		return best;
+	}
+
+	/*
+	 * The transposition table key of a position, for the player whose turn
+	 * it is.
+	 */
+	private static long getKey(GameModel game, int player) {
+		final int difference = game.getPoints(player)
+				- game.getPoints(1 - player);
+		return game.getStateHash() ^ (difference * DIFFERENCE_KEY);
+	}
+
+}
@@ -0,0 +1,596 @@
+package com.technicalbepari.warofword.model;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * An append-only record of how a game was played, from which any position
+ * of the game can be rebuilt. A GameModel keeps one, adding each turn that
+ * is played or passed.
+ *
+ * The log is a compact byte array. It starts with a header holding the
+ * grid's size, its letters and the seed they were generated from, and
+ * (only if the game didn't start on an empty grid) the starting tile
+ * states and points. Each turn follows as a count of tiles, with 0 for a
+ * pass, and then the tile indexes. Counts and indexes are unsigned
+ * variable length integers, 7 bits to a byte, so on grids of up to 128
+ * tiles each letter takes a byte.
+ *
+ * Logs are checked for being well formed when they are read, but the turns
+ * are only checked against the rules and the dictionary when they are
+ * replayed or verified.
+ *
+ * @author Andrew Smith
+ */
+public final class GameLog implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Returned by verify for a log whose turns all follow the rules.
+	 */
+	public static final int VALID = -1;
+
+	/**
+	 * Returned by verifyAll for a log that can't be read.
+	 */
+	public static final int MALFORMED = -2;
+
+	private static final int MAGIC = 0x574f574c; // "WOWL"
+	private static final int VERSION = 1;
+	private static final int FLAG_START_POSITION = 1;
+	private static final int INITIAL_CAPACITY = 128;
+
+	private final int mColumns;
+	private final int mRows;
+	private final long mSeed;
+
+	private byte[] mBytes;
+	private int mLength;
+	private int mHeaderLength;
+	private int mMoveCount;
+
+	// The offsets of the records of the first mIndexedMoves turns, and of
+	// the end of the last of them, found when needed
+	transient private int[] mOffsets;
+	transient private int mIndexedMoves;
+
+	// Set once the bytes are shared with a snapshot's copy of the log, which
+	// only reads them. Bytes the copy can see are never overwritten, so they
+	// are copied before a turn is taken out.
+	transient private boolean mShared;
+
+	/**
+	 * Start the log of a game that hasn't been played yet.
+	 */
+	GameLog(GameModel game) {
+
+		mColumns = game.getGridWidth();
+		mRows = game.getGridHeight();
+		mSeed = game.getSeed();
+
+		final int size = mColumns * mRows;
+		mBytes = new byte[Math.max(INITIAL_CAPACITY, 2 * size + 32)];
+
+		boolean empty = game.getGameState() == GameModel.GameState.PLAYER1_TURN
+				&& game.getPoints(GameModel.PLAYER1) == 0
+				&& game.getPoints(GameModel.PLAYER2) == 0;
+		for (int i = 0; empty && i < size; ++i) {
+			empty = game.getLetterState(i) == GameModel.LetterState.UNPLAYED;
+		}
+
+		writeInt(MAGIC);
+		writeByte(VERSION);
+		writeByte(empty ? 0 : FLAG_START_POSITION);
+		writeVarint(mColumns);
+		writeVarint(mRows);
+		writeLong(mSeed);
+		for (int i = 0; i < size; ++i) {
+			writeByte(game.getLetter(i));
+		}
+
+		if (!empty) {
+			for (int i = 0; i < size; ++i) {
+				writeByte(game.getLetterState(i).ordinal());
+			}
+			writeVarint(game.getPoints(GameModel.PLAYER1));
+			writeVarint(game.getPoints(GameModel.PLAYER2));
+			writeByte(game.getGameState().ordinal());
+		}
+
+		mHeaderLength = mLength;
+	}
+
+	/**
+	 * Make a copy of a log, that can be added to separately.
+	 */
+	GameLog(GameLog other) {
+		this(other, Arrays.copyOf(other.mBytes,
+				Math.max(other.mLength + 16, INITIAL_CAPACITY)));
+	}
+
+	private GameLog(GameLog other, byte[] bytes) {
+		mColumns = other.mColumns;
+		mRows = other.mRows;
+		mSeed = other.mSeed;
+		mBytes = bytes;
+		mLength = other.mLength;
+		mHeaderLength = other.mHeaderLength;
+		mMoveCount = other.mMoveCount;
+	}
+
+	/**
+	 * @return a copy of the log as it is now, which shares the bytes of this
+	 *         one. The copy must not be added to.
+	 */
+	GameLog share() {
+		mShared = true;
+		GameLog copy = new GameLog(this, mBytes);
+		copy.mShared = true;
+		return copy;
+	}
+
+	/**
+	 * Read a log written by toByteArray.
+	 *
+	 * @throws IllegalArgumentException if the log isn't well formed.
+	 */
+	public GameLog(byte[] bytes) {
+
+		mBytes = bytes.clone();
+		mLength = bytes.length;
+
+		Reader in = new Reader(mBytes, 0, mLength);
+
+		if (in.readInt() != MAGIC)
+			throw new IllegalArgumentException("Not a game log");
+		final int version = in.readByte();
+		if (version != VERSION)
+			throw new IllegalArgumentException("Unsupported game log version "
+					+ version);
+
+		final int flags = in.readByte();
+		mColumns = in.readVarint();
+		mRows = in.readVarint();
+		if (mColumns < 1 || mRows < 1 || mColumns > Integer.MAX_VALUE / mRows)
+			throw new IllegalArgumentException("Invalid grid size " + mColumns
+					+ "x" + mRows);
+		mSeed = in.readLong();
+
+		final int size = mColumns * mRows;
+		in.skip(size);
+		if ((flags & FLAG_START_POSITION) != 0) {
+			for (int i = 0; i < size; ++i) {
+				if (in.readByte() >= GameModel.LetterState.values().length)
+					throw new IllegalArgumentException("Invalid tile state");
+			}
+			in.readVarint();
+			in.readVarint();
+			if (in.readByte() >= GameModel.GameState.values().length)
+				throw new IllegalArgumentException("Invalid game state");
+		}
+		mHeaderLength = in.getPosition();
+
+		// Check the turns, and count them
+		while (in.getPosition() < mLength) {
+			final int count = in.readVarint();
+			if (count > size)
+				throw new IllegalArgumentException("Turn " + mMoveCount
+						+ " has " + count + " tiles");
+			for (int i = 0; i < count; ++i) {
+				if (in.readVarint() >= size)
+					throw new IllegalArgumentException("Turn " + mMoveCount
+							+ " has a tile outside the grid");
+			}
+			++mMoveCount;
+		}
+	}
+
+	public byte[] toByteArray() {
+		return Arrays.copyOf(mBytes, mLength);
+	}
+
+	/**
+	 * @return the number of turns, including passes.
+	 */
+	public int getMoveCount() {
+		return mMoveCount;
+	}
+
+	public int getGridWidth() {
+		return mColumns;
+	}
+
+	public int getGridHeight() {
+		return mRows;
+	}
+
+	/**
+	 * @return the seed the grid was generated from, or GameModel.NO_SEED.
+	 */
+	public long getSeed() {
+		return mSeed;
+	}
+
+	/**
+	 * @return the tile indexes of a turn's word, or an empty array for a
+	 *         pass.
+	 */
+	public int[] getMove(int move) {
+
+		if (move < 0 || move >= mMoveCount)
+			throw new IndexOutOfBoundsException("Turn " + move + " of "
+					+ mMoveCount);
+
+		Reader in = new Reader(mBytes, getOffset(move), mLength);
+
+		final int[] tiles = new int[in.readVarint()];
+		for (int i = 0; i < tiles.length; ++i) {
+			tiles[i] = in.readVarint();
+		}
+		return tiles;
+	}
+
+	/**
+	 * Rebuild the game as it was before the first turn.
+	 */
+	public GameModel getStartPosition(Lexicon lexicon) {
+
+		Reader in = new Reader(mBytes, 0, mHeaderLength);
+		in.readInt();
+		in.readByte();
+		final int flags = in.readByte();
+		in.readVarint();
+		in.readVarint();
+		in.readLong();
+
+		final int size = mColumns * mRows;
+		final char[] grid = new char[size];
+		for (int i = 0; i < size; ++i) {
+			grid[i] = (char) in.readByte();
+		}
+
+		if ((flags & FLAG_START_POSITION) == 0)
+			return new GameModel(mColumns, mRows, grid, mSeed, lexicon);
+
+		final GameModel.LetterState[] allStates = GameModel.LetterState
+				.values();
+		final GameModel.LetterState[] states = new GameModel.LetterState[size];
+		for (int i = 0; i < size; ++i) {
+			states[i] = allStates[in.readByte()];
+		}
+		final int p1Points = in.readVarint();
+		final int p2Points = in.readVarint();
+		final GameModel.GameState gameState = GameModel.GameState.values()[in
+				.readByte()];
+
+		return new GameModel(mColumns, mRows, grid, states, gameState,
+				p1Points, p2Points, mSeed, lexicon);
+	}
+
+	/**
+	 * Rebuild the game as it was after every turn in the log. To rebuild
+	 * many positions of the same game, use a Replayer.
+	 *
+	 * @throws IllegalStateException if a turn breaks the rules.
+	 */
+	public GameModel replay(Lexicon lexicon) {
+		return replay(lexicon, mMoveCount);
+	}
+
+	/**
+	 * Rebuild the game as it was after some of its turns.
+	 *
+	 * @param moves - the number of turns to play.
+	 * @throws IllegalStateException if a turn breaks the rules.
+	 */
+	public GameModel replay(Lexicon lexicon, int moves) {
+
+		GameModel game = getStartPosition(lexicon);
+		if (playMoves(game, 0, moves) != VALID)
+			throw new IllegalStateException("The log breaks the rules");
+		return game;
+	}
+
+	/**
+	 * Check every turn against the rules and the dictionary.
+	 *
+	 * @return VALID, or the index of the first turn that breaks the rules.
+	 */
+	public int verify(Lexicon lexicon) {
+		return playMoves(getStartPosition(lexicon), 0, mMoveCount);
+	}
+
+	/**
+	 * Verify many logs at once, spread across threads.
+	 *
+	 * @param lexicon - the dictionary. It is shared by the threads, so it
+	 *            must be safe to read from several threads at once, as a
+	 *            Dawg is.
+	 * @return for each log, VALID, MALFORMED or the index of the first turn
+	 *         that breaks the rules.
+	 */
+	public static int[] verifyAll(final List<byte[]> logs,
+			final Lexicon lexicon, int threads) throws InterruptedException,
+			ExecutionException {
+
+		final int[] results = new int[logs.size()];
+		final int step = Math.max(1, threads);
+		ExecutorService executor = Executors.newFixedThreadPool(step);
+
+		try {
+			List<Future<Void>> futures = new ArrayList<Future<Void>>();
+
+			for (int t = 0; t < step; ++t) {
+				final int first = t;
+				futures.add(executor.submit(new Callable<Void>() {
+					@Override
+					public Void call() {
+						for (int i = first; i < results.length; i += step) {
+							results[i] = verify(logs.get(i), lexicon);
+						}
+						return null;
+					}
+				}));
+			}
+
+			for (Future<Void> future : futures) {
+				future.get();
+			}
+			return results;
+
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private static int verify(byte[] bytes, Lexicon lexicon) {
+		GameLog log;
+		try {
+			log = new GameLog(bytes);
+		} catch (IllegalArgumentException e) {
+			return MALFORMED;
+		}
+		return log.verify(lexicon);
+	}
+
+	/*
+	 * Play turns first to last - 1 of the log.
+	 *
+	 * @return VALID, or the index of the first turn that breaks the rules.
+	 */
+	private int playMoves(GameModel game, int first, int last) {
+
+		if (last < first || last > mMoveCount)
+			throw new IndexOutOfBoundsException("Turn " + last + " of "
+					+ mMoveCount);
+
+		Reader in = new Reader(mBytes, getOffset(first), mLength);
+
+		for (int move = first; move < last; ++move) {
+
+			if (game.getGameState() == GameModel.GameState.GAME_OVER)
+				return move;
+
+			final int count = in.readVarint();
+			if (count == 0) {
+				game.passTurn();
+				continue;
+			}
+
+			game.clearWord();
+			for (int i = 0; i < count; ++i) {
+				game.addTile(in.readVarint());
+			}
+			if (game.playTurn() != GameModel.TurnResult.SUCCESS)
+				return move;
+		}
+
+		return VALID;
+	}
+
+	private synchronized int getOffset(int move) {
+
+		if (move < 0 || move > mMoveCount)
+			throw new IndexOutOfBoundsException("Turn " + move + " of "
+					+ mMoveCount);
+
+		if (mOffsets == null) {
+			mOffsets = new int[mMoveCount + 1];
+			mOffsets[0] = mHeaderLength;
+			mIndexedMoves = 0;
+		} else if (mOffsets.length <= mMoveCount) {
+			mOffsets = Arrays.copyOf(mOffsets,
+					Math.max(mMoveCount + 1, 2 * mOffsets.length));
+		}
+
+		// Turns are only ever added, so the offsets found so far still hold
+		if (mIndexedMoves < move) {
+			Reader in = new Reader(mBytes, mOffsets[mIndexedMoves], mLength);
+			while (mIndexedMoves < move) {
+				in.skipVarints(in.readVarint());
+				mOffsets[++mIndexedMoves] = in.getPosition();
+			}
+		}
+
+		return mOffsets[move];
+	}
+
+	void appendMove(int[] tiles, int length) {
+		writeVarint(length);
+		for (int i = 0; i < length; ++i) {
+			writeVarint(tiles[i]);
+		}
+		++mMoveCount;
+	}
+
+	void appendPass() {
+		writeVarint(0);
+		++mMoveCount;
+	}
+
+	/**
+	 * Take the last turn back out of the log.
+	 */
+	void removeLast() {
+		if (mShared) {
+			mBytes = mBytes.clone();
+			mShared = false;
+		}
+		mLength = getOffset(mMoveCount - 1);
+		--mMoveCount;
+		mIndexedMoves = Math.min(mIndexedMoves, mMoveCount);
+	}
+
+	private void writeByte(int b) {
+		if (mLength == mBytes.length)
+			mBytes = Arrays.copyOf(mBytes, 2 * mBytes.length);
+		mBytes[mLength++] = (byte) b;
+	}
+
+	private void writeInt(int i) {
+		for (int shift = 24; shift >= 0; shift -= 8) {
+			writeByte(i >>> shift);
+		}
+	}
+
+	private void writeLong(long l) {
+		writeInt((int) (l >>> 32));
+		writeInt((int) l);
+	}
+
+	private void writeVarint(int value) {
+		while ((value & ~0x7f) != 0) {
+			writeByte((value & 0x7f) | 0x80);
+			value >>>= 7;
+		}
+		writeByte(value);
+	}
+
+	/**
+	 * Rebuilds positions of a game from its log. Every few turns a copy of
+	 * the position is kept, so rebuilding any position only replays the turns
+	 * since the last copy.
+	 */
+	public static final class Replayer {
+
+		private static final int SNAPSHOT_INTERVAL = 16;
+
+		private final GameLog mLog;
+		private final GameModel[] mSnapshots;
+
+		/**
+		 * Replay the whole log once, keeping snapshots.
+		 *
+		 * @throws IllegalStateException if a turn breaks the rules.
+		 */
+		public Replayer(GameLog log, Lexicon lexicon) {
+
+			mLog = new GameLog(log);
+			mSnapshots = new GameModel[mLog.mMoveCount / SNAPSHOT_INTERVAL + 1];
+
+			GameModel game = mLog.getStartPosition(lexicon);
+			mSnapshots[0] = new GameModel(game);
+
+			for (int s = 1; s < mSnapshots.length; ++s) {
+				if (mLog.playMoves(game, (s - 1) * SNAPSHOT_INTERVAL, s
+						* SNAPSHOT_INTERVAL) != VALID)
+					throw new IllegalStateException("The log breaks the rules");
+				mSnapshots[s] = new GameModel(game);
+			}
+		}
+
+		public int getMoveCount() {
+			return mLog.mMoveCount;
+		}
+
+		/**
+		 * @param moves - the number of turns played, from 0 to the number
+		 *            of turns in the log.
+		 * @return a new copy of the game after that many turns.
+		 */
+		public GameModel getPosition(int moves) {
+
+			if (moves < 0 || moves > mLog.mMoveCount)
+				throw new IndexOutOfBoundsException("Turn " + moves + " of "
+						+ mLog.mMoveCount);
+
+			final int snapshot = moves / SNAPSHOT_INTERVAL;
+			GameModel game = new GameModel(mSnapshots[snapshot]);
+			if (mLog.playMoves(game, snapshot * SNAPSHOT_INTERVAL, moves) != VALID)
+				throw new IllegalStateException("The log breaks the rules");
+			return game;
+		}
+	}
+
+	/*
+	 * Reads the values written by the write methods, checking the bounds.
+	 */
+	private static final class Reader {
+
+		private final byte[] mBytes;
+		private final int mEnd;
+		private int mPosition;
+
+		Reader(byte[] bytes, int position, int end) {
+			mBytes = bytes;
+			mPosition = position;
+			mEnd = end;
+		}
+
+		int getPosition() {
+			return mPosition;
+		}
+
+		int readByte() {
+			if (mPosition >= mEnd)
+				throw new IllegalArgumentException("The log is truncated");
+			return mBytes[mPosition++] & 0xff;
+		}
+
+		int readInt() {
+			int i = 0;
+			for (int b = 0; b < 4; ++b) {
+				i = (i << 8) | readByte();
+			}
+			return i;
+		}
+
+		long readLong() {
+			return ((long) readInt() << 32) | (readInt() & 0xffffffffL);
+		}
+
+		int readVarint() {
+			int value = 0;
+			for (int shift = 0; shift < 32; shift += 7) {
+				final int b = readByte();
+				value |= (b & 0x7f) << shift;
+				if ((b & 0x80) == 0) {
+					if (value < 0)
+						break;
+					return value;
+				}
+			}
+			throw new IllegalArgumentException("Invalid number in the log");
+		}
+
+		void skip(int length) {
+			if (length > mEnd - mPosition)
+				throw new IllegalArgumentException("The log is truncated");
+			mPosition += length;
+		}
+
+		void skipVarints(int count) {
+			for (int i = 0; i < count; ++i) {
+				readVarint();
+			}
+		}
+	}
+}
@@ -0,0 +1,2000 @@
+package com.technicalbepari.warofword.model;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Manage the state of a game, including the state of the grid, word, previously
+ * played words, and player scores.
+ *
+ * A GameModel provides the data that is rendered on a Board object, and accepts
+ * user input via a Board object.
+ *
+ * @author Andrew Smith
+ */
+public class GameModel implements Serializable {
+
+	public static final int GRID_COLUMNS = 5;
+	public static final int GRID_ROWS = 5;
+	public static final int GRID_ITEMS = GRID_COLUMNS * GRID_ROWS;
+	public static final int PLAYER1 = 0;
+	public static final int PLAYER2 = 1;
+	public static final int NO_PLAYER = -1;
+	public static final long NO_SEED = Long.MIN_VALUE;
+	private static final long serialVersionUID = 7L;
+
+	// Vowels on a default sized grid. Other grids keep the same proportion.
+	private static final int NUMBER_OF_VOWELS_ON_BOARD = 4;
+	private static final String CONSONANTS = "BCDFHJKLMNPRSTVWXYZQ";
+	private static final String VOWELS = "AEIOU";
+
+	public enum GameState {
+		PLAYER1_TURN, PLAYER2_TURN, GAME_OVER
+	}
+
+	public enum LetterState {
+		UNPLAYED, PLAYER1_OWNED, PLAYER1_SURROUNDED, PLAYER2_OWNED, PLAYER2_SURROUNDED,
+	}
+
+	public enum TurnResult {
+		WORD_NOT_IN_DICTIONARY, WORD_ALREADY_PLAYED, WORD_IS_PREFIX_OF_PREVIOUS_TURN, WORD_LESS_THAN_TWO_LETTERS, SUCCESS,
+	}
+
+	public enum GameResult {
+		PLAYER1_WIN, PLAYER2_WIN, DRAW
+	}
+
+	/**
+	 * Told when playTurn or passTurn hands the turn over, or ends the game.
+	 * It is called on the thread that played the turn.
+	 */
+	public interface TurnListener {
+		void onTurnChanged(GameModel model);
+	}
+
+	private final int mColumns;
+	private final int mRows;
+	private final char[] mGrid;
+
+	// Tile i of the grid is bit i of these bitsets. A tile owned by a player,
+	// surrounded or not, is in that player's set.
+	private final long[] mPlayer1Tiles;
+	private final long[] mPlayer2Tiles;
+	private final long[] mSurroundedTiles;
+	private int mUnplayedTiles;
+
+	// Tiles that may have to change state on the next capture check, even if
+	// the next word doesn't touch them
+	private TileQueue mDirtyTiles;
+	transient private TileQueue mWorklist;
+
+	private static boolean mVerifyCaptures = false;
+
+	// Tile states saved while a move is tried out. Each entry is the tile
+	// index shifted by UNDO_TILE_SHIFT, with the tile's old state in the low
+	// bits.
+	private static final int UNDO_PLAYER1 = 1;
+	private static final int UNDO_PLAYER2 = 2;
+	private static final int UNDO_SURROUNDED = 4;
+	private static final int UNDO_TILE_SHIFT = 3;
+	private static final int UNDO_LOG_CAPACITY = 64;
+	private static final int UNDO_FRAME_CAPACITY = 16;
+
+	// Tile changes saved for taking back a turn. Each entry is the tile
+	// index shifted by TURN_TILE_SHIFT, with the tile's state before the
+	// turn shifted by TURN_BEFORE_SHIFT and its state after in the low bits,
+	// in the same bits as the undo log.
+	private static final int TURN_STATE_MASK = 7;
+	private static final int TURN_BEFORE_SHIFT = 3;
+	private static final int TURN_TILE_SHIFT = 6;
+
+	transient private boolean mRecording;
+	transient private int[] mUndoLog;
+	transient private int mUndoLength;
+	transient private TileQueue mScratchTiles;
+	transient private long[] mTakenTiles;
+
+	// Moves made by applyMove and applyPass, as a stack of frames kept in
+	// parallel arrays so that trying a move out allocates nothing. Each
+	// frame's dirty tiles are saved on mFrameDirtyTiles, from
+	// mFrameDirtyStart. mSearchWords are the words the moves played.
+	transient private int mFrameCount;
+	transient private int[] mFrameUndoLength;
+	transient private int[] mFramePlayer1Points;
+	transient private int[] mFramePlayer2Points;
+	transient private int[] mFrameUnplayedTiles;
+	transient private long[] mFrameHash;
+	transient private GameState[] mFrameGameState;
+	transient private GameResult[] mFrameGameResult;
+	transient private boolean[] mFrameHasPassed;
+	transient private int[] mFrameSearchWords;
+	transient private int[] mFrameDirtyStart;
+	transient private int[] mFrameDirtyTiles;
+	transient private int mFrameDirtyLength;
+	transient private ArrayList<String> mSearchWords;
+
+	// Zobrist hash of the tile states and the played words
+	private long mHash;
+	private static final long HASH_PLAYER2_TURN = mix(-1);
+	private static final long HASH_PASSED = mix(-2);
+	private static final long HASH_GAME_OVER = mix(-3);
+	private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	// Hashes under the symmetries of the grid, made when first asked for and
+	// then kept up to date by the turns
+	transient private SymmetricHash mSymmetricHash;
+
+	// The word being assembled, as tile indexes into the grid. It isn't saved
+	// with the game, because the Board doesn't restore it.
+	transient private int[] mWord;
+	transient private int mWordLength;
+	transient private char[] mWordLetters;
+
+	// What the word being assembled adds to each player's points. They are
+	// updated as tiles are added to and removed from the word, and worked
+	// out again after the tiles or the turn change. A tile only scores once
+	// however often it is in the word, so its uses are counted.
+	transient private int[] mWordTileCounts;
+	transient private int mWordPlayer1Points;
+	transient private int mWordPlayer2Points;
+	transient private boolean mWordPointsValid;
+
+	private GameState mGameState;
+	private GameResult mGameResult;
+	private boolean mHasPassed;
+	private WordTrie mPlayedWords = new WordTrie();
+	// The same words, in a form that can be shared with snapshots
+	private PlayedWords mPlayedWordList = PlayedWords.EMPTY;
+
+	private int mPlayer1Points;
+	private int mPlayer2Points;
+
+	private int mComputerPlayer = NO_PLAYER;
+
+	// The seed the grid was generated from, or NO_SEED
+	private long mSeed = NO_SEED;
+
+	// Every turn played or passed since the start of the game
+	private GameLog mLog;
+
+	// The turns played since the game was created or loaded, for taking
+	// them back. The first mTurnCount have been played; the rest were taken
+	// back and can be played again.
+	transient private ArrayList<Turn> mTurns;
+	transient private int mTurnCount;
+	// While a turn is played, the tiles it changes are recorded in the undo
+	// log from mTurnLogStart
+	transient private int mTurnLogStart;
+	transient private boolean mTurnWasRecording;
+	transient private long[] mTurnTiles;
+	transient private TurnListener mTurnListener;
+
+	// The last snapshot, until the game changes
+	transient private Snapshot mSnapshot;
+
+	transient private Lexicon mLexicon;
+
+	/**
+	 * Start a game on a default sized grid of random letters.
+	 *
+	 * @param lexicon - the dictionary used to check played words.
+	 */
+	public GameModel(Lexicon lexicon) {
+		this(GRID_COLUMNS, GRID_ROWS, lexicon);
+	}
+
+	/**
+	 * Start a game on a grid of random letters.
+	 *
+	 * @param columns - the width of the grid.
+	 * @param rows - the height of the grid.
+	 * @param lexicon - the dictionary used to check played words.
+	 */
+	public GameModel(int columns, int rows, Lexicon lexicon) {
+		this(columns, rows, new Random().nextLong(), lexicon);
+	}
+
+	/**
+	 * Start a game on a grid of random letters picked by a seed. The grid
+	 * isn't checked for playable words; a BoardGenerator does that.
+	 *
+	 * @param seed - the seed. The same seed gives the same grid.
+	 */
+	public GameModel(int columns, int rows, long seed, Lexicon lexicon) {
+
+		this(columns, rows);
+
+		generateRandomLetterGrid(mGrid, new Random(seed),
+				getDefaultVowels(mGrid.length), true);
+		startGame(seed, lexicon);
+	}
+
+	/**
+	 * Start a game on a given grid.
+	 *
+	 * @param seed - the seed the grid was generated from.
+	 */
+	GameModel(int columns, int rows, char[] grid, long seed, Lexicon lexicon) {
+
+		this(columns, rows);
+
+		System.arraycopy(grid, 0, mGrid, 0, mGrid.length);
+		startGame(seed, lexicon);
+	}
+
+	private void startGame(long seed, Lexicon lexicon) {
+
+		mUnplayedTiles = mGrid.length;
+
+		mGameState = GameState.PLAYER1_TURN;
+		mPlayer1Points = 0;
+		mPlayer2Points = 0;
+
+		mSeed = seed;
+		mLexicon = lexicon;
+
+		mLog = new GameLog(this);
+	}
+
+	private GameModel(int columns, int rows) {
+
+		if (columns < 1 || rows < 1 || columns > Integer.MAX_VALUE / rows)
+			throw new IllegalArgumentException("Invalid grid size " + columns
+					+ "x" + rows);
+
+		mColumns = columns;
+		mRows = rows;
+
+		final int size = columns * rows;
+		final int words = (size + 63) >>> 6;
+
+		mGrid = new char[size];
+		mPlayer1Tiles = new long[words];
+		mPlayer2Tiles = new long[words];
+		mSurroundedTiles = new long[words];
+		mDirtyTiles = new TileQueue(size);
+	}
+
+	public static GameModel deserialize(byte[] stream, Lexicon lexicon) {
+		GameModel gm = (GameModel) Serializer.deserialize(stream);
+		if (gm != null)
+			gm.setLexicon(lexicon);
+		return gm;
+	}
+
+	public byte[] serialize() {
+		return Serializer.serialize(this);
+	}
+
+	/**
+	 * Set the dictionary used to check played words.
+	 */
+	public void setLexicon(Lexicon lexicon) {
+		mLexicon = lexicon;
+		mSnapshot = null;
+	}
+
+	/**
+	 * Make an independent copy of a game, for trying out moves. The word
+	 * being assembled isn't copied.
+	 */
+	public GameModel(GameModel other) {
+
+		mColumns = other.mColumns;
+		mRows = other.mRows;
+		mGrid = other.mGrid; // never changes
+		mPlayer1Tiles = other.mPlayer1Tiles.clone();
+		mPlayer2Tiles = other.mPlayer2Tiles.clone();
+		mSurroundedTiles = other.mSurroundedTiles.clone();
+		mUnplayedTiles = other.mUnplayedTiles;
+		mDirtyTiles = new TileQueue(other.mDirtyTiles);
+		mHash = other.mHash;
+
+		mGameState = other.mGameState;
+		mGameResult = other.mGameResult;
+		mHasPassed = other.mHasPassed;
+		mPlayedWords = new WordTrie(other.mPlayedWords);
+		mPlayedWordList = other.mPlayedWordList;
+		mPlayer1Points = other.mPlayer1Points;
+		mPlayer2Points = other.mPlayer2Points;
+		mComputerPlayer = other.mComputerPlayer;
+		mSeed = other.mSeed;
+		mLog = new GameLog(other.mLog);
+
+		mLexicon = other.mLexicon;
+	}
+
+	/**
+	 * Make a game from a snapshot, for example to analyse it on another
+	 * thread. The game goes on from the snapshot independently of the game
+	 * the snapshot was taken from.
+	 */
+	public GameModel(Snapshot snapshot) {
+
+		mColumns = snapshot.mColumns;
+		mRows = snapshot.mRows;
+		mGrid = snapshot.mGrid; // never changes
+		mPlayer1Tiles = snapshot.mPlayer1Tiles.clone();
+		mPlayer2Tiles = snapshot.mPlayer2Tiles.clone();
+		mSurroundedTiles = snapshot.mSurroundedTiles.clone();
+		mUnplayedTiles = snapshot.mUnplayedTiles;
+		mDirtyTiles = new TileQueue(mGrid.length);
+		mDirtyTiles.set(snapshot.mDirtyTiles);
+		mHash = snapshot.mHash;
+
+		mGameState = snapshot.mGameState;
+		mGameResult = snapshot.mGameResult;
+		mHasPassed = snapshot.mHasPassed;
+		mPlayedWordList = snapshot.mPlayedWords;
+		for (String word : mPlayedWordList.toList()) {
+			mPlayedWords.add(word);
+		}
+		mPlayer1Points = snapshot.mPlayer1Points;
+		mPlayer2Points = snapshot.mPlayer2Points;
+		mComputerPlayer = snapshot.mComputerPlayer;
+		mSeed = snapshot.mSeed;
+		mLog = new GameLog(snapshot.mLog);
+
+		mLexicon = snapshot.mLexicon;
+	}
+
+	public GameModel(char[] grid, LetterState[] states, GameState gameState,
+			int p1Points, int p2Points, Lexicon lexicon) {
+		this(GRID_COLUMNS, GRID_ROWS, grid, states, gameState, p1Points,
+				p2Points, lexicon);
+	}
+
+	public GameModel(int columns, int rows, char[] grid, LetterState[] states,
+			GameState gameState, int p1Points, int p2Points, Lexicon lexicon) {
+		this(columns, rows, grid, states, gameState, p1Points, p2Points,
+				NO_SEED, lexicon);
+	}
+
+	GameModel(int columns, int rows, char[] grid, LetterState[] states,
+			GameState gameState, int p1Points, int p2Points, long seed,
+			Lexicon lexicon) {
+
+		this(columns, rows);
+
+		for (int i = 0; i < mGrid.length; ++i) {
+			mGrid[i] = grid[i];
+			setLetterState(i, states[i]);
+			mHash ^= tileKey(i);
+
+			// The states may not be settled, so check every tile next turn
+			mDirtyTiles.add(i);
+		}
+
+		mGameState = gameState;
+		mPlayer1Points = p1Points;
+		mPlayer2Points = p2Points;
+
+		mSeed = seed;
+		mLexicon = lexicon;
+
+		mLog = new GameLog(this);
+	}
+
+	/* DataSource Methods */
+
+	public GameState getGameState() {
+		return mGameState;
+	}
+
+	public int getGridSize() {
+		return mGrid.length;
+	}
+
+	public int getGridHeight() {
+		return mRows;
+	}
+
+	public int getGridWidth() {
+		return mColumns;
+	}
+
+	public char getLetter(int index) {
+		return mGrid[index];
+	}
+
+	public LetterState getLetterState(int index) {
+
+		final boolean surrounded = isSet(mSurroundedTiles, index);
+
+		if (isSet(mPlayer1Tiles, index))
+			return surrounded ? LetterState.PLAYER1_SURROUNDED
+					: LetterState.PLAYER1_OWNED;
+
+		if (isSet(mPlayer2Tiles, index))
+			return surrounded ? LetterState.PLAYER2_SURROUNDED
+					: LetterState.PLAYER2_OWNED;
+
+		return LetterState.UNPLAYED;
+	}
+
+	/**
+	 * @return the number of tiles neither player has taken. The game ends
+	 *         when there are none.
+	 */
+	public int getUnplayedTileCount() {
+		return mUnplayedTiles;
+	}
+
+	/**
+	 * @return the player's points, including the letters of the word being
+	 *         assembled that the player would take. Captures the word would
+	 *         make aren't counted.
+	 */
+	public int getPoints(int player) {
+
+		if (!mWordPointsValid)
+			updateWordPoints();
+
+		return (player == PLAYER1) ? mPlayer1Points + mWordPlayer1Points
+				: mPlayer2Points + mWordPlayer2Points;
+
+	}
+
+	/*
+	 * Called whenever the tiles, the played words or the turn change.
+	 */
+	private void stateChanged() {
+		mWordPointsValid = false;
+		mSnapshot = null;
+	}
+
+	/*
+	 * Work out what the word being assembled adds to the points from scratch.
+	 */
+	private void updateWordPoints() {
+
+		mWordPlayer1Points = 0;
+		mWordPlayer2Points = 0;
+		mWordPointsValid = true;
+
+		if (mWordTileCounts == null)
+			return;
+
+		for (int tile = 0; tile < mWordTileCounts.length; ++tile) {
+			if (mWordTileCounts[tile] > 0)
+				addWordPoints(tile, 1);
+		}
+	}
+
+	/*
+	 * Add a letter of the word to the points, or with a sign of -1 take it
+	 * away again. A letter that isn't surrounded is taken by the player.
+	 */
+	private void addWordPoints(int tile, int sign) {
+
+		if (isSet(mSurroundedTiles, tile))
+			return;
+
+		if (mGameState == GameState.PLAYER1_TURN) {
+			if (!isSet(mPlayer1Tiles, tile)) {
+				mWordPlayer1Points += sign;
+				if (isSet(mPlayer2Tiles, tile))
+					mWordPlayer2Points -= sign;
+			}
+		} else if (mGameState == GameState.PLAYER2_TURN) {
+			if (!isSet(mPlayer2Tiles, tile)) {
+				mWordPlayer2Points += sign;
+				if (isSet(mPlayer1Tiles, tile))
+					mWordPlayer1Points -= sign;
+			}
+		}
+	}
+
+	/**
+	 * @return the seed the grid was generated from, or NO_SEED if the grid
+	 *         was given to the constructor.
+	 */
+	public long getSeed() {
+		return mSeed;
+	}
+
+	/**
+	 * Take a snapshot of the game, that can be read from any thread while
+	 * the game goes on. The word being assembled isn't included.
+	 *
+	 * The snapshot shares the grid, the played words and the log with the
+	 * game; only the tile states are copied, a bit per tile. Until the game
+	 * changes, the same snapshot is returned.
+	 *
+	 * @throws IllegalStateException while moves made by applyMove haven't
+	 *             been undone.
+	 */
+	public Snapshot getSnapshot() {
+
+		if (mFrameCount > 0)
+			throw new IllegalStateException("Moves are being tried out");
+
+		if (mSnapshot == null)
+			mSnapshot = new Snapshot(this);
+		return mSnapshot;
+	}
+
+	/**
+	 * @return the log of the turns played so far. It grows as the game goes
+	 *         on.
+	 */
+	public GameLog getLog() {
+		return mLog;
+	}
+
+	public GameResult getResult() {
+		return mGameResult;
+	}
+
+	/**
+	 * @return the player that the app plays for, or NO_PLAYER if both
+	 *         players are people.
+	 */
+	public int getComputerPlayer() {
+		return mComputerPlayer;
+	}
+
+	public void setComputerPlayer(int player) {
+		mComputerPlayer = player;
+		mSnapshot = null;
+	}
+
+	public boolean isComputerTurn() {
+		return (mComputerPlayer == PLAYER1 && mGameState == GameState.PLAYER1_TURN)
+				|| (mComputerPlayer == PLAYER2 && mGameState == GameState.PLAYER2_TURN);
+	}
+
+	public void setTurnListener(TurnListener listener) {
+		mTurnListener = listener;
+	}
+
+	private void notifyTurnChanged() {
+		if (mTurnListener != null)
+			mTurnListener.onTurnChanged(this);
+	}
+
+	public String getWord() {
+
+		if (mWordLength == 0)
+			return "";
+
+		decodeWordFromTileIndexes();
+		return new String(mWordLetters, 0, mWordLength);
+	}
+
+	/* Delegate Methods */
+
+	public TurnResult playTurn() {
+
+		if (mWordLength == 0)
+			return TurnResult.WORD_LESS_THAN_TWO_LETTERS;
+
+		decodeWordFromTileIndexes();
+
+		TurnResult ret = applyRules(mWordLetters, mWordLength);
+
+		if (ret == TurnResult.SUCCESS) {
+			final Turn turn = saveTurnStart();
+			turn.mWord = Arrays.copyOf(mWord, mWordLength);
+			turn.mLetters = Arrays.copyOf(mWordLetters, mWordLength);
+			turn.mNodeCount = mPlayedWords.getNodeCount();
+
+			mHasPassed = false;
+
+			mPlayedWords.add(mWordLetters, 0, mWordLength);
+			mPlayedWordList = mPlayedWordList.add(new String(mWordLetters, 0,
+					mWordLength));
+			mHash ^= wordKey(mWordLetters, mWordLength);
+
+			mLog.appendMove(mWord, mWordLength);
+
+			// Assign new states to played word
+			takeTiles(mWord, mWordLength, getCurrentPlayer());
+
+			clearWord();
+
+			makeCaptures();
+
+			finishTurn();
+
+			saveTurnEnd(turn);
+
+			notifyTurnChanged();
+		}
+
+		return ret;
+
+	}
+
+	private void finishTurn() {
+
+		stateChanged();
+
+		// check if game is over
+		boolean gameIsOver = mUnplayedTiles == 0;
+
+		if (gameIsOver) {
+			endGame();
+		} else if (mGameState == GameState.PLAYER1_TURN) {
+			mGameState = GameState.PLAYER2_TURN;
+		} else if (mGameState == GameState.PLAYER2_TURN) {
+			mGameState = GameState.PLAYER1_TURN;
+		}
+	}
+
+	private int getCurrentPlayer() {
+		return (mGameState == GameState.PLAYER1_TURN) ? PLAYER1 : PLAYER2;
+	}
+
+	public void passTurn() {
+		if (mGameState == GameState.GAME_OVER) {
+			pass();
+		} else {
+			final Turn turn = saveTurnStart();
+			mLog.appendPass();
+			pass();
+			saveTurnEnd(turn);
+		}
+		notifyTurnChanged();
+	}
+
+	/**
+	 * @return true if there is a turn to take back. Turns played before the
+	 *         game was loaded can't be taken back.
+	 */
+	public boolean canUndo() {
+		return mTurnCount > 0 && mFrameCount == 0;
+	}
+
+	/**
+	 * @return true if a turn that was taken back can be played again.
+	 */
+	public boolean canRedo() {
+		return mTurns != null && mTurnCount < mTurns.size()
+				&& mFrameCount == 0;
+	}
+
+	/**
+	 * Take back the last turn played or passed. The word being assembled is
+	 * kept. This takes time in proportion to what the turn changed, and
+	 * doesn't allocate.
+	 *
+	 * @throws IllegalStateException if there is no turn to take back.
+	 */
+	public void undoTurn() {
+
+		if (!canUndo())
+			throw new IllegalStateException("No turn to take back");
+
+		final Turn turn = mTurns.get(--mTurnCount);
+
+		for (int i = turn.mTiles.length - 1; i >= 0; --i) {
+			final int entry = turn.mTiles[i];
+			setTileBits(entry >>> TURN_TILE_SHIFT, entry >>> TURN_BEFORE_SHIFT
+					& TURN_STATE_MASK);
+		}
+		mDirtyTiles.set(turn.mDirtyBefore);
+		updateSymmetricHash(turn);
+
+		if (turn.mWord != null) {
+			mPlayedWords.removeLast(turn.mLetters, 0, turn.mLetters.length,
+					turn.mNodeCount);
+		}
+		mLog.removeLast();
+
+		mPlayer1Points = turn.mPlayer1PointsBefore;
+		mPlayer2Points = turn.mPlayer2PointsBefore;
+		mUnplayedTiles = turn.mUnplayedTilesBefore;
+		mHash = turn.mHashBefore;
+		mGameState = turn.mGameStateBefore;
+		mGameResult = turn.mGameResultBefore;
+		mHasPassed = turn.mHasPassedBefore;
+		mPlayedWordList = turn.mPlayedWordsBefore;
+		stateChanged();
+
+		notifyTurnChanged();
+	}
+
+	/**
+	 * Play the last turn taken back again. Like undoTurn, this doesn't
+	 * allocate.
+	 *
+	 * @throws IllegalStateException if there is no turn to play again.
+	 */
+	public void redoTurn() {
+
+		if (!canRedo())
+			throw new IllegalStateException("No turn to play again");
+
+		final Turn turn = mTurns.get(mTurnCount++);
+
+		for (int i = 0; i < turn.mTiles.length; ++i) {
+			final int entry = turn.mTiles[i];
+			setTileBits(entry >>> TURN_TILE_SHIFT, entry & TURN_STATE_MASK);
+		}
+		mDirtyTiles.set(turn.mDirtyAfter);
+		updateSymmetricHash(turn);
+
+		if (turn.mWord != null) {
+			mPlayedWords.add(turn.mLetters, 0, turn.mLetters.length);
+			mLog.appendMove(turn.mWord, turn.mWord.length);
+		} else {
+			mLog.appendPass();
+		}
+
+		mPlayer1Points = turn.mPlayer1PointsAfter;
+		mPlayer2Points = turn.mPlayer2PointsAfter;
+		mUnplayedTiles = turn.mUnplayedTilesAfter;
+		mHash = turn.mHashAfter;
+		mGameState = turn.mGameStateAfter;
+		mGameResult = turn.mGameResultAfter;
+		mHasPassed = turn.mHasPassedAfter;
+		mPlayedWordList = turn.mPlayedWordsAfter;
+		stateChanged();
+
+		notifyTurnChanged();
+	}
+
+	/*
+	 * Save the state that a turn is about to change, and start recording the
+	 * tiles it changes.
+	 */
+	private Turn saveTurnStart() {
+
+		if (mUndoLog == null)
+			mUndoLog = new int[UNDO_LOG_CAPACITY];
+		mTurnWasRecording = mRecording;
+		if (!mRecording)
+			mUndoLength = 0;
+		mTurnLogStart = mUndoLength;
+		mRecording = true;
+
+		Turn turn = new Turn();
+		turn.mDirtyBefore = mDirtyTiles.toArray();
+		turn.mPlayer1PointsBefore = mPlayer1Points;
+		turn.mPlayer2PointsBefore = mPlayer2Points;
+		turn.mUnplayedTilesBefore = mUnplayedTiles;
+		turn.mHashBefore = mHash;
+		turn.mGameStateBefore = mGameState;
+		turn.mGameResultBefore = mGameResult;
+		turn.mHasPassedBefore = mHasPassed;
+		turn.mPlayedWordsBefore = mPlayedWordList;
+		return turn;
+	}
+
+	/*
+	 * Save what a turn changed, and add it to the turns that can be taken
+	 * back. Any turns that were taken back can no longer be played again.
+	 * This takes time in proportion to the tiles the turn changed.
+	 */
+	private void saveTurnEnd(Turn turn) {
+
+		if (mTurnTiles == null)
+			mTurnTiles = new long[mPlayer1Tiles.length];
+
+		// A tile may be in the log more than once. Its first entry has its
+		// state before the turn, and its bit is set until that entry is
+		// taken.
+		int changed = 0;
+		for (int i = mTurnLogStart; i < mUndoLength; ++i) {
+			final int tile = mUndoLog[i] >>> UNDO_TILE_SHIFT;
+			if (!isSet(mTurnTiles, tile)) {
+				setBit(mTurnTiles, tile);
+				if ((mUndoLog[i] & TURN_STATE_MASK) != getTileBits(tile))
+					++changed;
+			}
+		}
+
+		turn.mTiles = new int[changed];
+		int t = 0;
+		for (int i = mTurnLogStart; i < mUndoLength; ++i) {
+			final int tile = mUndoLog[i] >>> UNDO_TILE_SHIFT;
+			if (isSet(mTurnTiles, tile)) {
+				clearBit(mTurnTiles, tile);
+				final int before = mUndoLog[i] & TURN_STATE_MASK;
+				final int after = getTileBits(tile);
+				if (before != after) {
+					turn.mTiles[t++] = tile << TURN_TILE_SHIFT
+							| before << TURN_BEFORE_SHIFT | after;
+				}
+			}
+		}
+
+		mUndoLength = mTurnLogStart;
+		mRecording = mTurnWasRecording;
+
+		updateSymmetricHash(turn);
+
+		turn.mDirtyAfter = mDirtyTiles.toArray();
+		turn.mPlayer1PointsAfter = mPlayer1Points;
+		turn.mPlayer2PointsAfter = mPlayer2Points;
+		turn.mUnplayedTilesAfter = mUnplayedTiles;
+		turn.mHashAfter = mHash;
+		turn.mGameStateAfter = mGameState;
+		turn.mGameResultAfter = mGameResult;
+		turn.mHasPassedAfter = mHasPassed;
+		turn.mPlayedWordsAfter = mPlayedWordList;
+
+		if (mTurns == null)
+			mTurns = new ArrayList<Turn>();
+		while (mTurns.size() > mTurnCount) {
+			mTurns.remove(mTurns.size() - 1);
+		}
+		mTurns.add(turn);
+		++mTurnCount;
+	}
+
+	/*
+	 * Take the tiles and the word of a turn out of the symmetric hashes and
+	 * put them back in the other state. Playing a turn, taking it back and
+	 * playing it again all swap the same states, so this does for each.
+	 */
+	private void updateSymmetricHash(Turn turn) {
+
+		if (mSymmetricHash == null)
+			return;
+
+		for (int i = 0; i < turn.mTiles.length; ++i) {
+			final int entry = turn.mTiles[i];
+			final int tile = entry >>> TURN_TILE_SHIFT;
+			mSymmetricHash.toggleTile(tile, toLetterState(entry
+					>>> TURN_BEFORE_SHIFT & TURN_STATE_MASK));
+			mSymmetricHash.toggleTile(tile, toLetterState(entry
+					& TURN_STATE_MASK));
+		}
+
+		if (turn.mLetters != null)
+			mSymmetricHash.toggleWord(wordKey(turn.mLetters,
+					turn.mLetters.length));
+	}
+
+	private static LetterState toLetterState(int bits) {
+
+		final boolean surrounded = (bits & UNDO_SURROUNDED) != 0;
+
+		if ((bits & UNDO_PLAYER1) != 0)
+			return surrounded ? LetterState.PLAYER1_SURROUNDED
+					: LetterState.PLAYER1_OWNED;
+
+		if ((bits & UNDO_PLAYER2) != 0)
+			return surrounded ? LetterState.PLAYER2_SURROUNDED
+					: LetterState.PLAYER2_OWNED;
+
+		return LetterState.UNPLAYED;
+	}
+
+	/*
+	 * @return the state of a tile as UNDO_PLAYER1, UNDO_PLAYER2 and
+	 *         UNDO_SURROUNDED bits.
+	 */
+	private int getTileBits(int tile) {
+		int bits = 0;
+		if (isSet(mPlayer1Tiles, tile))
+			bits |= UNDO_PLAYER1;
+		if (isSet(mPlayer2Tiles, tile))
+			bits |= UNDO_PLAYER2;
+		if (isSet(mSurroundedTiles, tile))
+			bits |= UNDO_SURROUNDED;
+		return bits;
+	}
+
+	private void setTileBits(int tile, int bits) {
+
+		clearBit(mPlayer1Tiles, tile);
+		clearBit(mPlayer2Tiles, tile);
+		clearBit(mSurroundedTiles, tile);
+
+		if ((bits & UNDO_PLAYER1) != 0)
+			setBit(mPlayer1Tiles, tile);
+		if ((bits & UNDO_PLAYER2) != 0)
+			setBit(mPlayer2Tiles, tile);
+		if ((bits & UNDO_SURROUNDED) != 0)
+			setBit(mSurroundedTiles, tile);
+	}
+
+	private void pass() {
+		stateChanged();
+		if (mHasPassed) {
+			endGame();
+		} else if (mGameState == GameState.PLAYER1_TURN) {
+			mGameState = GameState.PLAYER2_TURN;
+		} else if (mGameState == GameState.PLAYER2_TURN) {
+			mGameState = GameState.PLAYER1_TURN;
+		}
+		mHasPassed = true;
+	}
+
+	private void endGame() {
+		mGameState = GameState.GAME_OVER;
+
+		if (mPlayer1Points > mPlayer2Points) {
+			mGameResult = GameResult.PLAYER1_WIN;
+		} else if (mPlayer1Points < mPlayer2Points) {
+			mGameResult = GameResult.PLAYER2_WIN;
+		} else {
+			mGameResult = GameResult.DRAW;
+		}
+	}
+
+	public void setWord(List<Integer> letters) {
+
+		clearWord();
+
+		if (letters == null)
+			return;
+
+		ensureWordCapacity(letters.size());
+		for (int i : letters) {
+			addTile(i);
+		}
+	}
+
+	/**
+	 * Set the word being assembled.
+	 *
+	 * @param tiles - the tile indexes of the letters of the word, in order.
+	 *            The indexes are copied, so the array may be reused.
+	 * @param length - the number of letters in the word.
+	 */
+	public void setWord(int[] tiles, int length) {
+
+		clearWord();
+
+		if (tiles == null)
+			return;
+
+		ensureWordCapacity(length);
+		for (int i = 0; i < length; ++i) {
+			addTile(tiles[i]);
+		}
+	}
+
+	public int getWordLength() {
+		return mWordLength;
+	}
+
+	/**
+	 * Add a letter to the end of the word being assembled.
+	 *
+	 * @param tile - the tile index of the letter.
+	 */
+	public void addTile(int tile) {
+		insertTile(mWordLength, tile);
+	}
+
+	/**
+	 * Add a letter to the word being assembled.
+	 *
+	 * @param position - where the letter goes in the word, from 0 to the
+	 *            length of the word.
+	 * @param tile - the tile index of the letter.
+	 */
+	public void insertTile(int position, int tile) {
+
+		if (position < 0 || position > mWordLength)
+			throw new IndexOutOfBoundsException("Position " + position
+					+ " in a word of " + mWordLength + " letters");
+
+		ensureWordCapacity(mWordLength + 1);
+		System.arraycopy(mWord, position, mWord, position + 1, mWordLength
+				- position);
+		mWord[position] = tile;
+		++mWordLength;
+
+		if (mWordTileCounts[tile]++ == 0 && mWordPointsValid)
+			addWordPoints(tile, 1);
+	}
+
+	/**
+	 * Take a letter out of the word being assembled.
+	 *
+	 * @param position - the position of the letter in the word.
+	 * @return the tile index of the letter.
+	 */
+	public int removeTile(int position) {
+
+		if (position < 0 || position >= mWordLength)
+			throw new IndexOutOfBoundsException("Position " + position
+					+ " in a word of " + mWordLength + " letters");
+
+		final int tile = mWord[position];
+		--mWordLength;
+		System.arraycopy(mWord, position + 1, mWord, position, mWordLength
+				- position);
+
+		if (--mWordTileCounts[tile] == 0 && mWordPointsValid)
+			addWordPoints(tile, -1);
+
+		return tile;
+	}
+
+	/**
+	 * Move a letter of the word being assembled to another position. The
+	 * points don't change.
+	 *
+	 * @param from - the position of the letter in the word.
+	 * @param to - the position of the letter once moved.
+	 */
+	public void moveTile(int from, int to) {
+
+		if (from < 0 || from >= mWordLength || to < 0 || to >= mWordLength)
+			throw new IndexOutOfBoundsException("Positions " + from + ", "
+					+ to + " in a word of " + mWordLength + " letters");
+
+		final int tile = mWord[from];
+		if (from < to) {
+			System.arraycopy(mWord, from + 1, mWord, from, to - from);
+		} else {
+			System.arraycopy(mWord, to, mWord, to + 1, from - to);
+		}
+		mWord[to] = tile;
+	}
+
+	/**
+	 * Take every letter out of the word being assembled.
+	 */
+	public void clearWord() {
+
+		for (int i = 0; i < mWordLength; ++i) {
+			--mWordTileCounts[mWord[i]];
+		}
+		mWordLength = 0;
+		mWordPlayer1Points = 0;
+		mWordPlayer2Points = 0;
+	}
+
+	/**
+	 * Check that a word doesn't break the rules about previously played
+	 * words. The dictionary isn't checked.
+	 */
+	boolean isWordPlayable(char[] word, int offset, int length) {
+
+		if (length < 2 || mPlayedWords.contains(word, offset, length)
+				|| mPlayedWords.containsPrefix(word, offset, length))
+			return false;
+
+		if (mSearchWords != null) {
+			for (int i = 0; i < mSearchWords.size(); ++i) {
+				if (isPrefix(word, offset, length, mSearchWords.get(i)))
+					return false;
+			}
+		}
+
+		return true;
+	}
+
+	private static boolean isPrefix(char[] word, int offset, int length,
+			String of) {
+
+		if (length > of.length())
+			return false;
+
+		for (int i = 0; i < length; ++i) {
+			if (word[offset + i] != of.charAt(i))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Play a move without checking it, in a way that can be taken back with
+	 * undoMove. The move's word is remembered for the played words rules,
+	 * but isn't added to the played words, so only moves made by applyMove
+	 * can be undone.
+	 */
+	void applyMove(Move move) {
+
+		pushUndoFrame();
+
+		mHasPassed = false;
+
+		final String word = move.getWord();
+		mSearchWords.add(word);
+		mHash ^= wordKey(word);
+
+		takeTiles(move.getTiles(), move.getLength(), getCurrentPlayer());
+		makeCaptures();
+		finishTurn();
+	}
+
+	/**
+	 * Pass in a way that can be taken back with undoMove.
+	 */
+	void applyPass() {
+		pushUndoFrame();
+		pass();
+	}
+
+	/**
+	 * Take back the last move made by applyMove or applyPass.
+	 */
+	void undoMove() {
+
+		final int frame = --mFrameCount;
+
+		rewindUndoLog(mFrameUndoLength[frame]);
+		mPlayer1Points = mFramePlayer1Points[frame];
+		mPlayer2Points = mFramePlayer2Points[frame];
+		mUnplayedTiles = mFrameUnplayedTiles[frame];
+		final int dirtyStart = mFrameDirtyStart[frame];
+		mDirtyTiles.set(mFrameDirtyTiles, dirtyStart, mFrameDirtyLength
+				- dirtyStart);
+		mFrameDirtyLength = dirtyStart;
+		mHash = mFrameHash[frame];
+		mGameState = mFrameGameState[frame];
+		mGameResult = mFrameGameResult[frame];
+		mHasPassed = mFrameHasPassed[frame];
+		stateChanged();
+
+		while (mSearchWords.size() > mFrameSearchWords[frame]) {
+			mSearchWords.remove(mSearchWords.size() - 1);
+		}
+
+		if (mFrameCount == 0)
+			mRecording = false;
+	}
+
+	private void pushUndoFrame() {
+
+		if (mFrameUndoLength == null) {
+			allocateUndoFrames();
+		} else if (mFrameCount == mFrameUndoLength.length) {
+			growUndoFrames();
+		}
+		if (mUndoLog == null)
+			mUndoLog = new int[UNDO_LOG_CAPACITY];
+		if (mFrameCount == 0) {
+			mUndoLength = 0;
+			mFrameDirtyLength = 0;
+		}
+
+		final int dirty = mDirtyTiles.size();
+		if (mFrameDirtyLength + dirty > mFrameDirtyTiles.length) {
+			mFrameDirtyTiles = Arrays.copyOf(mFrameDirtyTiles,
+					Math.max(2 * mFrameDirtyTiles.length, mFrameDirtyLength
+							+ dirty));
+		}
+
+		final int frame = mFrameCount++;
+		mFrameUndoLength[frame] = mUndoLength;
+		mFramePlayer1Points[frame] = mPlayer1Points;
+		mFramePlayer2Points[frame] = mPlayer2Points;
+		mFrameUnplayedTiles[frame] = mUnplayedTiles;
+		mFrameDirtyStart[frame] = mFrameDirtyLength;
+		mFrameDirtyLength += mDirtyTiles.copyTo(mFrameDirtyTiles,
+				mFrameDirtyLength);
+		mFrameHash[frame] = mHash;
+		mFrameGameState[frame] = mGameState;
+		mFrameGameResult[frame] = mGameResult;
+		mFrameHasPassed[frame] = mHasPassed;
+		mFrameSearchWords[frame] = mSearchWords.size();
+
+		mRecording = true;
+	}
+
+	private void allocateUndoFrames() {
+		final int capacity = UNDO_FRAME_CAPACITY;
+		mFrameUndoLength = new int[capacity];
+		mFramePlayer1Points = new int[capacity];
+		mFramePlayer2Points = new int[capacity];
+		mFrameUnplayedTiles = new int[capacity];
+		mFrameHash = new long[capacity];
+		mFrameGameState = new GameState[capacity];
+		mFrameGameResult = new GameResult[capacity];
+		mFrameHasPassed = new boolean[capacity];
+		mFrameSearchWords = new int[capacity];
+		mFrameDirtyStart = new int[capacity];
+		mFrameDirtyTiles = new int[UNDO_LOG_CAPACITY];
+		mSearchWords = new ArrayList<String>();
+	}
+
+	/*
+	 * Double the number of undo frames there is room for, keeping the
+	 * frames there are.
+	 */
+	private void growUndoFrames() {
+		final int capacity = 2 * mFrameUndoLength.length;
+		mFrameUndoLength = Arrays.copyOf(mFrameUndoLength, capacity);
+		mFramePlayer1Points = Arrays.copyOf(mFramePlayer1Points, capacity);
+		mFramePlayer2Points = Arrays.copyOf(mFramePlayer2Points, capacity);
+		mFrameUnplayedTiles = Arrays.copyOf(mFrameUnplayedTiles, capacity);
+		mFrameHash = Arrays.copyOf(mFrameHash, capacity);
+		mFrameGameState = Arrays.copyOf(mFrameGameState, capacity);
+		mFrameGameResult = Arrays.copyOf(mFrameGameResult, capacity);
+		mFrameHasPassed = Arrays.copyOf(mFrameHasPassed, capacity);
+		mFrameSearchWords = Arrays.copyOf(mFrameSearchWords, capacity);
+		mFrameDirtyStart = Arrays.copyOf(mFrameDirtyStart, capacity);
+	}
+
+	/**
+	 * A hash of the position: the tile states, the played words, whose turn
+	 * it is and whether the last turn was a pass. Equal positions always have
+	 * equal hashes. It is kept up to date as tiles change, so reading it
+	 * takes constant time. The letters aren't hashed, so it is only for
+	 * comparing positions of the same grid.
+	 */
+	public long getStateHash() {
+		long hash = mHash;
+		if (mGameState == GameState.PLAYER2_TURN)
+			hash ^= HASH_PLAYER2_TURN;
+		else if (mGameState == GameState.GAME_OVER)
+			hash ^= HASH_GAME_OVER;
+		if (mHasPassed)
+			hash ^= HASH_PASSED;
+		return hash;
+	}
+
+	/**
+	 * A hash of the position that is the same for every position that only
+	 * differs by turning or mirroring the grid, letters and all, or by
+	 * swapping the players. Unlike getStateHash, the letters and the size of
+	 * the grid are hashed, so positions of different games can be compared.
+	 *
+	 * The first call takes time in proportion to the grid size. After that,
+	 * turns keep it up to date in time in proportion to the tiles they
+	 * change.
+	 *
+	 * @throws IllegalStateException while moves made by applyMove haven't
+	 *             been undone.
+	 */
+	public long getCanonicalHash() {
+
+		if (mFrameCount > 0)
+			throw new IllegalStateException("Moves are being tried out");
+
+		if (mSymmetricHash == null) {
+			mSymmetricHash = new SymmetricHash(mColumns, mRows, mGrid);
+			for (int tile = 0; tile < mGrid.length; ++tile) {
+				mSymmetricHash.toggleTile(tile, getLetterState(tile));
+			}
+			for (String word : mPlayedWordList.toList()) {
+				mSymmetricHash.toggleWord(wordKey(word));
+			}
+		}
+
+		return mSymmetricHash.getCanonicalHash(mGameState, mHasPassed);
+	}
+
+	/**
+	 * Work out what the player whose turn it is would gain by playing a
+	 * word, including any captures, without changing the game. The word's
+	 * letters aren't checked.
+	 *
+	 * @param tiles - the tile indexes of the word.
+	 * @param length - the number of tiles in the word.
+	 * @return the player's points after the move less the opponent's, minus
+	 *         the same difference before the move.
+	 */
+	int scoreWord(int[] tiles, int length) {
+
+		if (mGameState == GameState.GAME_OVER)
+			throw new IllegalStateException("The game is over");
+
+		final int player = getCurrentPlayer();
+		final long[] owned = (player == PLAYER1) ? mPlayer1Tiles
+				: mPlayer2Tiles;
+
+		// If every tile is settled, and nothing can be captured, the tiles
+		// can be counted without playing the word out
+		if (mDirtyTiles.isEmpty()) {
+
+			if (mTakenTiles == null)
+				mTakenTiles = new long[owned.length];
+
+			int gain = 0;
+			for (int w = 0; w < length; ++w) {
+				final int tile = tiles[w];
+				if (isSet(mSurroundedTiles, tile) || isSet(owned, tile)
+						|| isSet(mTakenTiles, tile))
+					continue;
+				setBit(mTakenTiles, tile);
+				gain += (isSet(mPlayer1Tiles, tile) || isSet(mPlayer2Tiles, tile)) ? 2
+						: 1;
+			}
+
+			final boolean mayCapture = mayCapture(tiles, length, owned);
+
+			for (int w = 0; w < length; ++w) {
+				clearBit(mTakenTiles, tiles[w]);
+			}
+
+			if (!mayCapture)
+				return gain;
+		}
+
+		final int p1Points = mPlayer1Points;
+		final int p2Points = mPlayer2Points;
+		final int unplayedTiles = mUnplayedTiles;
+		final long hash = mHash;
+		final boolean recording = mRecording;
+
+		if (mUndoLog == null)
+			mUndoLog = new int[UNDO_LOG_CAPACITY];
+		if (mScratchTiles == null)
+			mScratchTiles = new TileQueue(mGrid.length);
+		if (!recording)
+			mUndoLength = 0;
+		final int undoLength = mUndoLength;
+		mRecording = true;
+
+		takeTiles(tiles, length, player);
+		scanCaptures(mScratchTiles);
+
+		final int gain = (mPlayer1Points - p1Points) - (mPlayer2Points - p2Points);
+
+		rewindUndoLog(undoLength);
+		mRecording = recording;
+		mScratchTiles.clear();
+		mPlayer1Points = p1Points;
+		mPlayer2Points = p2Points;
+		mUnplayedTiles = unplayedTiles;
+		mHash = hash;
+
+		return (player == PLAYER1) ? gain : -gain;
+	}
+
+	/* Internal */
+
+	/*
+	 * Check whether taking the tiles marked in mTakenTiles could surround a
+	 * tile that the player doesn't own. Any capture starts next to a tile
+	 * that changes owner.
+	 */
+	private boolean mayCapture(int[] tiles, int length, long[] owned) {
+
+		for (int w = 0; w < length; ++w) {
+			final int tile = tiles[w];
+
+			if (!isSet(mTakenTiles, tile))
+				continue;
+
+			final int column = tile % mColumns;
+
+			if (column > 0 && isSurroundedAfter(tile - 1, owned))
+				return true;
+			if (column < mColumns - 1 && isSurroundedAfter(tile + 1, owned))
+				return true;
+			if (tile >= mColumns && isSurroundedAfter(tile - mColumns, owned))
+				return true;
+			if (tile + mColumns < mGrid.length
+					&& isSurroundedAfter(tile + mColumns, owned))
+				return true;
+		}
+
+		return false;
+	}
+
+	/*
+	 * Check whether a tile that the player doesn't own would be surrounded by
+	 * the player once the tiles marked in mTakenTiles are taken.
+	 */
+	private boolean isSurroundedAfter(int tile, long[] owned) {
+
+		if (isSet(owned, tile) || isSet(mTakenTiles, tile))
+			return false;
+
+		final int column = tile % mColumns;
+
+		return (column == 0 || isSet(owned, tile - 1) || isSet(mTakenTiles,
+				tile - 1))
+				&& (column == mColumns - 1 || isSet(owned, tile + 1) || isSet(
+						mTakenTiles, tile + 1))
+				&& (tile < mColumns || isSet(owned, tile - mColumns) || isSet(
+						mTakenTiles, tile - mColumns))
+				&& (tile + mColumns >= mGrid.length
+						|| isSet(owned, tile + mColumns) || isSet(mTakenTiles,
+						tile + mColumns));
+	}
+
+	private void ensureWordCapacity(int length) {
+		if (mWord == null || mWord.length < length) {
+			final int capacity = Math.max(length, GRID_ITEMS);
+			final int[] word = new int[capacity];
+			if (mWord != null)
+				System.arraycopy(mWord, 0, word, 0, mWordLength);
+			mWord = word;
+			mWordLetters = new char[capacity];
+		}
+		if (mWordTileCounts == null)
+			mWordTileCounts = new int[mGrid.length];
+	}
+
+	/*
+	 * Fill mWordLetters with the letters of the tiles in mWord.
+	 */
+	private void decodeWordFromTileIndexes() {
+		for (int i = 0; i < mWordLength; ++i) {
+			mWordLetters[i] = mGrid[mWord[i]];
+		}
+	}
+
+	/**
+	 * @return the number of vowels placed on a grid of the given size.
+	 */
+	static int getDefaultVowels(int size) {
+		return Math.min(size,
+				Math.max(1, size * NUMBER_OF_VOWELS_ON_BOARD / GRID_ITEMS));
+	}
+
+	/**
+	 * Fill an empty grid with random letters.
+	 *
+	 * @param grid - the grid, with every entry 0.
+	 * @param r - the source of randomness.
+	 * @param vowels - the number of tiles to make vowels.
+	 * @param qNeedsU - only place Q if a U was placed.
+	 */
+	static void generateRandomLetterGrid(char[] grid, Random r, int vowels,
+			boolean qNeedsU) {
+
+		final int size = grid.length;
+		vowels = Math.min(size, vowels);
+
+		boolean hasU = false;
+		int placed = 0;
+		while (placed < vowels) {
+			int index = r.nextInt(size);
+			if (grid[index] == 0)
+			{
+				++placed;
+				// pick a random vowel
+				int pos = r.nextInt(VOWELS.length());
+				char c = VOWELS.charAt(pos);
+				grid[index] = c;
+				hasU = hasU || (c == 'U');
+			}
+		}
+
+		for (int i = 0; i < size; ++i) {
+			if (grid[i] == 0) {
+				// pick a random consonant, but skip Q unless we have a U
+				int consonantChoices = CONSONANTS.length()
+						- (hasU || !qNeedsU ? 0 : 1);
+				int pos = r.nextInt(consonantChoices);
+				char c = CONSONANTS.charAt(pos);
+				grid[i] = c;
+			}
+		}
+
+	}
+
+	/**
+	 * Check the incremental capture update against a full scan of the grid
+	 * after every turn, and throw an IllegalStateException if they differ.
+	 * This is slow, and is meant for tests.
+	 */
+	public static void setVerifyCaptures(boolean verify) {
+		mVerifyCaptures = verify;
+	}
+
+	/**
+	 * Check for letters that are surrounded by a single player, and change
+	 * their state if needed. Also adjust the scores if letters change owner.
+	 * Only the tiles in the worklist, and tiles left dirty by earlier turns,
+	 * are checked.
+	 */
+	private void makeCaptures() {
+
+		if (!mVerifyCaptures) {
+			scanCaptures(mDirtyTiles);
+			return;
+		}
+
+		final long[] p1Before = mPlayer1Tiles.clone();
+		final long[] p2Before = mPlayer2Tiles.clone();
+		final long[] surroundedBefore = mSurroundedTiles.clone();
+		final int p1PointsBefore = mPlayer1Points;
+		final int p2PointsBefore = mPlayer2Points;
+		final int unplayedBefore = mUnplayedTiles;
+		final long hashBefore = mHash;
+		final TileQueue dirtyBefore = new TileQueue(mDirtyTiles);
+		final TileQueue worklistBefore = new TileQueue(mWorklist);
+
+		for (int i = 0; i < mGrid.length; ++i) {
+			mWorklist.add(i);
+		}
+		scanCaptures(mDirtyTiles);
+
+		final long[] p1Expected = mPlayer1Tiles.clone();
+		final long[] p2Expected = mPlayer2Tiles.clone();
+		final long[] surroundedExpected = mSurroundedTiles.clone();
+		final int p1PointsExpected = mPlayer1Points;
+		final int p2PointsExpected = mPlayer2Points;
+
+		System.arraycopy(p1Before, 0, mPlayer1Tiles, 0, p1Before.length);
+		System.arraycopy(p2Before, 0, mPlayer2Tiles, 0, p2Before.length);
+		System.arraycopy(surroundedBefore, 0, mSurroundedTiles, 0,
+				surroundedBefore.length);
+		mPlayer1Points = p1PointsBefore;
+		mPlayer2Points = p2PointsBefore;
+		mUnplayedTiles = unplayedBefore;
+		mHash = hashBefore;
+		mDirtyTiles = dirtyBefore;
+		mWorklist = worklistBefore;
+
+		scanCaptures(mDirtyTiles);
+
+		if (!Arrays.equals(mPlayer1Tiles, p1Expected)
+				|| !Arrays.equals(mPlayer2Tiles, p2Expected)
+				|| !Arrays.equals(mSurroundedTiles, surroundedExpected)
+				|| mPlayer1Points != p1PointsExpected
+				|| mPlayer2Points != p2PointsExpected) {
+			throw new IllegalStateException(
+					"Incremental captures differ from the full scan");
+		}
+	}
+
+	/**
+	 * Check the queued tiles in index order, as a scan of the whole grid
+	 * would, so each tile sees the new owner of any earlier tile that was
+	 * captured.
+	 *
+	 * A capture queues its later neighbours. Its earlier neighbours have
+	 * already been passed, so they are left dirty for the next turn, as are
+	 * tiles that would change again if checked twice.
+	 *
+	 * @param dirty - where to leave the dirty tiles. Unless this is
+	 *            mDirtyTiles, the dirty tiles of the game are kept.
+	 */
+	private void scanCaptures(TileQueue dirty) {
+
+		final TileQueue worklist = getWorklist();
+		worklist.addAll(mDirtyTiles);
+		if (dirty == mDirtyTiles)
+			mDirtyTiles.clear();
+
+		while (!worklist.isEmpty()) {
+
+			final int tile = worklist.poll();
+
+			final boolean player1Surrounded = isSurroundedBy(mPlayer1Tiles, tile);
+			final boolean player2Surrounded = isSurroundedBy(mPlayer2Tiles, tile);
+			final boolean surrounded = isSet(mSurroundedTiles, tile);
+
+			if (player1Surrounded) {
+				if (!isSet(mPlayer1Tiles, tile)) {
+					capture(tile, PLAYER1, dirty);
+				}
+				setSurrounded(tile, true);
+			} else if (surrounded && isSet(mPlayer1Tiles, tile)) {
+				setSurrounded(tile, false);
+				// Player 2 would take it on a second check
+				if (player2Surrounded)
+					dirty.add(tile);
+			} else if (player2Surrounded) {
+				if (!isSet(mPlayer2Tiles, tile)) {
+					capture(tile, PLAYER2, dirty);
+				}
+				setSurrounded(tile, true);
+			} else if (surrounded) {
+				setSurrounded(tile, false);
+			}
+		}
+	}
+
+	/*
+	 * Give the tiles of a word to a player, apart from surrounded tiles, and
+	 * queue the tiles around them to be checked for captures. Only a change
+	 * of owner can affect the tiles around it.
+	 */
+	private void takeTiles(int[] tiles, int length, int player) {
+
+		final TileQueue worklist = getWorklist();
+
+		for (int w = 0; w < length; ++w) {
+			final int tile = tiles[w];
+
+			if (!isSet(mSurroundedTiles, tile) && setOwner(tile, player)) {
+				addNeighbours(worklist, tile);
+			}
+		}
+	}
+
+	private void capture(int tile, int player, TileQueue dirty) {
+
+		setOwner(tile, player);
+
+		final TileQueue worklist = getWorklist();
+		final int column = tile % mColumns;
+
+		if (column > 0)
+			dirty.add(tile - 1);
+		if (tile >= mColumns)
+			dirty.add(tile - mColumns);
+		if (column < mColumns - 1)
+			worklist.add(tile + 1);
+		if (tile + mColumns < mGrid.length)
+			worklist.add(tile + mColumns);
+	}
+
+	private void addNeighbours(TileQueue queue, int tile) {
+
+		final int column = tile % mColumns;
+
+		if (column > 0)
+			queue.add(tile - 1);
+		if (column < mColumns - 1)
+			queue.add(tile + 1);
+		if (tile >= mColumns)
+			queue.add(tile - mColumns);
+		if (tile + mColumns < mGrid.length)
+			queue.add(tile + mColumns);
+	}
+
+	/**
+	 * Check whether every neighbour of a tile belongs to a player.
+	 * @param owned - the tiles owned by the player.
+	 * @param tile - the index of the tile to look at.
+	 */
+	private boolean isSurroundedBy(long[] owned, int tile) {
+
+		final int column = tile % mColumns;
+
+		return (column == 0 || isSet(owned, tile - 1))
+				&& (column == mColumns - 1 || isSet(owned, tile + 1))
+				&& (tile < mColumns || isSet(owned, tile - mColumns))
+				&& (tile + mColumns >= mGrid.length || isSet(owned, tile
+						+ mColumns));
+	}
+
+	/**
+	 * Give a tile to a player, and adjust the scores.
+	 * @return false if the player already owned the tile.
+	 */
+	private boolean setOwner(int tile, int player) {
+
+		final boolean player1 = isSet(mPlayer1Tiles, tile);
+		final boolean player2 = isSet(mPlayer2Tiles, tile);
+
+		if ((player == PLAYER1) ? player1 : player2)
+			return false;
+
+		recordTile(tile);
+		mHash ^= tileKey(tile);
+
+		if (player1) {
+			clearBit(mPlayer1Tiles, tile);
+			--mPlayer1Points;
+		} else if (player2) {
+			clearBit(mPlayer2Tiles, tile);
+			--mPlayer2Points;
+		} else {
+			--mUnplayedTiles;
+		}
+
+		if (player == PLAYER1) {
+			setBit(mPlayer1Tiles, tile);
+			++mPlayer1Points;
+		} else {
+			setBit(mPlayer2Tiles, tile);
+			++mPlayer2Points;
+		}
+
+		mHash ^= tileKey(tile);
+
+		return true;
+	}
+
+	private void setSurrounded(int tile, boolean surrounded) {
+		recordTile(tile);
+		mHash ^= tileKey(tile);
+		if (surrounded) {
+			setBit(mSurroundedTiles, tile);
+		} else {
+			clearBit(mSurroundedTiles, tile);
+		}
+		mHash ^= tileKey(tile);
+	}
+
+	/*
+	 * Save the state of a tile to the undo log before it changes, if changes
+	 * are being recorded.
+	 */
+	private void recordTile(int tile) {
+
+		if (!mRecording)
+			return;
+
+		if (mUndoLength == mUndoLog.length) {
+			int[] log = new int[mUndoLength * 2];
+			System.arraycopy(mUndoLog, 0, log, 0, mUndoLength);
+			mUndoLog = log;
+		}
+
+		mUndoLog[mUndoLength++] = tile << UNDO_TILE_SHIFT | getTileBits(tile);
+	}
+
+	/*
+	 * Put back the tile states saved in the undo log, newest first, down to
+	 * the given length.
+	 */
+	private void rewindUndoLog(int length) {
+
+		while (mUndoLength > length) {
+			final int entry = mUndoLog[--mUndoLength];
+			final int tile = entry >>> UNDO_TILE_SHIFT;
+
+			clearBit(mPlayer1Tiles, tile);
+			clearBit(mPlayer2Tiles, tile);
+			clearBit(mSurroundedTiles, tile);
+
+			if ((entry & UNDO_PLAYER1) != 0)
+				setBit(mPlayer1Tiles, tile);
+			if ((entry & UNDO_PLAYER2) != 0)
+				setBit(mPlayer2Tiles, tile);
+			if ((entry & UNDO_SURROUNDED) != 0)
+				setBit(mSurroundedTiles, tile);
+		}
+	}
+
+	private TileQueue getWorklist() {
+		if (mWorklist == null)
+			mWorklist = new TileQueue(mGrid.length);
+		return mWorklist;
+	}
+
+	private void setLetterState(int index, LetterState state) {
+
+		clearBit(mPlayer1Tiles, index);
+		clearBit(mPlayer2Tiles, index);
+		clearBit(mSurroundedTiles, index);
+
+		switch (state) {
+		case PLAYER1_SURROUNDED:
+			setBit(mPlayer1Tiles, index);
+			setBit(mSurroundedTiles, index);
+			break;
+		case PLAYER1_OWNED:
+			setBit(mPlayer1Tiles, index);
+			break;
+		case PLAYER2_SURROUNDED:
+			setBit(mPlayer2Tiles, index);
+			setBit(mSurroundedTiles, index);
+			break;
+		case PLAYER2_OWNED:
+			setBit(mPlayer2Tiles, index);
+			break;
+		default:
+			++mUnplayedTiles;
+			break;
+		}
+	}
+
+	/*
+	 * The Zobrist key of a tile in its current state. Unplayed tiles have a
+	 * key of 0, so a new game's hash doesn't depend on the grid size.
+	 */
+	private long tileKey(int tile) {
+
+		int state;
+		if (isSet(mPlayer1Tiles, tile))
+			state = 1;
+		else if (isSet(mPlayer2Tiles, tile))
+			state = 2;
+		else
+			return 0;
+
+		if (isSet(mSurroundedTiles, tile))
+			state += 2;
+
+		return mix(tile * 4L + state);
+	}
+
+	private static long wordKey(char[] word, int length) {
+		long hash = FNV_OFFSET_BASIS;
+		for (int i = 0; i < length; ++i) {
+			hash = (hash ^ word[i]) * FNV_PRIME;
+		}
+		return mix(hash);
+	}
+
+	static long wordKey(CharSequence word) {
+		long hash = FNV_OFFSET_BASIS;
+		for (int i = 0; i < word.length(); ++i) {
+			hash = (hash ^ word.charAt(i)) * FNV_PRIME;
+		}
+		return mix(hash);
+	}
+
+	/*
+	 * Spread the bits of a value over a 64 bit key (the SplitMix64
+	 * finaliser), so keys can be made as needed instead of kept in tables.
+	 */
+	static long mix(long z) {
+		z = (z + 0x9E3779B97F4A7C15L) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	private static boolean isSet(long[] bits, int index) {
+		return (bits[index >>> 6] & (1L << index)) != 0;
+	}
+
+	private static void setBit(long[] bits, int index) {
+		bits[index >>> 6] |= 1L << index;
+	}
+
+	private static void clearBit(long[] bits, int index) {
+		bits[index >>> 6] &= ~(1L << index);
+	}
+
+	/**
+	 * The state of a game at one moment, which never changes, so it can be
+	 * read from any thread without locking. Make one with getSnapshot.
+	 */
+	public static final class Snapshot {
+
+		private final int mColumns;
+		private final int mRows;
+		private final char[] mGrid;
+		private final long[] mPlayer1Tiles;
+		private final long[] mPlayer2Tiles;
+		private final long[] mSurroundedTiles;
+		private final int[] mDirtyTiles;
+		private final int mUnplayedTiles;
+		private final long mHash;
+		private final long mStateHash;
+		private final GameState mGameState;
+		private final GameResult mGameResult;
+		private final boolean mHasPassed;
+		private final PlayedWords mPlayedWords;
+		private final int mPlayer1Points;
+		private final int mPlayer2Points;
+		private final int mComputerPlayer;
+		private final long mSeed;
+		private final GameLog mLog;
+		private final Lexicon mLexicon;
+
+		private Snapshot(GameModel game) {
+			mColumns = game.mColumns;
+			mRows = game.mRows;
+			mGrid = game.mGrid;
+			mPlayer1Tiles = game.mPlayer1Tiles.clone();
+			mPlayer2Tiles = game.mPlayer2Tiles.clone();
+			mSurroundedTiles = game.mSurroundedTiles.clone();
+			mDirtyTiles = game.mDirtyTiles.toArray();
+			mUnplayedTiles = game.mUnplayedTiles;
+			mHash = game.mHash;
+			mStateHash = game.getStateHash();
+			mGameState = game.mGameState;
+			mGameResult = game.mGameResult;
+			mHasPassed = game.mHasPassed;
+			mPlayedWords = game.mPlayedWordList;
+			mPlayer1Points = game.mPlayer1Points;
+			mPlayer2Points = game.mPlayer2Points;
+			mComputerPlayer = game.mComputerPlayer;
+			mSeed = game.mSeed;
+			mLog = game.mLog.share();
+			mLexicon = game.mLexicon;
+		}
+
+		public int getGridSize() {
+			return mGrid.length;
+		}
+
+		public int getGridHeight() {
+			return mRows;
+		}
+
+		public int getGridWidth() {
+			return mColumns;
+		}
+
+		public char getLetter(int index) {
+			return mGrid[index];
+		}
+
+		public LetterState getLetterState(int index) {
+
+			final boolean surrounded = isSet(mSurroundedTiles, index);
+
+			if (isSet(mPlayer1Tiles, index))
+				return surrounded ? LetterState.PLAYER1_SURROUNDED
+						: LetterState.PLAYER1_OWNED;
+
+			if (isSet(mPlayer2Tiles, index))
+				return surrounded ? LetterState.PLAYER2_SURROUNDED
+						: LetterState.PLAYER2_OWNED;
+
+			return LetterState.UNPLAYED;
+		}
+
+		public int getPoints(int player) {
+			return (player == PLAYER1) ? mPlayer1Points : mPlayer2Points;
+		}
+
+		public GameState getGameState() {
+			return mGameState;
+		}
+
+		public GameResult getResult() {
+			return mGameResult;
+		}
+
+		public PlayedWords getPlayedWords() {
+			return mPlayedWords;
+		}
+
+		public long getSeed() {
+			return mSeed;
+		}
+
+		public int getComputerPlayer() {
+			return mComputerPlayer;
+		}
+
+		public boolean isComputerTurn() {
+			return (mComputerPlayer == PLAYER1 && mGameState == GameState.PLAYER1_TURN)
+					|| (mComputerPlayer == PLAYER2 && mGameState == GameState.PLAYER2_TURN);
+		}
+
+		/**
+		 * @return the log of the turns played up to the snapshot.
+		 */
+		public GameLog getLog() {
+			return mLog;
+		}
+
+		/**
+		 * @return the game's state hash when the snapshot was taken.
+		 */
+		public long getStateHash() {
+			return mStateHash;
+		}
+	}
+
+	/*
+	 * What a turn played or passed changed.
+	 */
+	private static final class Turn {
+		int[] mTiles;
+		int[] mDirtyBefore;
+		int[] mDirtyAfter;
+		// The word played, or null for a pass
+		int[] mWord;
+		char[] mLetters;
+		int mNodeCount;
+		int mPlayer1PointsBefore;
+		int mPlayer2PointsBefore;
+		int mUnplayedTilesBefore;
+		long mHashBefore;
+		GameState mGameStateBefore;
+		GameResult mGameResultBefore;
+		boolean mHasPassedBefore;
+		PlayedWords mPlayedWordsBefore;
+		int mPlayer1PointsAfter;
+		int mPlayer2PointsAfter;
+		int mUnplayedTilesAfter;
+		long mHashAfter;
+		GameState mGameStateAfter;
+		GameResult mGameResultAfter;
+		boolean mHasPassedAfter;
+		PlayedWords mPlayedWordsAfter;
+	}
+
+	private TurnResult applyRules(char[] word, int length) {
+
+		// Rule 1. Word must be two or more characters
+		if (length < 2)
+			return TurnResult.WORD_LESS_THAN_TWO_LETTERS;
+
+		// Rule 2. Word must not have been played already
+		if (mPlayedWords.contains(word, 0, length))
+			return TurnResult.WORD_ALREADY_PLAYED;
+
+		// Rule 3. Word must not be a suffix of a previously played word
+		if (mPlayedWords.containsPrefix(word, 0, length))
+			return TurnResult.WORD_IS_PREFIX_OF_PREVIOUS_TURN;
+
+		// Rule 4. Word must be in the English dictionary
+		if (!mLexicon.wordInDictionary(word, 0, length))
+			return TurnResult.WORD_NOT_IN_DICTIONARY;
+
+		return TurnResult.SUCCESS;
+	}
+
+}
@@ -0,0 +1,239 @@
+package com.technicalbepari.warofword.model;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Works out hints for the player whose turn it is, before they are asked for.
+ *
+ * As a TurnListener, the engine starts on the next hint as soon as a turn is
+ * handed over. The hint is found on a background thread, from a snapshot of
+ * the game, and kept until the game moves on, so getHint never waits. A new
+ * turn cancels the hint in progress.
+ *
+ * Given an AnalysisCache, the words of a grid seen before aren't looked up
+ * in the dictionary again, and the hint for the first turn of a game is the
+ * cached best opening.
+ *
+ * Nothing here is locked: the finished hint is published through a volatile
+ * field, and the background thread checks a counter to see if its work is
+ * still wanted. A hint may still be published just after a newer request
+ * is made, so each hint carries the number of its request, and the grid
+ * and state it was worked out for, and getHint only returns a hint that
+ * matches all three.
+ *
+ * @author Andrew Smith
+ */
+public class HintEngine implements GameModel.TurnListener {
+
+	/**
+	 * The best moves for a position.
+	 */
+	public static final class Hint {
+
+		private final int mRequest;
+		private final char[] mGrid;
+		private final long mStateHash;
+		private final Move mBestScoring;
+		private final Move mBestCapturing;
+		private final int mCaptures;
+
+		Hint(int request, GameModel game, Move bestScoring,
+				Move bestCapturing, int captures) {
+			mRequest = request;
+			mGrid = new char[game.getGridSize()];
+			for (int i = 0; i < mGrid.length; ++i) {
+				mGrid[i] = game.getLetter(i);
+			}
+			mStateHash = game.getStateHash();
+			mBestScoring = bestScoring;
+			mBestCapturing = bestCapturing;
+			mCaptures = captures;
+		}
+
+		/*
+		 * @return true if the hint is for the grid and state of a game.
+		 */
+		boolean isFor(GameModel model) {
+
+			if (mStateHash != model.getStateHash()
+					|| mGrid.length != model.getGridSize())
+				return false;
+
+			for (int i = 0; i < mGrid.length; ++i) {
+				if (mGrid[i] != model.getLetter(i))
+					return false;
+			}
+
+			return true;
+		}
+
+		/**
+		 * @return the move that gains the most points, or null if no word
+		 *         can be played.
+		 */
+		public Move getBestScoring() {
+			return mBestScoring;
+		}
+
+		/**
+		 * @return the move that takes the most tiles from the opponent, or
+		 *         null if no move takes any.
+		 */
+		public Move getBestCapturing() {
+			return mBestCapturing;
+		}
+
+		/**
+		 * @return the number of tiles the best capturing move takes.
+		 */
+		public int getCaptures() {
+			return mCaptures;
+		}
+	}
+
+	private final ExecutorService mExecutor;
+	private final MoveGenerator mGenerator;
+
+	// Counts requests for hints. Work for an older request is abandoned.
+	private final AtomicInteger mRequest = new AtomicInteger();
+	private volatile Hint mHint;
+	private Future<?> mPending;
+	private volatile AnalysisCache mCache;
+
+	public HintEngine(Dawg dawg) {
+
+		mGenerator = new MoveGenerator(dawg);
+		mExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "HintEngine");
+				thread.setDaemon(true);
+				thread.setPriority(Thread.MIN_PRIORITY);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * @param cache - where to look up what is known about a grid, or null.
+	 */
+	public void setAnalysisCache(AnalysisCache cache) {
+		mCache = cache;
+		mGenerator.setAnalysisCache(cache);
+	}
+
+	@Override
+	public void onTurnChanged(GameModel model) {
+		update(model);
+	}
+
+	/**
+	 * Start working out the hint for a game, dropping any earlier hint. Call
+	 * this from the thread that plays the game's turns.
+	 */
+	public void update(GameModel model) {
+
+		final int request = mRequest.incrementAndGet();
+		mHint = null;
+
+		if (mPending != null)
+			mPending.cancel(true);
+
+		// The snapshot is taken here, as the game isn't safe to read while
+		// turns are played. The copy to search is made on the background
+		// thread.
+		final GameModel.Snapshot snapshot = model.getSnapshot();
+
+		mPending = mExecutor.submit(new Runnable() {
+			@Override
+			public void run() {
+				Hint hint = findHint(new GameModel(snapshot), request);
+				if (hint != null && mRequest.get() == request)
+					mHint = hint;
+			}
+		});
+	}
+
+	/**
+	 * @return the hint for the game, or null if it isn't ready yet.
+	 */
+	public Hint getHint(GameModel model) {
+		final Hint hint = mHint;
+		if (hint == null || hint.mRequest != mRequest.get()
+				|| !hint.isFor(model))
+			return null;
+		return hint;
+	}
+
+	/**
+	 * Stop working on the current hint.
+	 */
+	public void cancel() {
+		mRequest.incrementAndGet();
+		mHint = null;
+		if (mPending != null) {
+			mPending.cancel(true);
+			mPending = null;
+		}
+	}
+
+	/**
+	 * Stop the background thread. The engine can't be used afterwards.
+	 */
+	public void shutdown() {
+		cancel();
+		mExecutor.shutdownNow();
+	}
+
+	/*
+	 * Runs on the background thread.
+	 *
+	 * @return the hint, or null if the request was replaced while it was
+	 *         being worked out.
+	 */
+	private Hint findHint(GameModel game, int request) {
+
+		// Before the first word is played, there is nothing to capture
+		final AnalysisCache cache = mCache;
+		if (cache != null && game.getUnplayedTileCount() == game.getGridSize()) {
+			final List<Move> openings = cache.get(game).getOpenings();
+			return new Hint(request, game, openings.isEmpty() ? null
+					: openings.get(0), null, 0);
+		}
+
+		final List<Move> moves = mGenerator.generateMoves(game);
+		if (mRequest.get() != request)
+			return null;
+
+		final int opponent = (game.getGameState() == GameModel.GameState.PLAYER1_TURN) ? GameModel.PLAYER2
+				: GameModel.PLAYER1;
+		final int opponentPoints = game.getPoints(opponent);
+
+		Move bestCapturing = null;
+		int captures = 0;
+
+		for (Move move : moves) {
+
+			if (mRequest.get() != request)
+				return null;
+
+			game.applyMove(move);
+			final int taken = opponentPoints - game.getPoints(opponent);
+			game.undoMove();
+
+			if (taken > captures) {
+				captures = taken;
+				bestCapturing = move;
+			}
+		}
+
+		return new Hint(request, game, moves.isEmpty() ? null
+				: moves.get(0), bestCapturing, captures);
+	}
+
+}
@@ -0,0 +1,26 @@
+package com.technicalbepari.warofword.model;
+
+/**
+ * A set of words that can be queried to determine if a given string is an
+ * English word. GameModel uses a Lexicon to enforce the dictionary rule
+ * without depending on how the words are stored.
+ *
+ * @author Andrew Smith
+ */
+public interface Lexicon {
+
+	/**
+	 * @param word - an upper case word.
+	 * @return true if the word is in the dictionary.
+	 */
+	boolean wordInDictionary(CharSequence word);
+
+	/**
+	 * @param word - an array containing an upper case word.
+	 * @param offset - the index of the first letter of the word.
+	 * @param length - the number of letters in the word.
+	 * @return true if the word is in the dictionary.
+	 */
+	boolean wordInDictionary(char[] word, int offset, int length);
+
+}
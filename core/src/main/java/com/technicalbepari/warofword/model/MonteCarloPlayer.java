@@ -0,0 +1,278 @@
+package com.technicalbepari.warofword.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A computer opponent that uses Monte Carlo tree search. Random games are
+ * played out from the position, and the tree of moves grows towards the
+ * moves that win most often.
+ *
+ * The search runs on one thread per core, all sharing one tree. Node counters
+ * are atomic, and a node's children are published with a compare and set, so
+ * the threads never lock. A thread counts its visit to a node on the way
+ * down and its result on the way back up, so until the playout finishes the
+ * visit reads as a loss, which steers the other threads to other moves.
+ *
+ * Each thread plays on its own copy of the game, using applyMove and undoMove,
+ * so the moves follow the same rules as playTurn and passTurn. Tree moves are
+ * the best scoring words from the MoveGenerator, and playout moves are random
+ * words from it.
+ *
+ * @author Andrew Smith
+ */
+public class MonteCarloPlayer {
+
+	private static final int MAX_BRANCHING = 24;
+	private static final double EXPLORATION = 1.4;
+
+	// Results, in half points for the player who made the move
+	private static final int WIN = 2;
+	private static final int DRAW = 1;
+	private static final int LOSS = 0;
+
+	private final int mThreads;
+	private final ExecutorService mExecutor;
+	private final MoveGenerator[] mGenerators;
+	private final Random[] mRandoms;
+	private final AtomicInteger mPlayouts = new AtomicInteger();
+
+	/*
+	 * A position in the search tree, reached by mMove (null for a pass).
+	 */
+	private static final class Node {
+
+		final Move mMove;
+		final AtomicInteger mVisits = new AtomicInteger();
+		final AtomicLong mResults = new AtomicLong();
+		final AtomicReference<Node[]> mChildren = new AtomicReference<Node[]>();
+
+		Node(Move move) {
+			mMove = move;
+		}
+
+		/*
+		 * The child with the best upper confidence bound.
+		 */
+		Node select() {
+
+			final Node[] children = mChildren.get();
+			final double logVisits = Math.log(Math.max(1, mVisits.get()));
+
+			Node best = null;
+			double bestValue = Double.NEGATIVE_INFINITY;
+
+			for (Node child : children) {
+
+				final int visits = child.mVisits.get();
+				if (visits == 0)
+					return child;
+
+				final double value = child.mResults.get()
+						/ (double) (WIN * visits) + EXPLORATION
+						* Math.sqrt(logVisits / visits);
+				if (value > bestValue) {
+					bestValue = value;
+					best = child;
+				}
+			}
+
+			return best;
+		}
+	}
+
+	/**
+	 * Search on a thread for every available processor.
+	 */
+	public MonteCarloPlayer(Dawg dawg) {
+		this(dawg, Runtime.getRuntime().availableProcessors());
+	}
+
+	public MonteCarloPlayer(Dawg dawg, int threads) {
+
+		mThreads = threads;
+		mExecutor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "MonteCarloPlayer");
+				thread.setDaemon(true);
+				thread.setPriority(Thread.MIN_PRIORITY);
+				return thread;
+			}
+		});
+
+		// Each thread finds its moves with its own generator
+		mGenerators = new MoveGenerator[threads];
+		mRandoms = new Random[threads];
+		for (int i = 0; i < threads; ++i) {
+			mGenerators[i] = new MoveGenerator(dawg);
+			mRandoms[i] = new Random();
+		}
+	}
+
+	/**
+	 * Choose a move for the player whose turn it is.
+	 *
+	 * @param model - the game. It isn't changed.
+	 * @param budgetMillis - how long to search for.
+	 * @return the move, or null to pass.
+	 */
+	public synchronized Move chooseMove(GameModel model, long budgetMillis) {
+
+		mPlayouts.set(0);
+
+		if (model.getGameState() == GameModel.GameState.GAME_OVER)
+			return null;
+
+		final long deadline = System.nanoTime() + budgetMillis * 1000000L;
+		final Node root = new Node(null);
+
+		List<Callable<Void>> workers = new ArrayList<Callable<Void>>(mThreads);
+		for (int i = 0; i < mThreads; ++i) {
+
+			final GameModel game = new GameModel(model);
+			final MoveGenerator generator = mGenerators[i];
+			final Random random = mRandoms[i];
+
+			workers.add(new Callable<Void>() {
+				@Override
+				public Void call() {
+					do {
+						search(root, game, generator, random);
+						mPlayouts.incrementAndGet();
+					} while (System.nanoTime() < deadline);
+					return null;
+				}
+			});
+		}
+
+		try {
+			mExecutor.invokeAll(workers);
+		} catch (InterruptedException e) {
+			// Play the best move found so far
+			Thread.currentThread().interrupt();
+		}
+
+		// The most visited move is the most reliable
+		final Node[] children = root.mChildren.get();
+		if (children == null)
+			return null;
+
+		Node best = children[0];
+		for (Node child : children) {
+			if (child.mVisits.get() > best.mVisits.get())
+				best = child;
+		}
+
+		return best.mMove;
+	}
+
+	/**
+	 * @return the number of games played out by the last chooseMove.
+	 */
+	public int getPlayoutCount() {
+		return mPlayouts.get();
+	}
+
+	/**
+	 * Stop the search threads. The player can't be used afterwards.
+	 */
+	public void shutdown() {
+		mExecutor.shutdownNow();
+	}
+
+	/*
+	 * Walk down the tree to a leaf, grow the tree there, play a random game
+	 * out, and count the result on every node on the path.
+	 */
+	private static void search(Node root, GameModel game,
+			MoveGenerator generator, Random random) {
+
+		final List<Node> path = new ArrayList<Node>();
+		final List<Integer> movers = new ArrayList<Integer>();
+
+		Node node = root;
+		node.mVisits.incrementAndGet();
+
+		while (game.getGameState() != GameModel.GameState.GAME_OVER) {
+
+			if (node.mChildren.get() == null) {
+				// Grow the tree at a node the second time it is reached
+				if (node != root && node.mVisits.get() <= 1)
+					break;
+				expand(node, game, generator);
+			}
+
+			movers.add(getCurrentPlayer(game));
+			node = node.select();
+			node.mVisits.incrementAndGet();
+			path.add(node);
+			play(game, node.mMove);
+		}
+
+		int turns = path.size();
+		while (game.getGameState() != GameModel.GameState.GAME_OVER) {
+			play(game, generator.randomMove(game, random));
+			++turns;
+		}
+
+		final int player1Points = game.getPoints(GameModel.PLAYER1);
+		final int player2Points = game.getPoints(GameModel.PLAYER2);
+
+		for (int i = 0; i < path.size(); ++i) {
+
+			final int difference = (movers.get(i) == GameModel.PLAYER1) ? player1Points
+					- player2Points
+					: player2Points - player1Points;
+			final int result = (difference > 0) ? WIN : (difference < 0) ? LOSS
+					: DRAW;
+			path.get(i).mResults.addAndGet(result);
+		}
+
+		for (int i = 0; i < turns; ++i) {
+			game.undoMove();
+		}
+	}
+
+	/*
+	 * Add the children of a node: the best scoring moves, and passing.
+	 */
+	private static void expand(Node node, GameModel game,
+			MoveGenerator generator) {
+
+		final List<Move> moves = generator.generateMoves(game);
+		final int count = Math.min(moves.size(), MAX_BRANCHING);
+
+		Node[] children = new Node[count + 1];
+		for (int i = 0; i < count; ++i) {
+			children[i] = new Node(moves.get(i));
+		}
+		children[count] = new Node(null);
+
+		// Another thread may have got there first, in which case its
+		// children are used
+		node.mChildren.compareAndSet(null, children);
+	}
+
+	private static void play(GameModel game, Move move) {
+		if (move == null) {
+			game.applyPass();
+		} else {
+			game.applyMove(move);
+		}
+	}
+
+	private static int getCurrentPlayer(GameModel game) {
+		return (game.getGameState() == GameModel.GameState.PLAYER1_TURN) ? GameModel.PLAYER1
+				: GameModel.PLAYER2;
+	}
+
+}
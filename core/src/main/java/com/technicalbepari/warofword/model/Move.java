@@ -0,0 +1,50 @@
+package com.technicalbepari.warofword.model;
+
+/**
+ * A word that can be played on a GameModel, with the tiles it uses and what
+ * the player would gain by playing it.
+ *
+ * @author Andrew Smith
+ */
+public final class Move {
+
+	private final String mWord;
+	private final int[] mTiles;
+	private final int mScore;
+
+	Move(String word, int[] tiles, int score) {
+		mWord = word;
+		mTiles = tiles;
+		mScore = score;
+	}
+
+	public String getWord() {
+		return mWord;
+	}
+
+	/**
+	 * @return the tile indexes of the word's letters, in order. The array
+	 *         must not be modified.
+	 */
+	public int[] getTiles() {
+		return mTiles;
+	}
+
+	public int getLength() {
+		return mTiles.length;
+	}
+
+	/**
+	 * @return the player's points after the move less the opponent's, minus
+	 *         the same difference before the move.
+	 */
+	public int getScore() {
+		return mScore;
+	}
+
+	@Override
+	public String toString() {
+		return mWord + " (" + mScore + ")";
+	}
+
+}
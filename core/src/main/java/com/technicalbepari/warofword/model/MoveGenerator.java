@@ -0,0 +1,415 @@
+package com.technicalbepari.warofword.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Find every word that can be played on a GameModel.
+ *
+ * Letters can be taken from anywhere on the grid, so the words that can be
+ * formed depend only on how many of each letter there are. They are found
+ * by walking the dictionary's DAWG while counting letters off, which visits
+ * each reachable prefix once. The letters of a game never change, so the
+ * words found are kept until a different grid is searched, and later turns
+ * only have to drop the words that the played words rule out and pick tiles.
+ *
+ * When a word uses a letter that appears on more than one tile, every choice
+ * of tiles is scored, up to MAX_TILE_CHOICES per word, and the best is kept.
+ * For exact searches, generateAllMoves lists every choice instead.
+ *
+ * For playouts, randomMove draws a playable word at random from the same list
+ * without scoring anything.
+ *
+ * Given an AnalysisCache, the words for a grid that has been seen before are
+ * taken from it instead of walking the DAWG again. The cache is asked before
+ * the generator is locked, so a grid being analysed doesn't hold up other
+ * threads' searches on the grid the generator already has.
+ *
+ * @author Andrew Smith
+ */
+public class MoveGenerator {
+
+	private static final int ALPHABET_SIZE = 26;
+	private static final int MIN_WORD_LENGTH = 2;
+	private static final int MAX_TILE_CHOICES = 256;
+	private static final int MAX_RANDOM_DRAWS = 16;
+
+	private static final Comparator<Move> BEST_FIRST = new Comparator<Move>() {
+		@Override
+		public int compare(Move lhs, Move rhs) {
+			return rhs.getScore() - lhs.getScore();
+		}
+	};
+
+	private final Dawg mDawg;
+	private volatile AnalysisCache mCache;
+
+	// The grid that mWords were found for. It is replaced, never changed,
+	// so it can be compared without the lock.
+	private volatile char[] mGrid;
+	private final List<char[]> mWords = new ArrayList<char[]>();
+
+	// Search state
+	private final int[] mCounts = new int[ALPHABET_SIZE];
+	private char[] mBuffer;
+	private int[][] mTilesByLetter;
+	private int[] mPreviousSame;
+	private int[] mChoice;
+	private int[] mTiles;
+	private int[] mBestTiles;
+	private int mBestScore;
+	private int mChoicesLeft;
+	private String mWord;
+	private List<Move> mAllChoices;
+
+	public MoveGenerator(Dawg dawg) {
+		mDawg = dawg;
+	}
+
+	/**
+	 * @param cache - where to look up the words of a grid, or null to
+	 *        always find them in the dictionary. It must use the same
+	 *        dictionary as the generator.
+	 */
+	public void setAnalysisCache(AnalysisCache cache) {
+		mCache = cache;
+	}
+
+	/**
+	 * List the moves open to the player whose turn it is.
+	 *
+	 * @return the moves, best first, or an empty list if the game is over.
+	 */
+	public List<Move> generateMoves(GameModel model) {
+		return generateMoves(model, lookUp(model));
+	}
+
+	private synchronized List<Move> generateMoves(GameModel model,
+			BoardAnalysis analysis) {
+
+		if (model.getGameState() == GameModel.GameState.GAME_OVER)
+			return new ArrayList<Move>();
+
+		prepare(model, analysis);
+
+		List<Move> moves = new ArrayList<Move>();
+		for (char[] word : mWords) {
+			if (model.isWordPlayable(word, 0, word.length)) {
+				moves.add(chooseTiles(model, word));
+			}
+		}
+
+		Collections.sort(moves, BEST_FIRST);
+
+		return moves;
+	}
+
+	/**
+	 * List every choice of tiles for every word the player whose turn it is
+	 * can play, up to MAX_TILE_CHOICES per word. Choices that only swap the
+	 * tiles of a repeated letter are listed once.
+	 *
+	 * @return the moves, best first, or an empty list if the game is over.
+	 */
+	List<Move> generateAllMoves(GameModel model) {
+		return generateAllMoves(model, lookUp(model));
+	}
+
+	private synchronized List<Move> generateAllMoves(GameModel model,
+			BoardAnalysis analysis) {
+
+		if (model.getGameState() == GameModel.GameState.GAME_OVER)
+			return new ArrayList<Move>();
+
+		prepare(model, analysis);
+
+		List<Move> moves = new ArrayList<Move>();
+		mAllChoices = moves;
+		try {
+			for (char[] word : mWords) {
+				if (model.isWordPlayable(word, 0, word.length)) {
+					chooseTiles(model, word);
+				}
+			}
+		} finally {
+			mAllChoices = null;
+		}
+
+		Collections.sort(moves, BEST_FIRST);
+
+		return moves;
+	}
+
+	/**
+	 * Pick a move for the player whose turn it is at random. Words are drawn
+	 * at random until one can be played, then the remaining words are tried
+	 * in turn, and each letter is taken from a random tile. The move's score
+	 * isn't worked out.
+	 *
+	 * @return the move, or null if no word can be played.
+	 */
+	Move randomMove(GameModel model, Random random) {
+		return randomMove(model, random, lookUp(model));
+	}
+
+	private synchronized Move randomMove(GameModel model, Random random,
+			BoardAnalysis analysis) {
+
+		if (model.getGameState() == GameModel.GameState.GAME_OVER)
+			return null;
+
+		prepare(model, analysis);
+
+		final int count = mWords.size();
+		if (count == 0)
+			return null;
+
+		char[] word = null;
+		for (int i = 0; i < MAX_RANDOM_DRAWS && word == null; ++i) {
+			char[] candidate = mWords.get(random.nextInt(count));
+			if (model.isWordPlayable(candidate, 0, candidate.length))
+				word = candidate;
+		}
+
+		if (word == null) {
+			final int start = random.nextInt(count);
+			for (int i = 0; i < count && word == null; ++i) {
+				char[] candidate = mWords.get((start + i) % count);
+				if (model.isWordPlayable(candidate, 0, candidate.length))
+					word = candidate;
+			}
+			if (word == null)
+				return null;
+		}
+
+		final int[] tiles = new int[word.length];
+		for (int i = 0; i < word.length; ++i) {
+
+			final int[] choices = mTilesByLetter[word[i] - 'A'];
+
+			// Probe on from a random tile to one this word hasn't used
+			int choice = random.nextInt(choices.length);
+			while (isUsed(tiles, i, choices[choice])) {
+				choice = (choice + 1) % choices.length;
+			}
+			tiles[i] = choices[choice];
+		}
+
+		return new Move(new String(word), tiles, 0);
+	}
+
+	/**
+	 * Find the words a grid's letters make, from the dictionary, and the best
+	 * moves for the first turn on it.
+	 */
+	synchronized BoardAnalysis analyse(int columns, int rows, char[] grid) {
+
+		grid = grid.clone();
+		findWords(grid);
+		final List<char[]> words = new ArrayList<char[]>(mWords);
+
+		// The grid is the one just searched, so the words aren't found again
+		final List<Move> moves = generateMoves(new GameModel(columns, rows,
+				grid, GameModel.NO_SEED, mDawg), null);
+		final List<Move> openings = new ArrayList<Move>(moves.subList(0,
+				Math.min(moves.size(), BoardAnalysis.MAX_OPENINGS)));
+
+		return new BoardAnalysis(columns, rows, grid, words, openings);
+	}
+
+	private static boolean isUsed(int[] tiles, int length, int tile) {
+		for (int i = 0; i < length; ++i) {
+			if (tiles[i] == tile)
+				return true;
+		}
+		return false;
+	}
+
+	/*
+	 * @return the cached analysis of the model's grid, or null if there is
+	 *         no cache or the words of the grid were found already.
+	 */
+	private BoardAnalysis lookUp(GameModel model) {
+
+		final AnalysisCache cache = mCache;
+		if (cache == null
+				|| model.getGameState() == GameModel.GameState.GAME_OVER
+				|| isSameGrid(model))
+			return null;
+
+		return cache.get(model);
+	}
+
+	private boolean isSameGrid(GameModel model) {
+
+		final char[] grid = mGrid;
+		final int size = model.getGridSize();
+		boolean same = (grid != null && grid.length == size);
+		for (int i = 0; i < size && same; ++i) {
+			same = (grid[i] == model.getLetter(i));
+		}
+
+		return same;
+	}
+
+	/*
+	 * Make sure that mWords were found for the model's grid.
+	 *
+	 * @param analysis - the grid's analysis, or null to find the words in
+	 *        the dictionary if they are needed.
+	 */
+	private void prepare(GameModel model, BoardAnalysis analysis) {
+
+		if (!isSameGrid(model)) {
+			final int size = model.getGridSize();
+			char[] grid = new char[size];
+			for (int i = 0; i < size; ++i) {
+				grid[i] = model.getLetter(i);
+			}
+
+			// There is no analysis if another thread had the generator
+			// search this grid, and then changed it, since the lookup
+			if (analysis != null) {
+				indexGrid(grid);
+				mWords.addAll(analysis.getWords());
+			} else {
+				findWords(grid);
+			}
+		}
+	}
+
+	/*
+	 * Find the dictionary words that can be made from the letters of a grid,
+	 * and index the grid's tiles by letter.
+	 */
+	private void findWords(char[] grid) {
+
+		indexGrid(grid);
+
+		if (mDawg.size() > 0)
+			findWords(Dawg.ROOT, 0);
+	}
+
+	/*
+	 * Count the letters of a grid and index its tiles by letter, ready to
+	 * find its words.
+	 */
+	private void indexGrid(char[] grid) {
+
+		mGrid = grid;
+		mWords.clear();
+		Arrays.fill(mCounts, 0);
+
+		for (char c : grid) {
+			final int letter = c - 'A';
+			if (letter >= 0 && letter < ALPHABET_SIZE)
+				++mCounts[letter];
+		}
+
+		mTilesByLetter = new int[ALPHABET_SIZE][];
+		for (int letter = 0; letter < ALPHABET_SIZE; ++letter) {
+			mTilesByLetter[letter] = new int[mCounts[letter]];
+		}
+		final int[] filled = new int[ALPHABET_SIZE];
+		for (int i = 0; i < grid.length; ++i) {
+			final int letter = grid[i] - 'A';
+			if (letter >= 0 && letter < ALPHABET_SIZE)
+				mTilesByLetter[letter][filled[letter]++] = i;
+		}
+
+		mBuffer = new char[grid.length];
+		mPreviousSame = new int[grid.length];
+		mChoice = new int[grid.length];
+	}
+
+	private void findWords(int node, int depth) {
+
+		for (int i = node;; ++i) {
+
+			final int edge = mDawg.getEdge(i);
+			final int letter = edge & Dawg.LETTER_MASK;
+
+			if (mCounts[letter] > 0) {
+
+				--mCounts[letter];
+				mBuffer[depth] = (char) ('A' + letter);
+
+				if ((edge & Dawg.TERMINAL_FLAG) != 0
+						&& depth + 1 >= MIN_WORD_LENGTH) {
+					mWords.add(Arrays.copyOf(mBuffer, depth + 1));
+				}
+
+				final int target = edge >>> Dawg.TARGET_SHIFT;
+				if (target != Dawg.ROOT && depth + 1 < mBuffer.length)
+					findWords(target, depth + 1);
+
+				++mCounts[letter];
+			}
+
+			if ((edge & Dawg.LAST_FLAG) != 0)
+				break;
+		}
+
+	}
+
+	/*
+	 * Pick the tiles for a word that score best.
+	 */
+	private Move chooseTiles(GameModel model, char[] word) {
+
+		final int length = word.length;
+
+		// Tiles of a repeated letter are taken in ascending order, so each
+		// set of tiles is only scored once
+		for (int i = 0; i < length; ++i) {
+			mPreviousSame[i] = -1;
+			for (int j = i - 1; j >= 0; --j) {
+				if (word[j] == word[i]) {
+					mPreviousSame[i] = j;
+					break;
+				}
+			}
+		}
+
+		mTiles = new int[length];
+		mBestTiles = null;
+		mBestScore = Integer.MIN_VALUE;
+		mChoicesLeft = MAX_TILE_CHOICES;
+		mWord = new String(word);
+
+		chooseTiles(model, word, 0);
+
+		return new Move(mWord, mBestTiles, mBestScore);
+	}
+
+	private void chooseTiles(GameModel model, char[] word, int position) {
+
+		if (position == word.length) {
+			final int score = model.scoreWord(mTiles, word.length);
+			if (mAllChoices != null)
+				mAllChoices.add(new Move(mWord, mTiles.clone(), score));
+			if (score > mBestScore) {
+				mBestScore = score;
+				mBestTiles = mTiles.clone();
+			}
+			--mChoicesLeft;
+			return;
+		}
+
+		final int[] tiles = mTilesByLetter[word[position] - 'A'];
+		final int previous = mPreviousSame[position];
+		final int first = (previous < 0) ? 0 : mChoice[previous] + 1;
+
+		for (int i = first; i < tiles.length && mChoicesLeft > 0; ++i) {
+			mChoice[position] = i;
+			mTiles[position] = tiles[i];
+			chooseTiles(model, word, position + 1);
+		}
+
+	}
+
+}
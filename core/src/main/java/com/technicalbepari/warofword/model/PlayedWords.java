@@ -0,0 +1,107 @@
+package com.technicalbepari.warofword.model;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The words played in a game, as an immutable list. Adding a word makes a
+ * new list that shares every earlier word with the old one, so a game can
+ * hand out its played words to other threads without copying them.
+ *
+ * Lookups walk the list, which is fine for the few dozen words of a game.
+ * The rules are checked against a WordTrie.
+ *
+ * @author Andrew Smith
+ */
+public final class PlayedWords implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	public static final PlayedWords EMPTY = new PlayedWords(null, null);
+
+	private final String mWord;
+	private final PlayedWords mPrevious;
+	private final int mSize;
+
+	private PlayedWords(String word, PlayedWords previous) {
+		mWord = word;
+		mPrevious = previous;
+		mSize = (previous == null) ? 0 : previous.mSize + 1;
+	}
+
+	/**
+	 * @return a list of these words followed by the given word.
+	 */
+	public PlayedWords add(String word) {
+		if (word == null)
+			throw new NullPointerException("word");
+		return new PlayedWords(word, this);
+	}
+
+	public int size() {
+		return mSize;
+	}
+
+	/**
+	 * @return the word played last, or null if no words were played.
+	 */
+	public String getLast() {
+		return mWord;
+	}
+
+	/**
+	 * @return the words played before the last one.
+	 */
+	public PlayedWords getPrevious() {
+		return (mPrevious == null) ? this : mPrevious;
+	}
+
+	public boolean contains(CharSequence word) {
+
+		for (PlayedWords w = this; w.mSize > 0; w = w.mPrevious) {
+			if (w.mWord.contentEquals(word))
+				return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * @return true if a played word starts with the given prefix.
+	 */
+	public boolean containsPrefix(CharSequence prefix) {
+
+		final String p = prefix.toString();
+		for (PlayedWords w = this; w.mSize > 0; w = w.mPrevious) {
+			if (w.mWord.startsWith(p))
+				return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * @return the words in the order they were played.
+	 */
+	public List<String> toList() {
+
+		List<String> words = new ArrayList<String>(mSize);
+		for (PlayedWords w = this; w.mSize > 0; w = w.mPrevious) {
+			words.add(w.mWord);
+		}
+		Collections.reverse(words);
+
+		return words;
+	}
+
+	@Override
+	public String toString() {
+		return toList().toString();
+	}
+
+	private Object readResolve() {
+		return (mSize == 0) ? EMPTY : this;
+	}
+}
@@ -0,0 +1,462 @@
+package com.technicalbepari.warofword.model;
+
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * A command line tool, run by the simulate build task, that plays games
+ * between two strategies on the JVM and reports how they went. It is meant
+ * for studying the balance of the letter grid.
+ *
+ * Games are spread across threads, and each game draws its grid and its
+ * random moves from its own seed, so a run can be repeated exactly with the
+ * same seed (except with the search strategy, which stops on a timer).
+ * Turns are played with playTurn and passTurn, under the same rules as the
+ * app.
+ *
+ * Usage: Simulator &lt;dictionary image&gt; [-games N] [-threads N]
+ * [-seed N] [-player1 random|greedy|search] [-player2 random|greedy|search]
+ * [-size COLUMNSxROWS] [-vowels N] [-q-without-u] [-min-words N]
+ * [-search-millis N]
+ *
+ * With -min-words, grids are picked by a BoardGenerator that rejects grids
+ * whose letters make fewer words.
+ *
+ * @author Andrew Smith
+ */
+public final class Simulator {
+
+	private static final int DEFAULT_GAMES = 10000;
+	private static final long DEFAULT_SEED = 1;
+	private static final String DEFAULT_STRATEGY = "random";
+	private static final long DEFAULT_SEARCH_MILLIS = 50;
+	private static final long SEED_MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+	/**
+	 * Chooses the moves for one side. A strategy is only used by one thread.
+	 */
+	public interface Strategy {
+
+		/**
+		 * @return the move to play, or null to pass.
+		 */
+		Move chooseMove(GameModel game, Random random);
+	}
+
+	/**
+	 * How a run is set up.
+	 */
+	public static final class Options {
+		public int games = DEFAULT_GAMES;
+		public int threads = Runtime.getRuntime().availableProcessors();
+		public long seed = DEFAULT_SEED;
+		public String player1 = DEFAULT_STRATEGY;
+		public String player2 = DEFAULT_STRATEGY;
+		public int columns = GameModel.GRID_COLUMNS;
+		public int rows = GameModel.GRID_ROWS;
+		public int vowels = -1; // the game's default for the grid size
+		public boolean qNeedsU = true;
+		public int minWords = 0; // accept every grid
+		public long searchMillis = DEFAULT_SEARCH_MILLIS;
+	}
+
+	/**
+	 * Totals over a set of games.
+	 */
+	public static final class Results {
+
+		private int mGames;
+		private int mPlayer1Wins;
+		private int mPlayer2Wins;
+		private int mDraws;
+		private long mTurns;
+		private long mPasses;
+		private int mEndedByPasses;
+		private long mPlayer1Points;
+		private long mPlayer2Points;
+
+		// Histograms, indexed by turns and by the player 1 margin plus the
+		// grid size
+		private int[] mTurnCounts = new int[0];
+		private final int[] mMargins;
+		private final int mGridSize;
+
+		Results(int gridSize) {
+			mGridSize = gridSize;
+			mMargins = new int[2 * gridSize + 1];
+		}
+
+		void addGame(GameModel game, int turns, int passes,
+				boolean endedByPasses) {
+
+			++mGames;
+			mTurns += turns;
+			mPasses += passes;
+
+			final int p1Points = game.getPoints(GameModel.PLAYER1);
+			final int p2Points = game.getPoints(GameModel.PLAYER2);
+			mPlayer1Points += p1Points;
+			mPlayer2Points += p2Points;
+
+			switch (game.getResult()) {
+			case PLAYER1_WIN:
+				++mPlayer1Wins;
+				break;
+			case PLAYER2_WIN:
+				++mPlayer2Wins;
+				break;
+			default:
+				++mDraws;
+			}
+
+			if (endedByPasses)
+				++mEndedByPasses;
+
+			if (turns >= mTurnCounts.length)
+				mTurnCounts = Arrays.copyOf(mTurnCounts, turns + 1);
+			++mTurnCounts[turns];
+			++mMargins[p1Points - p2Points + mGridSize];
+		}
+
+		void addAll(Results other) {
+
+			mGames += other.mGames;
+			mPlayer1Wins += other.mPlayer1Wins;
+			mPlayer2Wins += other.mPlayer2Wins;
+			mDraws += other.mDraws;
+			mTurns += other.mTurns;
+			mPasses += other.mPasses;
+			mEndedByPasses += other.mEndedByPasses;
+			mPlayer1Points += other.mPlayer1Points;
+			mPlayer2Points += other.mPlayer2Points;
+
+			if (other.mTurnCounts.length > mTurnCounts.length)
+				mTurnCounts = Arrays.copyOf(mTurnCounts,
+						other.mTurnCounts.length);
+			for (int i = 0; i < other.mTurnCounts.length; ++i) {
+				mTurnCounts[i] += other.mTurnCounts[i];
+			}
+			for (int i = 0; i < mMargins.length; ++i) {
+				mMargins[i] += other.mMargins[i];
+			}
+		}
+
+		public int getGames() {
+			return mGames;
+		}
+
+		public int getPlayer1Wins() {
+			return mPlayer1Wins;
+		}
+
+		public int getPlayer2Wins() {
+			return mPlayer2Wins;
+		}
+
+		public int getDraws() {
+			return mDraws;
+		}
+
+		public long getTurns() {
+			return mTurns;
+		}
+
+		public long getPasses() {
+			return mPasses;
+		}
+
+		void print(PrintStream out) {
+
+			final double games = Math.max(1, mGames);
+
+			out.println(String.format("Games:          %d", mGames));
+			out.println(String.format(
+					"Player 1 wins:  %d (%.2f%%)", mPlayer1Wins,
+					100 * mPlayer1Wins / games));
+			out.println(String.format(
+					"Player 2 wins:  %d (%.2f%%)", mPlayer2Wins,
+					100 * mPlayer2Wins / games));
+			out.println(String.format("Draws:          %d (%.2f%%)", mDraws,
+					100 * mDraws / games));
+			out.println(String.format("Mean points:    %.2f - %.2f",
+					mPlayer1Points / games, mPlayer2Points / games));
+			out.println(String.format("Mean turns:     %.2f", mTurns / games));
+			out.println(String.format("Passes:         %.3f per turn",
+					mPasses / (double) Math.max(1, mTurns)));
+			out.println(String.format(
+					"Ended by passes: %d (%.2f%%)", mEndedByPasses,
+					100 * mEndedByPasses / games));
+
+			out.println("Turns per game:");
+			for (int i = 0; i < mTurnCounts.length; ++i) {
+				if (mTurnCounts[i] > 0)
+					out.println(String.format("  %4d %8d", i, mTurnCounts[i]));
+			}
+
+			out.println("Player 1 margin:");
+			for (int i = 0; i < mMargins.length; ++i) {
+				if (mMargins[i] > 0)
+					out.println(String.format("  %+4d %8d", i - mGridSize,
+							mMargins[i]));
+			}
+		}
+	}
+
+	public static void main(String[] args) throws IOException,
+			InterruptedException, ExecutionException {
+
+		if (args.length < 1) {
+			printUsage();
+			System.exit(1);
+		}
+
+		Options options = new Options();
+		try {
+			parseOptions(args, options);
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			printUsage();
+			System.exit(1);
+		}
+
+		Dawg dawg;
+		InputStream is = new BufferedInputStream(new FileInputStream(args[0]));
+		try {
+			dawg = Dawg.read(is);
+		} finally {
+			is.close();
+		}
+
+		final long start = System.nanoTime();
+		Results results = run(dawg, options);
+		final double seconds = (System.nanoTime() - start) / 1e9;
+
+		System.out.println(String.format(
+				"%s vs %s on %dx%d grids, seed %d, %d threads",
+				options.player1, options.player2, options.columns,
+				options.rows, options.seed, options.threads));
+		results.print(System.out);
+		System.out.println(String.format(
+				"Played in %.1f s (%.0f games per minute)", seconds,
+				results.getGames() * 60 / seconds));
+	}
+
+	/**
+	 * Play a set of games.
+	 */
+	public static Results run(final Dawg dawg, final Options options)
+			throws InterruptedException, ExecutionException {
+
+		// Check the strategy names before starting
+		createStrategy(options.player1, dawg, options);
+		createStrategy(options.player2, dawg, options);
+
+		final int threads = Math.max(1, options.threads);
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+		try {
+			List<Future<Results>> futures = new ArrayList<Future<Results>>();
+
+			for (int t = 0; t < threads; ++t) {
+				final int first = t;
+				futures.add(executor.submit(new Callable<Results>() {
+					@Override
+					public Results call() {
+						return playGames(dawg, options, first, threads);
+					}
+				}));
+			}
+
+			Results results = new Results(options.columns * options.rows);
+			for (Future<Results> future : futures) {
+				results.addAll(future.get());
+			}
+			return results;
+
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/*
+	 * Play games first, first + step, first + 2 * step, ...
+	 */
+	private static Results playGames(Dawg dawg, Options options, int first,
+			int step) {
+
+		final Strategy[] strategies = {
+				createStrategy(options.player1, dawg, options),
+				createStrategy(options.player2, dawg, options) };
+		final int size = options.columns * options.rows;
+		final int vowels = (options.vowels < 0) ? GameModel
+				.getDefaultVowels(size) : options.vowels;
+
+		BoardGenerator generator = null;
+		if (options.minWords > 0) {
+			// Games are already spread across threads
+			generator = new BoardGenerator(dawg, 1);
+			generator.setMinWords(options.minWords);
+			generator.setVowels(vowels);
+			generator.setQNeedsU(options.qNeedsU);
+		}
+
+		final GameModel.LetterState[] states = new GameModel.LetterState[size];
+		Arrays.fill(states, GameModel.LetterState.UNPLAYED);
+
+		Results results = new Results(size);
+
+		for (int g = first; g < options.games; g += step) {
+
+			Random random = new Random(options.seed * SEED_MULTIPLIER + g);
+
+			char[] grid;
+			if (generator != null) {
+				grid = generator.generate(options.columns, options.rows,
+						random.nextLong());
+			} else {
+				grid = new char[size];
+				GameModel.generateRandomLetterGrid(grid, random, vowels,
+						options.qNeedsU);
+			}
+
+			GameModel game = new GameModel(options.columns, options.rows,
+					grid, states, GameModel.GameState.PLAYER1_TURN, 0, 0, dawg);
+
+			int turns = 0;
+			int passes = 0;
+			boolean passed = false;
+
+			while (game.getGameState() != GameModel.GameState.GAME_OVER) {
+
+				final int player = (game.getGameState() == GameModel.GameState.PLAYER1_TURN) ? GameModel.PLAYER1
+						: GameModel.PLAYER2;
+				Move move = strategies[player].chooseMove(game, random);
+
+				passed = (move == null);
+				if (passed) {
+					game.passTurn();
+					++passes;
+				} else {
+					game.setWord(move.getTiles(), move.getLength());
+					if (game.playTurn() != GameModel.TurnResult.SUCCESS)
+						throw new IllegalStateException("Illegal move "
+								+ move + " in game " + g);
+				}
+				++turns;
+			}
+
+			results.addGame(game, turns, passes, passed);
+		}
+
+		if (generator != null)
+			generator.shutdown();
+
+		return results;
+	}
+
+	/**
+	 * @param name - random, greedy or search.
+	 */
+	static Strategy createStrategy(String name, Dawg dawg,
+			final Options options) {
+
+		final MoveGenerator generator = new MoveGenerator(dawg);
+
+		if (name.equals("random")) {
+			return new Strategy() {
+				@Override
+				public Move chooseMove(GameModel game, Random random) {
+					return generator.randomMove(game, random);
+				}
+			};
+		} else if (name.equals("greedy")) {
+			return new Strategy() {
+				@Override
+				public Move chooseMove(GameModel game, Random random) {
+					List<Move> moves = generator.generateMoves(game);
+					return moves.isEmpty() ? null : moves.get(0);
+				}
+			};
+		} else if (name.equals("search")) {
+			final ComputerPlayer player = new ComputerPlayer(generator);
+			return new Strategy() {
+				@Override
+				public Move chooseMove(GameModel game, Random random) {
+					return player.chooseMove(game, options.searchMillis);
+				}
+			};
+		}
+
+		throw new IllegalArgumentException("Unknown strategy " + name);
+	}
+
+	private static void parseOptions(String[] args, Options options) {
+
+		for (int i = 1; i < args.length; ++i) {
+
+			final String option = args[i];
+
+			if (option.equals("-q-without-u")) {
+				options.qNeedsU = false;
+				continue;
+			}
+
+			if (i + 1 == args.length)
+				throw new IllegalArgumentException("Missing value for "
+						+ option);
+			final String value = args[++i];
+
+			if (option.equals("-games")) {
+				options.games = Integer.parseInt(value);
+			} else if (option.equals("-threads")) {
+				options.threads = Integer.parseInt(value);
+			} else if (option.equals("-seed")) {
+				options.seed = Long.parseLong(value);
+			} else if (option.equals("-player1")) {
+				options.player1 = value;
+			} else if (option.equals("-player2")) {
+				options.player2 = value;
+			} else if (option.equals("-size")) {
+				String[] size = value.split("x");
+				if (size.length != 2)
+					throw new IllegalArgumentException("Invalid size " + value);
+				options.columns = Integer.parseInt(size[0]);
+				options.rows = Integer.parseInt(size[1]);
+			} else if (option.equals("-vowels")) {
+				options.vowels = Integer.parseInt(value);
+			} else if (option.equals("-min-words")) {
+				options.minWords = Integer.parseInt(value);
+			} else if (option.equals("-search-millis")) {
+				options.searchMillis = Long.parseLong(value);
+			} else {
+				throw new IllegalArgumentException("Unknown option " + option);
+			}
+		}
+	}
+
+	private static void printUsage() {
+		System.err.println("Usage: Simulator <dictionary image> [-games N] "
+				+ "[-threads N] [-seed N] [-player1 random|greedy|search] "
+				+ "[-player2 random|greedy|search] [-size COLUMNSxROWS] "
+				+ "[-vowels N] [-q-without-u] [-min-words N] "
+				+ "[-search-millis N]");
+	}
+
+	// Suppress default constructor for noninstantiability
+	private Simulator() {
+		throw new AssertionError();
+	}
+
+}
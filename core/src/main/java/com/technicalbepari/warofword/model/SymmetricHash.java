@@ -0,0 +1,166 @@
+package com.technicalbepari.warofword.model;
+
+import com.technicalbepari.warofword.model.GameModel.GameState;
+import com.technicalbepari.warofword.model.GameModel.LetterState;
+
+/**
+ * Zobrist hashes of a game under each symmetry of its grid, so that
+ * positions that are the same up to turning or mirroring the grid, or
+ * swapping the players, get one canonical key.
+ *
+ * A square grid has eight symmetries (four turns, each of them also
+ * mirrored), other grids four (the identity, both mirrors and a half turn).
+ * A hash is kept for each symmetry as it is and with the players swapped,
+ * and they are all updated as tiles change, so it takes time in proportion
+ * to the tiles a turn changes. The canonical hash is the smallest of them.
+ *
+ * Unlike GameModel's state hash, the letters and the size of the grid are
+ * hashed too, so that positions from different games can be compared.
+ *
+ * @author Andrew Smith
+ */
+final class SymmetricHash {
+
+	private static final long TILE_SALT = 0x3C6EF372FE94F82BL;
+	private static final long LETTER_SALT = 0xA54FF53A5F1D36F1L;
+	private static final long SIZE_SALT = 0x510E527FADE682D1L;
+	private static final long HASH_PLAYER2_TURN = GameModel.mix(-4);
+	private static final long HASH_GAME_OVER = GameModel.mix(-5);
+	private static final long HASH_PASSED = GameModel.mix(-6);
+
+	// For each symmetry, where it moves each tile to
+	private final int[][] mTileMaps;
+
+	// The hash for symmetry s is at 2 * s, and with the players swapped at
+	// 2 * s + 1
+	private final long[] mHashes;
+
+	/**
+	 * Make the hashes of a grid with every tile unplayed and no words
+	 * played.
+	 */
+	SymmetricHash(int columns, int rows, char[] grid) {
+
+		final int symmetries = (columns == rows) ? 8 : 4;
+		mTileMaps = new int[symmetries][grid.length];
+		mHashes = new long[2 * symmetries];
+
+		for (int s = 0; s < symmetries; ++s) {
+
+			// Quarter turns swap the width and height
+			final int width = (s < 4) ? columns : rows;
+			final int height = (s < 4) ? rows : columns;
+			long hash = GameModel.mix(SIZE_SALT + ((long) width << 32 | height));
+
+			for (int tile = 0; tile < grid.length; ++tile) {
+				final int position = transform(s, tile, columns, rows);
+				mTileMaps[s][tile] = position;
+				hash ^= GameModel.mix(LETTER_SALT + ((long) position << 16 | grid[tile]));
+			}
+
+			mHashes[2 * s] = hash;
+			mHashes[2 * s + 1] = hash;
+		}
+	}
+
+	/*
+	 * @return the index that a symmetry moves a tile to.
+	 */
+	private static int transform(int symmetry, int tile, int columns,
+			int rows) {
+
+		final int x = tile % columns;
+		final int y = tile / columns;
+		final int mirroredX = columns - 1 - x;
+		final int mirroredY = rows - 1 - y;
+
+		switch (symmetry) {
+		case 0:
+			return y * columns + x;
+		case 1:
+			return y * columns + mirroredX;
+		case 2:
+			return mirroredY * columns + x;
+		case 3:
+			return mirroredY * columns + mirroredX;
+		case 4:
+			return x * rows + y;
+		case 5:
+			return x * rows + mirroredY;
+		case 6:
+			return mirroredX * rows + y;
+		default:
+			return mirroredX * rows + mirroredY;
+		}
+	}
+
+	/**
+	 * Add a tile in a state to the hashes, or take it out again.
+	 */
+	void toggleTile(int tile, LetterState state) {
+
+		if (state == LetterState.UNPLAYED)
+			return;
+
+		final int swapped = swap(state).ordinal();
+		for (int s = 0; s < mTileMaps.length; ++s) {
+			final long position = mTileMaps[s][tile];
+			mHashes[2 * s] ^= GameModel.mix(TILE_SALT + (position << 3 | state.ordinal()));
+			mHashes[2 * s + 1] ^= GameModel.mix(TILE_SALT + (position << 3 | swapped));
+		}
+	}
+
+	/**
+	 * Add a played word to the hashes, or take it out again. Played words
+	 * don't depend on the symmetry.
+	 *
+	 * @param key - the word's key in GameModel's hash.
+	 */
+	void toggleWord(long key) {
+		for (int i = 0; i < mHashes.length; ++i) {
+			mHashes[i] ^= key;
+		}
+	}
+
+	/**
+	 * @return the smallest of the hashes, with whose turn it is and whether
+	 *         the last turn was a pass.
+	 */
+	long getCanonicalHash(GameState gameState, boolean hasPassed) {
+
+		final long turn = (gameState == GameState.GAME_OVER) ? HASH_GAME_OVER
+				: 0;
+		final long passed = hasPassed ? HASH_PASSED : 0;
+
+		long canonical = Long.MAX_VALUE;
+
+		for (int i = 0; i < mHashes.length; ++i) {
+
+			final boolean swapped = (i & 1) != 0;
+			long hash = mHashes[i] ^ turn ^ passed;
+			if (gameState == (swapped ? GameState.PLAYER1_TURN
+					: GameState.PLAYER2_TURN))
+				hash ^= HASH_PLAYER2_TURN;
+
+			canonical = Math.min(canonical, hash);
+		}
+
+		return canonical;
+	}
+
+	private static LetterState swap(LetterState state) {
+		switch (state) {
+		case PLAYER1_OWNED:
+			return LetterState.PLAYER2_OWNED;
+		case PLAYER1_SURROUNDED:
+			return LetterState.PLAYER2_SURROUNDED;
+		case PLAYER2_OWNED:
+			return LetterState.PLAYER1_OWNED;
+		case PLAYER2_SURROUNDED:
+			return LetterState.PLAYER1_SURROUNDED;
+		default:
+			return state;
+		}
+	}
+
+}
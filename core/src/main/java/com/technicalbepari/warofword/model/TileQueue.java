@@ -0,0 +1,146 @@
+package com.technicalbepari.warofword.model;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * A set of tile indexes that hands them back in ascending order. Adding a tile
+ * that is already queued does nothing.
+ *
+ * The queue is a bitset that remembers the lowest word that can hold a tile.
+ * Adding is a single bit operation and polling moves forward from that word,
+ * so a scan that only adds tiles after the one it has just polled reads each
+ * word of the grid at most once.
+ *
+ * @author Andrew Smith
+ */
+final class TileQueue implements Serializable {
+
+	private static final long serialVersionUID = 2L;
+
+	private final long[] mQueued;
+	private int mSize;
+	// No word below this one has a tile queued.
+	private int mFirst;
+
+	/**
+	 * @param tiles - the number of tiles in the grid.
+	 */
+	TileQueue(int tiles) {
+		mQueued = new long[(tiles + 63) >>> 6];
+		mFirst = mQueued.length;
+	}
+
+	TileQueue(TileQueue other) {
+		mQueued = other.mQueued.clone();
+		mSize = other.mSize;
+		mFirst = other.mFirst;
+	}
+
+	boolean isEmpty() {
+		return mSize == 0;
+	}
+
+	int size() {
+		return mSize;
+	}
+
+	void add(int tile) {
+
+		final int word = tile >>> 6;
+		final long bit = 1L << tile;
+		if ((mQueued[word] & bit) != 0)
+			return;
+		mQueued[word] |= bit;
+		++mSize;
+		if (word < mFirst)
+			mFirst = word;
+	}
+
+	void addAll(TileQueue other) {
+
+		if (other.mSize == 0)
+			return;
+
+		int remaining = other.mSize;
+		for (int w = other.mFirst; remaining > 0; ++w) {
+			final long bits = other.mQueued[w];
+			if (bits == 0)
+				continue;
+			remaining -= Long.bitCount(bits);
+			mSize += Long.bitCount(bits & ~mQueued[w]);
+			mQueued[w] |= bits;
+		}
+		if (other.mFirst < mFirst)
+			mFirst = other.mFirst;
+	}
+
+	/**
+	 * Remove the lowest tile index from the queue.
+	 * @return the tile index.
+	 */
+	int poll() {
+
+		while (mQueued[mFirst] == 0)
+			++mFirst;
+
+		final long bits = mQueued[mFirst];
+		mQueued[mFirst] = bits & (bits - 1);
+		--mSize;
+		return (mFirst << 6) + Long.numberOfTrailingZeros(bits);
+	}
+
+	/**
+	 * @return the queued tiles, in ascending order.
+	 */
+	int[] toArray() {
+		final int[] tiles = new int[mSize];
+		copyTo(tiles, 0);
+		return tiles;
+	}
+
+	/**
+	 * Copy the queued tiles into an array, in ascending order.
+	 *
+	 * @return the number of tiles copied.
+	 */
+	int copyTo(int[] tiles, int offset) {
+
+		int i = offset;
+		final int end = offset + mSize;
+		for (int w = mFirst; i < end; ++w) {
+			long bits = mQueued[w];
+			while (bits != 0) {
+				tiles[i++] = (w << 6) + Long.numberOfTrailingZeros(bits);
+				bits &= bits - 1;
+			}
+		}
+		return mSize;
+	}
+
+	/**
+	 * Replace the queued tiles.
+	 */
+	void set(int[] tiles) {
+		set(tiles, 0, tiles.length);
+	}
+
+	/**
+	 * Replace the queued tiles with part of an array.
+	 */
+	void set(int[] tiles, int offset, int length) {
+		clear();
+		for (int i = offset; i < offset + length; ++i) {
+			add(tiles[i]);
+		}
+	}
+
+	void clear() {
+		if (mSize != 0) {
+			Arrays.fill(mQueued, mFirst, mQueued.length, 0);
+			mSize = 0;
+		}
+		mFirst = mQueued.length;
+	}
+
+}
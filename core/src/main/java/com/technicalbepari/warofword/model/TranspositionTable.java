@@ -0,0 +1,116 @@
+package com.technicalbepari.warofword.model;
+
+import java.util.Arrays;
+
+/**
+ * A fixed size hash table of search results, indexed by position hash.
+ *
+ * Each slot holds one result, packed into a long next to the full hash of its
+ * position. A new result replaces the old one unless the old one came from
+ * the same search and was searched deeper, so results from earlier moves of
+ * the game age out.
+ *
+ * @author Andrew Smith
+ */
+final class TranspositionTable {
+
+	static final int EXACT = 0;
+	static final int LOWER_BOUND = 1;
+	static final int UPPER_BOUND = 2;
+	static final int NO_MOVE = 0x7FFF;
+
+	private static final long VALID = 1L << 63;
+	private static final int DEPTH_SHIFT = 32;
+	private static final int FLAG_SHIFT = 40;
+	private static final int AGE_SHIFT = 42;
+	private static final int MOVE_SHIFT = 48;
+	private static final int AGE_MASK = 0x3F;
+
+	private final long[] mKeys;
+	private final long[] mEntries;
+	private final int mMask;
+	private int mAge;
+
+	// The result found by the last successful probe
+	private int mScore;
+	private int mDepth;
+	private int mFlag;
+	private int mMove;
+
+	/**
+	 * @param bits - the table has 2^bits slots.
+	 */
+	TranspositionTable(int bits) {
+		mKeys = new long[1 << bits];
+		mEntries = new long[1 << bits];
+		mMask = (1 << bits) - 1;
+	}
+
+	/**
+	 * Start a new search. Results from earlier searches are kept, but can be
+	 * replaced by anything.
+	 */
+	void newSearch() {
+		mAge = (mAge + 1) & AGE_MASK;
+	}
+
+	/**
+	 * Forget every result.
+	 */
+	void clear() {
+		Arrays.fill(mEntries, 0);
+	}
+
+	/**
+	 * Look up a position. If it is found, its result can be read with
+	 * getScore, getDepth, getFlag and getMove.
+	 */
+	boolean probe(long key) {
+
+		final int slot = (int) (key ^ (key >>> 32)) & mMask;
+		final long entry = mEntries[slot];
+
+		if ((entry & VALID) == 0 || mKeys[slot] != key)
+			return false;
+
+		mScore = (int) entry;
+		mDepth = (int) (entry >>> DEPTH_SHIFT) & 0xFF;
+		mFlag = (int) (entry >>> FLAG_SHIFT) & 0x3;
+		mMove = (int) (entry >>> MOVE_SHIFT) & NO_MOVE;
+		return true;
+	}
+
+	void store(long key, int depth, int score, int flag, int move) {
+
+		final int slot = (int) (key ^ (key >>> 32)) & mMask;
+		final long old = mEntries[slot];
+
+		if ((old & VALID) != 0 && mKeys[slot] != key
+				&& ((old >>> AGE_SHIFT) & AGE_MASK) == mAge
+				&& ((old >>> DEPTH_SHIFT) & 0xFF) > depth)
+			return;
+
+		mKeys[slot] = key;
+		mEntries[slot] = VALID | (score & 0xFFFFFFFFL)
+				| ((long) (depth & 0xFF) << DEPTH_SHIFT)
+				| ((long) flag << FLAG_SHIFT) | ((long) mAge << AGE_SHIFT)
+				| ((long) (move & NO_MOVE) << MOVE_SHIFT);
+	}
+
+	int getScore() {
+		return mScore;
+	}
+
+	int getDepth() {
+		return mDepth;
+	}
+
+	int getFlag() {
+		return mFlag;
+	}
+
+	int getMove() {
+		return mMove;
+	}
+
+}
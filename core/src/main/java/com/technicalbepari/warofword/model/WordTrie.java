@@ -0,0 +1,319 @@
+package com.technicalbepari.warofword.model;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Manages a Trie data structure used to store words and do fast lookups and
+ * prefix checking.
+ *
+ * The nodes are stored in parallel primitive arrays rather than as objects:
+ * each node records the letter on the edge leading to it, its first child,
+ * its next sibling and the index of the word ending at it. Node 0 is the
+ * root. The arrays grow in blocks as words are added, and lookups never box
+ * or allocate. Words can be passed either as a CharSequence or as a range of
+ * a char[], so callers don't need to build Strings.
+ *
+ * @author Andrew Smith
+ */
+public class WordTrie implements Serializable {
+
+	private static final long serialVersionUID = 2L;
+
+	public static final int INVALID_WORD_ERROR = -1;
+
+	private static final int ROOT = 0;
+	private static final int NO_NODE = 0; // the root is never a child
+	private static final int NO_WORD = -1;
+	private static final int BLOCK_SIZE = 64;
+
+	transient private byte[] mLetters;
+	transient private int[] mFirstChild;
+	transient private int[] mNextSibling;
+	transient private int[] mIndex;
+	transient private int mNodeCount;
+
+	private int mWordIndex = 0;
+
+	public WordTrie() {
+		allocate(BLOCK_SIZE);
+		mNodeCount = 1;
+		mIndex[ROOT] = NO_WORD;
+	}
+
+	/**
+	 * Make an independent copy of another trie.
+	 */
+	public WordTrie(WordTrie other) {
+		mLetters = other.mLetters.clone();
+		mFirstChild = other.mFirstChild.clone();
+		mNextSibling = other.mNextSibling.clone();
+		mIndex = other.mIndex.clone();
+		mNodeCount = other.mNodeCount;
+		mWordIndex = other.mWordIndex;
+	}
+
+	public static WordTrie deserialize(byte[] stream) {
+		return (WordTrie) Serializer.deserialize(stream);
+	}
+
+	public byte[] serialize() {
+		return Serializer.serialize(this);
+	}
+
+	public int add(CharSequence word) {
+
+		if (word == null) {
+			return INVALID_WORD_ERROR;
+		}
+
+		return add(word, null, 0, word.length());
+	}
+
+	public int add(char[] word, int offset, int length) {
+
+		if (word == null) {
+			return INVALID_WORD_ERROR;
+		}
+
+		return add(null, word, offset, length);
+	}
+
+	public boolean contains(CharSequence word) {
+
+		if (word == null) {
+			return false;
+		}
+
+		final int node = find(word, null, 0, word.length());
+		return node != NO_NODE && mIndex[node] != NO_WORD;
+
+	}
+
+	public boolean contains(char[] word, int offset, int length) {
+
+		if (word == null) {
+			return false;
+		}
+
+		final int node = find(null, word, offset, length);
+		return node != NO_NODE && mIndex[node] != NO_WORD;
+
+	}
+
+	public boolean containsPrefix(CharSequence prefix) {
+
+		if (prefix == null) {
+			return false;
+		}
+
+		return prefix.length() == 0
+				|| find(prefix, null, 0, prefix.length()) != NO_NODE;
+
+	}
+
+	public boolean containsPrefix(char[] prefix, int offset, int length) {
+
+		if (prefix == null) {
+			return false;
+		}
+
+		return length == 0 || find(null, prefix, offset, length) != NO_NODE;
+
+	}
+
+	/**
+	 * @return the number of nodes, to pass to removeLast after adding a
+	 *         word.
+	 */
+	int getNodeCount() {
+		return mNodeCount;
+	}
+
+	/**
+	 * Take out the word that was added last. Words must be taken out in the
+	 * reverse of the order they were added. The space isn't freed, so adding
+	 * the word again doesn't allocate.
+	 *
+	 * @param nodeCount - the node count before the word was added.
+	 */
+	void removeLast(char[] word, int offset, int length, int nodeCount) {
+
+		int currentNode = ROOT;
+
+		for (int i = offset; i < offset + length; ++i) {
+
+			final int next = getChild(currentNode, word[i]);
+
+			// The first node the word added is at the front of its
+			// parent's children, and the rest of the nodes it added are
+			// below it
+			if (next >= nodeCount) {
+				mFirstChild[currentNode] = mNextSibling[next];
+				mNodeCount = nodeCount;
+				--mWordIndex;
+				return;
+			}
+
+			currentNode = next;
+		}
+
+		mIndex[currentNode] = NO_WORD;
+		--mWordIndex;
+	}
+
+	/* Internal */
+
+	/*
+	 * The public methods accept words either as a CharSequence or as a range
+	 * of a char[]. Exactly one of sequence and array is non-null, and this
+	 * returns the character at the given index of whichever it is.
+	 */
+	private static char charAt(CharSequence sequence, char[] array, int index) {
+		return (sequence != null) ? sequence.charAt(index) : array[index];
+	}
+
+	private int add(CharSequence sequence, char[] array, int offset, int length) {
+
+		if (length == 0)
+			return INVALID_WORD_ERROR;
+
+		for (int i = offset; i < offset + length; ++i) {
+			char c = charAt(sequence, array, i);
+			if (c < 'A' || c > 'Z')
+				return INVALID_WORD_ERROR;
+		}
+
+		int currentNode = ROOT;
+
+		for (int i = offset; i < offset + length; ++i) {
+
+			char c = charAt(sequence, array, i);
+			int next = getChild(currentNode, c);
+
+			if (next == NO_NODE) {
+				next = addChild(currentNode, c);
+			}
+
+			currentNode = next;
+		}
+
+		mIndex[currentNode] = mWordIndex++;
+
+		return mIndex[currentNode];
+	}
+
+	/*
+	 * Follow a word from the root.
+	 *
+	 * @return the node reached, or NO_NODE if the trie doesn't contain it.
+	 */
+	private int find(CharSequence sequence, char[] array, int offset, int length) {
+
+		int currentNode = ROOT;
+
+		for (int i = offset; i < offset + length; ++i) {
+
+			currentNode = getChild(currentNode, charAt(sequence, array, i));
+
+			if (currentNode == NO_NODE) {
+				return NO_NODE;
+			}
+
+		}
+
+		return currentNode;
+
+	}
+
+	private int getChild(int node, char c) {
+
+		final int letter = c - 'A';
+
+		for (int child = mFirstChild[node]; child != NO_NODE; child = mNextSibling[child]) {
+			if (mLetters[child] == letter)
+				return child;
+		}
+
+		return NO_NODE;
+
+	}
+
+	private int addChild(int node, char c) {
+
+		if (mNodeCount == mIndex.length) {
+			allocate(mNodeCount + Math.max(BLOCK_SIZE, mNodeCount / 2));
+		}
+
+		final int child = mNodeCount++;
+
+		mLetters[child] = (byte) (c - 'A');
+		mFirstChild[child] = NO_NODE;
+		mIndex[child] = NO_WORD;
+
+		// New children go to the front of the sibling list
+		mNextSibling[child] = mFirstChild[node];
+		mFirstChild[node] = child;
+
+		return child;
+
+	}
+
+	private void allocate(int capacity) {
+
+		if (mIndex == null) {
+			mLetters = new byte[capacity];
+			mFirstChild = new int[capacity];
+			mNextSibling = new int[capacity];
+			mIndex = new int[capacity];
+		} else {
+			mLetters = Arrays.copyOf(mLetters, capacity);
+			mFirstChild = Arrays.copyOf(mFirstChild, capacity);
+			mNextSibling = Arrays.copyOf(mNextSibling, capacity);
+			mIndex = Arrays.copyOf(mIndex, capacity);
+		}
+
+	}
+
+	/*
+	 * Only the used part of each array is written.
+	 */
+	private void writeObject(ObjectOutputStream out) throws IOException {
+
+		out.defaultWriteObject();
+
+		out.writeInt(mNodeCount);
+		out.write(mLetters, 0, mNodeCount);
+		for (int i = 0; i < mNodeCount; ++i) {
+			out.writeInt(mFirstChild[i]);
+			out.writeInt(mNextSibling[i]);
+			out.writeInt(mIndex[i]);
+		}
+
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException,
+			ClassNotFoundException {
+
+		in.defaultReadObject();
+
+		final int nodeCount = in.readInt();
+		if (nodeCount < 1)
+			throw new IOException("Invalid node count: " + nodeCount);
+
+		allocate(nodeCount);
+		mNodeCount = nodeCount;
+
+		in.readFully(mLetters, 0, nodeCount);
+		for (int i = 0; i < nodeCount; ++i) {
+			mFirstChild[i] = in.readInt();
+			mNextSibling[i] = in.readInt();
+			mIndex[i] = in.readInt();
+		}
+
+	}
+
+}
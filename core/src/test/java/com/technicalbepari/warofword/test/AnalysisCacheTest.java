@@ -0,0 +1,256 @@
+package com.technicalbepari.warofword.test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+import com.technicalbepari.warofword.model.AnalysisCache;
+import com.technicalbepari.warofword.model.BoardAnalysis;
+import com.technicalbepari.warofword.model.BoardGenerator;
+import com.technicalbepari.warofword.model.Dawg;
+import com.technicalbepari.warofword.model.GameModel;
+import com.technicalbepari.warofword.model.Move;
+import com.technicalbepari.warofword.model.MoveGenerator;
+
+public class AnalysisCacheTest extends TestCase {
+
+	private static final int SIZE = 5;
+
+	private File mFile;
+
+	private static void assertSameMoves(List<Move> expected, List<Move> actual) {
+		Assert.assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); ++i) {
+			Assert.assertEquals(expected.get(i).getWord(), actual.get(i)
+					.getWord());
+			Assert.assertEquals(expected.get(i).getScore(), actual.get(i)
+					.getScore());
+			for (int t = 0; t < expected.get(i).getLength(); ++t) {
+				Assert.assertEquals(expected.get(i).getTiles()[t], actual
+						.get(i).getTiles()[t]);
+			}
+		}
+	}
+
+	@Override
+	protected void setUp() throws IOException {
+		mFile = File.createTempFile("analysis", ".cache");
+		mFile.delete();
+	}
+
+	@Override
+	protected void tearDown() {
+		mFile.delete();
+	}
+
+	/*
+	 * Test that an analysis has the grid's words and best openings, and that
+	 * it reads back the same from the file.
+	 */
+	public void test_analysis() throws IOException {
+
+		Dawg dawg = TestGames.buildGameDawg();
+		BoardGenerator boards = new BoardGenerator(dawg, 1);
+		MoveGenerator generator = new MoveGenerator(dawg);
+
+		AnalysisCache cache = new AnalysisCache(mFile, dawg,
+				AnalysisCache.DEFAULT_MAX_BYTES);
+
+		for (long seed = 0; seed < 20; ++seed) {
+
+			GameModel gm = new GameModel(SIZE, SIZE, seed, dawg);
+			char[] grid = TestGames.getGrid(gm);
+			BoardAnalysis analysis = cache.get(gm);
+
+			Assert.assertTrue(analysis.isFor(SIZE, SIZE, grid));
+			Assert.assertEquals(boards.countWords(grid, Integer.MAX_VALUE),
+					analysis.getWordCount());
+
+			List<Move> moves = generator.generateMoves(gm);
+			assertSameMoves(moves.subList(0,
+					Math.min(moves.size(), BoardAnalysis.MAX_OPENINGS)),
+					analysis.getOpenings());
+		}
+
+		Assert.assertEquals(20, cache.size());
+		Assert.assertEquals(0, cache.getHitCount());
+		cache.save();
+
+		AnalysisCache reloaded = new AnalysisCache(mFile, dawg,
+				AnalysisCache.DEFAULT_MAX_BYTES);
+		Assert.assertEquals(20, reloaded.size());
+		Assert.assertEquals(cache.getByteCount(), reloaded.getByteCount());
+
+		for (long seed = 0; seed < 20; ++seed) {
+
+			GameModel gm = new GameModel(SIZE, SIZE, seed, dawg);
+			char[] grid = TestGames.getGrid(gm);
+			BoardAnalysis expected = cache.get(gm);
+
+			// The word count is read without decoding the analysis
+			Assert.assertEquals(expected.getWordCount(),
+					reloaded.getWordCount(SIZE, SIZE, grid));
+
+			BoardAnalysis actual = reloaded.peek(SIZE, SIZE, grid);
+			Assert.assertNotNull(actual);
+			Assert.assertEquals(expected.getWordCount(), actual.getWordCount());
+			assertSameMoves(expected.getOpenings(), actual.getOpenings());
+		}
+
+		Assert.assertEquals(40, reloaded.getHitCount());
+		Assert.assertEquals(0, reloaded.getMissCount());
+
+		char[] other = TestGames.getGrid(new GameModel(SIZE, SIZE, 20, dawg));
+		Assert.assertEquals(-1, reloaded.getWordCount(SIZE, SIZE, other));
+		Assert.assertNull(reloaded.peek(SIZE, SIZE, other));
+		Assert.assertEquals(2, reloaded.getMissCount());
+	}
+
+	/*
+	 * Test that the cache stays within its size by dropping the analyses
+	 * used least recently.
+	 */
+	public void test_eviction() throws IOException {
+
+		Dawg dawg = TestGames.buildGameDawg();
+		AnalysisCache unbounded = new AnalysisCache(null, dawg,
+				AnalysisCache.DEFAULT_MAX_BYTES);
+		GameModel first = new GameModel(SIZE, SIZE, 0, dawg);
+		GameModel second = new GameModel(SIZE, SIZE, 1, dawg);
+		unbounded.get(first);
+		final int maxBytes = 4 * unbounded.getByteCount();
+
+		AnalysisCache cache = new AnalysisCache(mFile, dawg, maxBytes);
+		cache.get(first);
+		cache.get(second);
+
+		for (long seed = 2; seed < 40; ++seed) {
+			// Keep using the first grid
+			Assert.assertNotNull(cache.peek(SIZE, SIZE,
+					TestGames.getGrid(first)));
+			cache.get(new GameModel(SIZE, SIZE, seed, dawg));
+			Assert.assertTrue(cache.getByteCount() <= maxBytes);
+		}
+
+		Assert.assertTrue(cache.size() < 38);
+		Assert.assertNotNull(cache.peek(SIZE, SIZE, TestGames.getGrid(first)));
+		Assert.assertNull(cache.peek(SIZE, SIZE, TestGames.getGrid(second)));
+
+		// The order of use is kept in the file
+		cache.save();
+		AnalysisCache reloaded = new AnalysisCache(mFile, dawg, maxBytes);
+		Assert.assertEquals(cache.size(), reloaded.size());
+		Assert.assertNotNull(reloaded.peek(SIZE, SIZE,
+				TestGames.getGrid(first)));
+	}
+
+	/*
+	 * Test that a file written with another dictionary, or that isn't a
+	 * cache, is ignored and then replaced.
+	 */
+	public void test_badFiles() throws IOException {
+
+		Dawg dawg = TestGames.buildGameDawg();
+		GameModel gm = new GameModel(SIZE, SIZE, 0, dawg);
+
+		AnalysisCache other = new AnalysisCache(mFile, TestGames.buildDawg(
+				"AB", "BA"), AnalysisCache.DEFAULT_MAX_BYTES);
+		other.get(gm);
+		other.save();
+
+		AnalysisCache cache = new AnalysisCache(mFile, dawg,
+				AnalysisCache.DEFAULT_MAX_BYTES);
+		Assert.assertEquals(0, cache.size());
+		cache.get(gm);
+		cache.save();
+		Assert.assertEquals(1, new AnalysisCache(mFile, dawg,
+				AnalysisCache.DEFAULT_MAX_BYTES).size());
+
+		FileOutputStream out = new FileOutputStream(mFile);
+		try {
+			out.write(new byte[] { 1, 2, 3, 4, 5, 6, 7 });
+		} finally {
+			out.close();
+		}
+
+		cache = new AnalysisCache(mFile, dawg, AnalysisCache.DEFAULT_MAX_BYTES);
+		Assert.assertEquals(0, cache.size());
+		cache.get(gm);
+		cache.save();
+		Assert.assertEquals(1, new AnalysisCache(mFile, dawg,
+				AnalysisCache.DEFAULT_MAX_BYTES).size());
+	}
+
+	/*
+	 * Test that a save that fails leaves the analyses to be saved next time.
+	 */
+	public void test_failedSave() throws IOException {
+
+		Dawg dawg = TestGames.buildGameDawg();
+		File dir = new File(mFile.getPath() + ".dir");
+		File file = new File(dir, "analysis.cache");
+
+		try {
+			AnalysisCache cache = new AnalysisCache(file, dawg,
+					AnalysisCache.DEFAULT_MAX_BYTES);
+			cache.get(new GameModel(SIZE, SIZE, 0, dawg));
+
+			try {
+				cache.save();
+				Assert.fail();
+			} catch (IOException e) {
+				// expected, as there is no directory to write to
+			}
+
+			Assert.assertTrue(dir.mkdir());
+			cache.save();
+			Assert.assertEquals(1, new AnalysisCache(file, dawg,
+					AnalysisCache.DEFAULT_MAX_BYTES).size());
+		} finally {
+			file.delete();
+			dir.delete();
+		}
+	}
+
+	/*
+	 * Test that grids are generated and moves found the same way with the
+	 * cache as without it.
+	 */
+	public void test_warmStart() {
+
+		Dawg dawg = TestGames.buildGameDawg();
+		AnalysisCache cache = new AnalysisCache(null, dawg,
+				AnalysisCache.DEFAULT_MAX_BYTES);
+
+		BoardGenerator cold = new BoardGenerator(dawg, 1);
+		BoardGenerator warm = new BoardGenerator(dawg, 1);
+		warm.setAnalysisCache(cache);
+		cold.setMinWords(25);
+		warm.setMinWords(25);
+
+		MoveGenerator plain = new MoveGenerator(dawg);
+		MoveGenerator cached = new MoveGenerator(dawg);
+		cached.setAnalysisCache(cache);
+
+		for (long seed = 0; seed < 10; ++seed) {
+
+			GameModel gm = cold.newGame(SIZE, SIZE, seed);
+			assertSameMoves(plain.generateMoves(gm), cached.generateMoves(gm));
+
+			// The grid is in the cache now, and the next time round
+			for (int pass = 0; pass < 2; ++pass) {
+				GameModel other = warm.newGame(SIZE, SIZE, seed);
+				for (int i = 0; i < gm.getGridSize(); ++i) {
+					Assert.assertEquals(gm.getLetter(i), other.getLetter(i));
+				}
+			}
+		}
+
+		Assert.assertTrue(cache.getHitCount() >= 10);
+	}
+
+}
@@ -0,0 +1,104 @@
+package com.technicalbepari.warofword.test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+import com.technicalbepari.warofword.model.BloomFilter;
+
+public class BloomFilterTest extends TestCase {
+
+	private static final int WORDS = 5000;
+	private static final double FALSE_POSITIVE_RATE = 0.01;
+
+	/*
+	 * Returns a unique string of CAPITALS
+	 */
+	private String word(int n) {
+		StringBuilder sb = new StringBuilder();
+		do {
+			sb.append((char) ('A' + n % 26));
+			n /= 26;
+		} while (n > 0);
+		return sb.toString();
+	}
+
+	private BloomFilter createFilter() {
+		BloomFilter filter = new BloomFilter(WORDS, FALSE_POSITIVE_RATE);
+		for (int i = 0; i < WORDS; ++i) {
+			filter.add("WORD" + word(i));
+		}
+		return filter;
+	}
+
+	/*
+	 * Words that were added must always be found, and the rate of false
+	 * positives must be close to the requested rate.
+	 */
+	public void test_functional() {
+
+		BloomFilter filter = createFilter();
+
+		for (int i = 0; i < WORDS; ++i) {
+			Assert.assertTrue(filter.mightContain("WORD" + word(i)));
+		}
+
+		int falsePositives = 0;
+		for (int i = 0; i < WORDS; ++i) {
+			if (filter.mightContain("DROW" + word(i)))
+				++falsePositives;
+		}
+
+		Assert.assertTrue(falsePositives < WORDS * FALSE_POSITIVE_RATE * 3);
+		Assert.assertFalse(filter.mightContain(null));
+
+	}
+
+	/*
+	 * Test that looking up part of a char array gives the same answers as
+	 * looking up the same letters as a string, false positives included.
+	 */
+	public void test_charArrays() {
+
+		BloomFilter filter = createFilter();
+
+		for (int i = 0; i < WORDS; ++i) {
+
+			final String added = "WORD" + word(i);
+			final String other = "DROW" + word(i);
+			final char[] buffer = ("QZ" + added + other).toCharArray();
+
+			Assert.assertTrue(filter.mightContain(buffer, 2, added.length()));
+			Assert.assertEquals(filter.mightContain(other), filter
+					.mightContain(buffer, 2 + added.length(), other.length()));
+
+			// Only part of the word
+			final String part = added.substring(1, added.length() - 1);
+			Assert.assertEquals(filter.mightContain(part),
+					filter.mightContain(buffer, 3, part.length()));
+		}
+
+		Assert.assertFalse(filter.mightContain(null, 0, 0));
+	}
+
+	public void test_serialization() throws IOException {
+
+		BloomFilter filter = createFilter();
+
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		filter.write(bos);
+
+		BloomFilter n = BloomFilter.read(new ByteArrayInputStream(bos
+				.toByteArray()));
+
+		Assert.assertEquals(filter.sizeInBytes(), n.sizeInBytes());
+		for (int i = 0; i < WORDS; ++i) {
+			Assert.assertTrue(n.mightContain("WORD" + word(i)));
+		}
+
+	}
+
+}
@@ -0,0 +1,83 @@
+package com.technicalbepari.warofword.test;
+
+import java.util.Arrays;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+import com.technicalbepari.warofword.model.BoardGenerator;
+import com.technicalbepari.warofword.model.Dawg;
+import com.technicalbepari.warofword.model.GameModel;
+
+public class BoardGeneratorTest extends TestCase {
+
+	/*
+	 * Test that words are counted by letters, whatever their order, and that
+	 * a letter is only used as often as it appears.
+	 */
+	public void test_countWords() {
+
+		Dawg dawg = TestGames.buildDawg("A", "AT", "CAT", "CATS", "DOG",
+				"TACT", "TAT");
+		BoardGenerator generator = new BoardGenerator(dawg, 1);
+
+		Assert.assertEquals(3, generator.countWords("STAC".toCharArray(),
+				Integer.MAX_VALUE));
+		Assert.assertEquals(5, generator.countWords("STACT".toCharArray(),
+				Integer.MAX_VALUE));
+		Assert.assertEquals(2, generator.countWords("STACT".toCharArray(), 2));
+		Assert.assertEquals(0, generator.countWords("DOXX".toCharArray(),
+				Integer.MAX_VALUE));
+	}
+
+	/*
+	 * Test that a seed always gives the same grid, however many threads score
+	 * the candidates, and that grids have the minimum number of words.
+	 */
+	public void test_seed() {
+
+		Dawg dawg = TestGames.buildDawg("AB", "BAD", "BE", "BED", "CAB",
+				"DAB", "EA", "ME", "MY", "BEAD", "BADE", "TEA", "EAT", "ATE",
+				"SEA");
+
+		BoardGenerator single = new BoardGenerator(dawg, 1);
+		BoardGenerator multiple = new BoardGenerator(dawg, 4);
+		single.setMinWords(3);
+		multiple.setMinWords(3);
+
+		try {
+			for (long seed = 0; seed < 50; ++seed) {
+
+				char[] grid = single.generate(5, 5, seed);
+				Assert.assertTrue(Arrays.equals(grid,
+						multiple.generate(5, 5, seed)));
+				Assert.assertTrue(single.countWords(grid, 3) >= 3);
+
+				GameModel gm = multiple.newGame(5, 5, seed);
+				Assert.assertEquals(seed, gm.getSeed());
+				Assert.assertTrue(Arrays.equals(grid, TestGames.getGrid(gm)));
+			}
+		} finally {
+			multiple.shutdown();
+		}
+	}
+
+	/*
+	 * Test that the seed is saved with the game, so its grid can be made
+	 * again.
+	 */
+	public void test_seedSaved() {
+
+		Dawg dawg = TestGames.buildDawg("AB", "BE", "EA");
+		BoardGenerator generator = new BoardGenerator(dawg, 1);
+		generator.setMinWords(1);
+
+		GameModel gm = generator.newGame(5, 5, 1234);
+		GameModel restored = GameModel.deserialize(gm.serialize(), dawg);
+
+		Assert.assertEquals(1234, restored.getSeed());
+		Assert.assertTrue(Arrays.equals(TestGames.getGrid(gm),
+				generator.generate(5, 5, restored.getSeed())));
+	}
+
+}
@@ -0,0 +1,196 @@
+package com.technicalbepari.warofword.test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+import com.technicalbepari.warofword.model.Dawg;
+import com.technicalbepari.warofword.model.GameModel;
+import com.technicalbepari.warofword.model.GameModel.GameState;
+import com.technicalbepari.warofword.model.GameModel.LetterState;
+import com.technicalbepari.warofword.model.GameModel.TurnResult;
+import com.technicalbepari.warofword.model.Move;
+import com.technicalbepari.warofword.model.MoveGenerator;
+
+public class CanonicalHashTest extends TestCase {
+
+	private static final int SIZE = 5;
+
+	/*
+	 * Where one of the eight symmetries of a square grid moves a tile.
+	 */
+	private static int transform(int symmetry, int tile) {
+
+		int x = tile % SIZE;
+		int y = tile / SIZE;
+
+		if ((symmetry & 4) != 0) {
+			final int t = x;
+			x = y;
+			y = t;
+		}
+		if ((symmetry & 1) != 0)
+			x = SIZE - 1 - x;
+		if ((symmetry & 2) != 0)
+			y = SIZE - 1 - y;
+
+		return y * SIZE + x;
+	}
+
+	private static LetterState swap(LetterState state) {
+		switch (state) {
+		case PLAYER1_OWNED:
+			return LetterState.PLAYER2_OWNED;
+		case PLAYER1_SURROUNDED:
+			return LetterState.PLAYER2_SURROUNDED;
+		case PLAYER2_OWNED:
+			return LetterState.PLAYER1_OWNED;
+		case PLAYER2_SURROUNDED:
+			return LetterState.PLAYER1_SURROUNDED;
+		default:
+			return state;
+		}
+	}
+
+	private static void randomPosition(Random random, char[] grid,
+			LetterState[] states) {
+		final LetterState[] values = LetterState.values();
+		for (int i = 0; i < grid.length; ++i) {
+			grid[i] = (char) ('A' + random.nextInt(26));
+			states[i] = values[random.nextInt(values.length)];
+		}
+	}
+
+	/*
+	 * Test that turning and mirroring the grid, and swapping the players,
+	 * doesn't change the canonical hash, and that the state hash, which
+	 * doesn't allow for symmetry, does change.
+	 */
+	public void test_symmetries() {
+
+		Random random = new Random(3);
+		char[] grid = new char[SIZE * SIZE];
+		LetterState[] states = new LetterState[SIZE * SIZE];
+
+		for (int n = 0; n < 200; ++n) {
+
+			randomPosition(random, grid, states);
+			final GameState turn = random.nextBoolean() ? GameState.PLAYER1_TURN
+					: GameState.PLAYER2_TURN;
+			GameModel gm = new GameModel(SIZE, SIZE, grid, states, turn, 0, 0,
+					null);
+			final long canonical = gm.getCanonicalHash();
+
+			for (int symmetry = 0; symmetry < 8; ++symmetry) {
+				for (int swapped = 0; swapped < 2; ++swapped) {
+
+					char[] movedGrid = new char[grid.length];
+					LetterState[] movedStates = new LetterState[states.length];
+					for (int i = 0; i < grid.length; ++i) {
+						final int to = transform(symmetry, i);
+						movedGrid[to] = grid[i];
+						movedStates[to] = (swapped == 0) ? states[i]
+								: swap(states[i]);
+					}
+
+					GameState movedTurn = turn;
+					if (swapped != 0) {
+						movedTurn = (turn == GameState.PLAYER1_TURN) ? GameState.PLAYER2_TURN
+								: GameState.PLAYER1_TURN;
+					}
+
+					GameModel moved = new GameModel(SIZE, SIZE, movedGrid,
+							movedStates, movedTurn, 0, 0, null);
+					Assert.assertEquals(canonical, moved.getCanonicalHash());
+					if (symmetry != 0 || swapped != 0)
+						Assert.assertTrue(gm.getStateHash() != moved
+								.getStateHash());
+				}
+			}
+
+			// Other letters, or the other player's turn, aren't the same
+			char[] otherGrid = grid.clone();
+			otherGrid[random.nextInt(grid.length)] ^= 0x20;
+			Assert.assertTrue(canonical != new GameModel(SIZE, SIZE,
+					otherGrid, states, turn, 0, 0, null).getCanonicalHash());
+
+			final GameState otherTurn = (turn == GameState.PLAYER1_TURN) ? GameState.PLAYER2_TURN
+					: GameState.PLAYER1_TURN;
+			Assert.assertTrue(canonical != new GameModel(SIZE, SIZE, grid,
+					states, otherTurn, 0, 0, null).getCanonicalHash());
+		}
+	}
+
+	/*
+	 * Test that the hash kept up to date by the turns, taking them back and
+	 * playing them again matches the hash worked out from scratch.
+	 */
+	public void test_incremental() {
+
+		Dawg dawg = TestGames.buildGameDawg();
+		MoveGenerator generator = new MoveGenerator(dawg);
+		Random random = new Random(9);
+
+		for (long seed = 0; seed < 20; ++seed) {
+
+			GameModel gm = new GameModel(SIZE, SIZE, seed, dawg);
+			gm.getCanonicalHash();
+
+			while (gm.getGameState() != GameState.GAME_OVER) {
+
+				final int action = random.nextInt(6);
+				if (action == 0 && gm.canUndo()) {
+					gm.undoTurn();
+				} else if (action == 1 && gm.canRedo()) {
+					gm.redoTurn();
+				} else {
+					List<Move> moves = generator.generateMoves(gm);
+					if (moves.isEmpty() || random.nextInt(8) == 0) {
+						gm.passTurn();
+					} else {
+						Move move = moves.get(random.nextInt(moves.size()));
+						gm.setWord(move.getTiles(), move.getLength());
+						Assert.assertEquals(TurnResult.SUCCESS, gm.playTurn());
+					}
+				}
+
+				GameModel copy = new GameModel(gm.getSnapshot());
+				Assert.assertEquals(copy.getCanonicalHash(),
+						gm.getCanonicalHash());
+			}
+		}
+	}
+
+	/*
+	 * Test that a million random positions all hash differently. Random
+	 * positions are almost never the same, so an equal pair would be a
+	 * collision.
+	 */
+	public void test_collisions() {
+
+		final int count = 1000000;
+		Random random = new Random(5);
+		char[] grid = new char[SIZE * SIZE];
+		LetterState[] states = new LetterState[SIZE * SIZE];
+
+		long[] hashes = new long[count];
+		for (int n = 0; n < count; ++n) {
+			randomPosition(random, grid, states);
+			hashes[n] = new GameModel(SIZE, SIZE, grid, states,
+					GameState.PLAYER1_TURN, 0, 0, null).getCanonicalHash();
+		}
+
+		Arrays.sort(hashes);
+		int collisions = 0;
+		for (int n = 1; n < count; ++n) {
+			if (hashes[n] == hashes[n - 1])
+				++collisions;
+		}
+
+		Assert.assertEquals(0, collisions);
+	}
+
+}
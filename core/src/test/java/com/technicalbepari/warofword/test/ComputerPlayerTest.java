@@ -0,0 +1,181 @@
+package com.technicalbepari.warofword.test;
+
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+import com.technicalbepari.warofword.model.ComputerPlayer;
+import com.technicalbepari.warofword.model.Dawg;
+import com.technicalbepari.warofword.model.EndgameSolver;
+import com.technicalbepari.warofword.model.GameModel;
+import com.technicalbepari.warofword.model.GameModel.GameResult;
+import com.technicalbepari.warofword.model.GameModel.GameState;
+import com.technicalbepari.warofword.model.GameModel.LetterState;
+import com.technicalbepari.warofword.model.GameModel.TurnResult;
+import com.technicalbepari.warofword.model.Move;
+import com.technicalbepari.warofword.model.MoveGenerator;
+
+public class ComputerPlayerTest extends TestCase {
+
+	/*
+	 * BED scores the most, but the opponent can then hold the game to a draw.
+	 * Only BA wins.
+	 */
+	public void test_lookAhead() {
+
+		Dawg dawg = TestGames.buildDawg("BA", "BE", "BED", "EA");
+
+		final String grid =
+				"BAD" +
+				"EBE";
+		GameModel gm = TestGames.createModel(3, 2, grid, dawg);
+
+		List<Move> moves = new MoveGenerator(dawg).generateMoves(gm);
+		Assert.assertEquals("BED", moves.get(0).getWord());
+
+		Move move = new ComputerPlayer(dawg).chooseMove(gm, 5000);
+		Assert.assertEquals("BA", move.getWord());
+	}
+
+	/*
+	 * Test that choosing a move leaves the game alone, and that the chosen
+	 * move can be played.
+	 */
+	public void test_gameUnchanged() {
+
+		Dawg dawg = TestGames.buildDawg("AT", "CAT", "CATS", "TACT", "TAT",
+				"SAT");
+
+		final String grid =
+				"CATSX" +
+				"XXXXX" +
+				"XXAXX" +
+				"XXXXX" +
+				"XXXXT";
+		GameModel gm = TestGames.createModel(5, 5, grid, dawg);
+
+		gm.setWord(new int[] { 1, 2 }, 2);
+		Assert.assertEquals(TurnResult.SUCCESS, gm.playTurn());
+
+		ComputerPlayer player = new ComputerPlayer(dawg);
+		Move move = player.chooseMove(gm, 200);
+		Assert.assertNotNull(move);
+		Assert.assertTrue(player.getSearchDepth() > 0);
+
+		Assert.assertEquals(GameState.PLAYER2_TURN, gm.getGameState());
+		Assert.assertEquals(2, gm.getPoints(GameModel.PLAYER1));
+		Assert.assertEquals(0, gm.getPoints(GameModel.PLAYER2));
+		for (int i = 0; i < grid.length(); ++i) {
+			LetterState expected = (i == 1 || i == 2) ? LetterState.PLAYER1_OWNED
+					: LetterState.UNPLAYED;
+			Assert.assertEquals(expected, gm.getLetterState(i));
+		}
+
+		gm.setWord(move.getTiles(), move.getLength());
+		Assert.assertEquals(TurnResult.SUCCESS, gm.playTurn());
+	}
+
+	/*
+	 * Test that the search stops close to its time budget.
+	 */
+	public void test_budget() {
+
+		Dawg dawg = TestGames.buildDawg("AB", "ABC", "BA", "CAB", "CD", "DC",
+				"BAD", "DAB", "CAD", "ACE", "ACED", "BE", "BED", "DE", "EA",
+				"ABED", "BEAD", "DEBA", "CEDA", "DACE");
+
+		final String grid =
+				"ABCDEA" +
+				"BCDEAB" +
+				"CDEABC" +
+				"DEABCD" +
+				"EABCDE" +
+				"ABCDEA";
+		GameModel gm = TestGames.createModel(6, 6, grid, dawg);
+
+		final long budget = 300;
+		long start = System.currentTimeMillis();
+		new ComputerPlayer(dawg).chooseMove(gm, budget);
+		long elapsed = System.currentTimeMillis() - start;
+
+		Assert.assertTrue("Took " + elapsed + "ms", elapsed < budget * 3);
+	}
+
+	/*
+	 * @return the result of the game under perfect play after a move.
+	 */
+	private static GameResult playAndSolve(GameModel gm, Move move,
+			EndgameSolver solver) {
+
+		GameModel played = new GameModel(gm);
+		if (move == null) {
+			played.passTurn();
+		} else {
+			played.setWord(move.getTiles(), move.getLength());
+			Assert.assertEquals(TurnResult.SUCCESS, played.playTurn());
+		}
+
+		if (played.getGameState() == GameState.GAME_OVER)
+			return played.getResult();
+		return solver.solve(played, 1000000).getResult();
+	}
+
+	/*
+	 * The player keeps its results from one search to the next, but the
+	 * positions' keys don't cover the letters. Test that after searching one
+	 * grid, the player's move on another gets the same result under perfect
+	 * play as a new player's. On each pair of grids below, results from the
+	 * first once led to a losing move on the second.
+	 */
+	public void test_newGrid() {
+
+		Dawg dawg = TestGames.buildDawg("AB", "AD", "BA", "BE", "BED", "EA",
+				"ED");
+		EndgameSolver solver = new EndgameSolver(dawg);
+
+		final String[][] pairs = {
+				{ "EBXBBB", "BAXXEA" },
+				{ "ADDXAD", "EXDBAA" } };
+
+		for (String[] pair : pairs) {
+
+			GameModel first = TestGames.createModel(3, 2, pair[0], dawg);
+			GameModel second = TestGames.createModel(3, 2, pair[1], dawg);
+			first.passTurn();
+			second.passTurn();
+
+			ComputerPlayer player = new ComputerPlayer(dawg);
+			player.chooseMove(first, 2000);
+			Move move = player.chooseMove(second, 2000);
+
+			Move expected = new ComputerPlayer(dawg).chooseMove(second, 2000);
+			Assert.assertEquals(playAndSolve(second, expected, solver),
+					playAndSolve(second, move, solver));
+		}
+
+		// And one player for a run of random grids
+		ComputerPlayer player = new ComputerPlayer(dawg);
+		Random random = new Random(8);
+
+		for (int n = 0; n < 30; ++n) {
+
+			char[] letters = new char[6];
+			for (int i = 0; i < letters.length; ++i) {
+				letters[i] = "ABDEX".charAt(random.nextInt(5));
+			}
+			GameModel gm = TestGames.createModel(3, 2, new String(letters),
+					dawg);
+			if (random.nextBoolean()) {
+				gm.passTurn();
+			}
+
+			Move move = player.chooseMove(gm, 2000);
+			Move expected = new ComputerPlayer(dawg).chooseMove(gm, 2000);
+			Assert.assertEquals(playAndSolve(gm, expected, solver),
+					playAndSolve(gm, move, solver));
+		}
+	}
+
+}
@@ -0,0 +1,282 @@
+package com.technicalbepari.warofword.test;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+import com.technicalbepari.warofword.model.Dawg;
+import com.technicalbepari.warofword.model.EndgameSolver;
+import com.technicalbepari.warofword.model.GameLog;
+import com.technicalbepari.warofword.model.GameModel;
+import com.technicalbepari.warofword.model.GameModel.GameResult;
+import com.technicalbepari.warofword.model.GameModel.GameState;
+import com.technicalbepari.warofword.model.GameModel.TurnResult;
+import com.technicalbepari.warofword.model.Move;
+import com.technicalbepari.warofword.model.MoveGenerator;
+
+public class EndgameSolverTest extends TestCase {
+
+	private static final String[] WORDS = { "AB", "AD", "BA", "BE", "BED",
+			"EA", "ED" };
+
+	// Relative to the core module, where the tests are run
+	private static final String WORD_LIST = "../app/src/main/res/raw/wordlist.txt";
+	private static final long BUDGET_MILLIS = 200;
+	// For the position being searched when the time runs out
+	private static final long SLACK_MILLIS = 800;
+
+	private static int getCurrentPlayer(GameModel gm) {
+		return (gm.getGameState() == GameState.PLAYER1_TURN) ? GameModel.PLAYER1
+				: GameModel.PLAYER2;
+	}
+
+	/*
+	 * Every choice of tiles for a word's letters.
+	 */
+	private static void addPlays(GameModel gm, String word, int[] tiles,
+			int position, List<int[]> plays) {
+
+		if (position == word.length()) {
+			plays.add(tiles.clone());
+			return;
+		}
+
+		for (int tile = 0; tile < gm.getGridSize(); ++tile) {
+			if (gm.getLetter(tile) != word.charAt(position))
+				continue;
+			boolean used = false;
+			for (int i = 0; i < position; ++i) {
+				used |= (tiles[i] == tile);
+			}
+			if (!used) {
+				tiles[position] = tile;
+				addPlays(gm, word, tiles, position + 1, plays);
+			}
+		}
+	}
+
+	/*
+	 * Everything the rest of a game depends on.
+	 */
+	private static String describe(GameModel gm) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < gm.getGridSize(); ++i) {
+			sb.append(gm.getLetterState(i).ordinal());
+		}
+		sb.append(' ').append(gm.getPoints(GameModel.PLAYER1));
+		sb.append(' ').append(gm.getPoints(GameModel.PLAYER2));
+		sb.append(' ').append(gm.getGameState());
+
+		GameLog log = gm.getLog();
+		final int moves = log.getMoveCount();
+		sb.append(' ').append(moves > 0 && log.getMove(moves - 1).length == 0);
+
+		List<String> words = gm.getSnapshot().getPlayedWords().toList();
+		Collections.sort(words);
+		sb.append(' ').append(words);
+		return sb.toString();
+	}
+
+	/*
+	 * Play out every line of the game, remembering the outcome of each
+	 * position.
+	 *
+	 * @return 1, 0 or -1 as the player whose turn it is wins, draws or loses.
+	 */
+	private static int bruteForce(GameModel gm, Map<String, Integer> outcomes) {
+
+		final String position = describe(gm);
+		final Integer known = outcomes.get(position);
+		if (known != null)
+			return known;
+
+		final int player = getCurrentPlayer(gm);
+
+		GameModel passed = new GameModel(gm);
+		passed.passTurn();
+		int best = getOutcome(passed, player, outcomes);
+
+		for (String word : WORDS) {
+			List<int[]> plays = new ArrayList<int[]>();
+			addPlays(gm, word, new int[word.length()], 0, plays);
+			for (int[] tiles : plays) {
+				GameModel played = new GameModel(gm);
+				played.setWord(tiles, tiles.length);
+				if (played.playTurn() == TurnResult.SUCCESS)
+					best = Math.max(best, getOutcome(played, player, outcomes));
+			}
+		}
+
+		outcomes.put(position, best);
+		return best;
+	}
+
+	private static int getOutcome(GameModel gm, int player,
+			Map<String, Integer> outcomes) {
+		if (gm.getGameState() == GameState.GAME_OVER)
+			return Integer.signum(gm.getPoints(player)
+					- gm.getPoints(1 - player));
+		return -bruteForce(gm, outcomes);
+	}
+
+	private static int getOutcome(GameResult result, int player) {
+		if (result == GameResult.DRAW)
+			return 0;
+		return ((result == GameResult.PLAYER1_WIN) == (player == GameModel.PLAYER1)) ? 1
+				: -1;
+	}
+
+	/*
+	 * Test that the solver agrees with playing out every line, and that its
+	 * move gets the result it found.
+	 */
+	public void test_againstBruteForce() {
+
+		Dawg dawg = TestGames.buildDawg(WORDS);
+		EndgameSolver solver = new EndgameSolver(dawg);
+		Random random = new Random(17);
+
+		for (int n = 0; n < 20; ++n) {
+
+			char[] letters = new char[6];
+			for (int i = 0; i < letters.length; ++i) {
+				letters[i] = "ABDE".charAt(random.nextInt(4));
+			}
+			GameModel gm = TestGames.createModel(3, 2, new String(letters),
+					dawg);
+
+			// Start some games part of the way through
+			if (random.nextBoolean()) {
+				gm.passTurn();
+			}
+
+			EndgameSolver.Solution solution = solver.solve(gm, 100000);
+			Assert.assertNotNull(solution);
+
+			final int player = getCurrentPlayer(gm);
+			final Map<String, Integer> outcomes = new HashMap<String, Integer>();
+			final int expected = bruteForce(gm, outcomes);
+			Assert.assertEquals(expected, getOutcome(solution.getResult(),
+					player));
+
+			Move move = solution.getMove();
+			if (move == null) {
+				gm.passTurn();
+			} else {
+				gm.setWord(move.getTiles(), move.getLength());
+				Assert.assertEquals(TurnResult.SUCCESS, gm.playTurn());
+			}
+			Assert.assertEquals(expected, getOutcome(gm, player, outcomes));
+		}
+	}
+
+	/*
+	 * Taking the last two tiles with BA ends the game with player 1 ahead.
+	 */
+	public void test_closingMove() {
+
+		Dawg dawg = TestGames.buildDawg(WORDS);
+
+		final String grid =
+				"BAD" +
+				"EBE";
+		GameModel gm = TestGames.createModel(3, 2, grid, dawg);
+		gm.setWord(new int[] { 3, 2 }, 2);
+		Assert.assertEquals(TurnResult.SUCCESS, gm.playTurn());
+		gm.setWord(new int[] { 4, 5 }, 2);
+		Assert.assertEquals(TurnResult.SUCCESS, gm.playTurn());
+		Assert.assertEquals(2, gm.getUnplayedTileCount());
+
+		EndgameSolver.Solution solution = new EndgameSolver(dawg).solve(gm);
+		Assert.assertEquals(GameResult.PLAYER1_WIN, solution.getResult());
+		Assert.assertEquals(1, bruteForce(gm, new HashMap<String, Integer>()));
+
+		Move move = solution.getMove();
+		gm.setWord(move.getTiles(), move.getLength());
+		Assert.assertEquals(TurnResult.SUCCESS, gm.playTurn());
+		Assert.assertEquals(GameResult.PLAYER1_WIN, gm.getResult());
+	}
+
+	/*
+	 * Test that the solver gives up on games with too many unplayed tiles,
+	 * or when it runs out of time.
+	 */
+	public void test_limits() {
+
+		Dawg dawg = TestGames.buildDawg(WORDS);
+
+		GameModel open = TestGames.createModel(4, 2, "BADEBADE", dawg);
+		Assert.assertTrue(open.getUnplayedTileCount() > EndgameSolver.MAX_UNPLAYED_TILES);
+		Assert.assertNull(new EndgameSolver(dawg).solve(open));
+
+		GameModel small = TestGames.createModel(3, 2, "BADEBE", dawg);
+		Assert.assertNull(new EndgameSolver(dawg).solve(small, 0));
+		Assert.assertNotNull(new EndgameSolver(dawg).solve(small, 100000));
+	}
+
+	/*
+	 * Test that endgames with the shipped word list, where thousands of
+	 * words can be played, are solved or given up on within the time budget.
+	 */
+	public void test_timeBudget() throws IOException {
+
+		final Dawg dawg;
+		InputStream is = new FileInputStream(WORD_LIST);
+		try {
+			dawg = Dawg.fromWordList(is);
+		} finally {
+			is.close();
+		}
+
+		MoveGenerator generator = new MoveGenerator(dawg);
+		EndgameSolver solver = new EndgameSolver(generator);
+		int positions = 0;
+
+		for (long seed = 0; seed < 4; ++seed) {
+
+			GameModel gm = new GameModel(5, 5, seed, dawg);
+
+			while (gm.getGameState() != GameState.GAME_OVER) {
+
+				if (gm.getUnplayedTileCount() <= EndgameSolver.MAX_UNPLAYED_TILES) {
+
+					final long start = System.nanoTime();
+					EndgameSolver.Solution solution = solver.solve(gm,
+							BUDGET_MILLIS);
+					final long millis = (System.nanoTime() - start) / 1000000;
+					Assert.assertTrue(millis < BUDGET_MILLIS + SLACK_MILLIS);
+					++positions;
+
+					Move move = (solution == null) ? null : solution.getMove();
+					if (move != null) {
+						GameModel played = new GameModel(gm);
+						played.setWord(move.getTiles(), move.getLength());
+						Assert.assertEquals(TurnResult.SUCCESS,
+								played.playTurn());
+					}
+				}
+
+				List<Move> moves = generator.generateMoves(gm);
+				if (moves.isEmpty()) {
+					gm.passTurn();
+				} else {
+					gm.setWord(moves.get(0).getTiles(),
+							moves.get(0).getLength());
+					Assert.assertEquals(TurnResult.SUCCESS, gm.playTurn());
+				}
+			}
+		}
+
+		Assert.assertTrue(positions > 0);
+	}
+
+}
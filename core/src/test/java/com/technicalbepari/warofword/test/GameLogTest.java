@@ -0,0 +1,176 @@
+package com.technicalbepari.warofword.test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+import com.technicalbepari.warofword.model.Dawg;
+import com.technicalbepari.warofword.model.GameLog;
+import com.technicalbepari.warofword.model.GameModel;
+import com.technicalbepari.warofword.model.GameModel.GameState;
+import com.technicalbepari.warofword.model.GameModel.LetterState;
+import com.technicalbepari.warofword.model.Move;
+import com.technicalbepari.warofword.model.MoveGenerator;
+
+public class GameLogTest extends TestCase {
+
+	private static final char[] CAPTURE_GRID =
+			("XXXMY" +
+			 "XXXXE" +
+			 "XXXXX" +
+			 "XXXXX" +
+			 "XXXXX").toCharArray();
+
+	/*
+	 * The tile states, points and state of a game, for comparing positions.
+	 */
+	private static String describe(GameModel gm) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < gm.getGridSize(); ++i) {
+			sb.append(gm.getLetter(i)).append(gm.getLetterState(i).ordinal());
+		}
+		sb.append(' ').append(gm.getPoints(GameModel.PLAYER1));
+		sb.append(' ').append(gm.getPoints(GameModel.PLAYER2));
+		sb.append(' ').append(gm.getGameState());
+		return sb.toString();
+	}
+
+	private static GameModel createCaptureGame(Dawg dawg) {
+		LetterState[] states = new LetterState[CAPTURE_GRID.length];
+		Arrays.fill(states, LetterState.UNPLAYED);
+		return new GameModel(5, 5, CAPTURE_GRID, states,
+				GameState.PLAYER1_TURN, 0, 0, dawg);
+	}
+
+	/*
+	 * Test that every position of a game can be rebuilt from its log, after
+	 * the log has been written out and read back.
+	 */
+	public void test_replay() {
+
+		Dawg dawg = TestGames.buildGameDawg();
+		MoveGenerator generator = new MoveGenerator(dawg);
+		Random random = new Random(7);
+
+		for (long seed = 0; seed < 20; ++seed) {
+
+			GameModel gm = new GameModel(5, 5, seed, dawg);
+			List<String> positions = new ArrayList<String>();
+			positions.add(describe(gm));
+
+			while (gm.getGameState() != GameState.GAME_OVER) {
+				List<Move> moves = generator.generateMoves(gm);
+				if (moves.isEmpty() || random.nextInt(8) == 0) {
+					gm.passTurn();
+				} else {
+					Move move = moves.get(random.nextInt(moves.size()));
+					gm.setWord(move.getTiles(), move.getLength());
+					Assert.assertEquals(GameModel.TurnResult.SUCCESS,
+							gm.playTurn());
+				}
+				positions.add(describe(gm));
+			}
+
+			byte[] bytes = gm.getLog().toByteArray();
+			GameLog log = new GameLog(bytes);
+
+			Assert.assertEquals(seed, log.getSeed());
+			Assert.assertEquals(positions.size() - 1, log.getMoveCount());
+			Assert.assertEquals(GameLog.VALID, log.verify(dawg));
+
+			GameModel replayed = log.replay(dawg);
+			Assert.assertEquals(describe(gm), describe(replayed));
+			Assert.assertTrue(Arrays.equals(bytes, replayed.getLog()
+					.toByteArray()));
+
+			GameLog.Replayer replayer = new GameLog.Replayer(log, dawg);
+			for (int n = positions.size() - 1; n >= 0; --n) {
+				Assert.assertEquals(positions.get(n),
+						describe(replayer.getPosition(n)));
+			}
+		}
+	}
+
+	/*
+	 * Test that turns are recorded as tile indexes, with passes, and that a
+	 * game that didn't start on an empty grid is logged from where it
+	 * started.
+	 */
+	public void test_moves() {
+
+		Dawg dawg = TestGames.buildDawg("ME", "MY");
+
+		LetterState[] states = new LetterState[CAPTURE_GRID.length];
+		Arrays.fill(states, LetterState.UNPLAYED);
+		states[4] = LetterState.PLAYER2_OWNED;
+		GameModel gm = new GameModel(5, 5, CAPTURE_GRID, states,
+				GameState.PLAYER2_TURN, 0, 1, dawg);
+
+		gm.passTurn();
+		gm.setWord(new int[] { 3, 9 }, 2);
+		Assert.assertEquals(GameModel.TurnResult.SUCCESS, gm.playTurn());
+
+		GameLog log = new GameLog(gm.getLog().toByteArray());
+		Assert.assertEquals(GameModel.NO_SEED, log.getSeed());
+		Assert.assertEquals(2, log.getMoveCount());
+		Assert.assertEquals(0, log.getMove(0).length);
+		Assert.assertTrue(Arrays.equals(new int[] { 3, 9 }, log.getMove(1)));
+
+		GameModel start = log.getStartPosition(dawg);
+		Assert.assertEquals(LetterState.PLAYER2_OWNED, start.getLetterState(4));
+		Assert.assertEquals(GameState.PLAYER2_TURN, start.getGameState());
+		Assert.assertEquals(1, start.getPoints(GameModel.PLAYER2));
+
+		Assert.assertEquals(describe(gm), describe(log.replay(dawg)));
+	}
+
+	/*
+	 * Test that the verifier finds the first turn that breaks the rules, and
+	 * logs that can't be read.
+	 */
+	public void test_verify() throws Exception {
+
+		Dawg dawg = TestGames.buildDawg("ME", "MY");
+
+		GameModel gm = createCaptureGame(dawg);
+		gm.setWord(new int[] { 3, 9 }, 2);
+		gm.playTurn();
+		gm.passTurn();
+		gm.setWord(new int[] { 3, 4 }, 2);
+		gm.playTurn();
+
+		byte[] valid = gm.getLog().toByteArray();
+
+		// Make the last turn play ME again
+		byte[] replayed = valid.clone();
+		Assert.assertEquals(4, replayed[replayed.length - 1]);
+		replayed[replayed.length - 1] = 9;
+		Assert.assertEquals(2, new GameLog(replayed).verify(dawg));
+
+		byte[] truncated = Arrays.copyOf(valid, valid.length - 1);
+		try {
+			new GameLog(truncated);
+			fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+
+		List<byte[]> logs = new ArrayList<byte[]>();
+		for (int i = 0; i < 100; ++i) {
+			logs.add(valid);
+			logs.add(replayed);
+			logs.add(truncated);
+		}
+
+		int[] results = GameLog.verifyAll(logs, dawg, 3);
+		for (int i = 0; i < results.length; i += 3) {
+			Assert.assertEquals(GameLog.VALID, results[i]);
+			Assert.assertEquals(2, results[i + 1]);
+			Assert.assertEquals(GameLog.MALFORMED, results[i + 2]);
+		}
+	}
+}
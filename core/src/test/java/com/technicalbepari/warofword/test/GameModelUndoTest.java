@@ -0,0 +1,146 @@
+package com.technicalbepari.warofword.test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+import com.technicalbepari.warofword.model.Dawg;
+import com.technicalbepari.warofword.model.GameModel;
+import com.technicalbepari.warofword.model.GameModel.GameState;
+import com.technicalbepari.warofword.model.GameModel.LetterState;
+import com.technicalbepari.warofword.model.GameModel.TurnResult;
+import com.technicalbepari.warofword.model.Move;
+import com.technicalbepari.warofword.model.MoveGenerator;
+
+public class GameModelUndoTest extends TestCase {
+
+	/*
+	 * The tile states, points, state and log of a game, for comparing
+	 * positions.
+	 */
+	private static String describe(GameModel gm) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < gm.getGridSize(); ++i) {
+			sb.append(gm.getLetterState(i).ordinal());
+		}
+		sb.append(' ').append(gm.getPoints(GameModel.PLAYER1));
+		sb.append(' ').append(gm.getPoints(GameModel.PLAYER2));
+		sb.append(' ').append(gm.getGameState());
+		sb.append(' ').append(gm.getResult());
+		sb.append(' ').append(Arrays.toString(gm.getLog().toByteArray()));
+		return sb.toString();
+	}
+
+	/*
+	 * Test that taking back a turn puts back the captures and the played
+	 * words, and that the turn can be played again.
+	 */
+	public void test_takeBack() {
+
+		final char[] testGrid =
+			("XXXMY" +
+			 "XXXXE" +
+			 "XXXXX" +
+			 "XXXXX" +
+			 "XXXXX").toCharArray();
+		LetterState[] states = new LetterState[testGrid.length];
+		Arrays.fill(states, LetterState.UNPLAYED);
+		GameModel gm = new GameModel(5, 5, testGrid, states,
+				GameState.PLAYER1_TURN, 0, 0, TestGames.buildDawg("ME", "MY"));
+
+		Assert.assertFalse(gm.canUndo());
+
+		gm.setWord(new int[] { 3, 4 }, 2);
+		gm.playTurn();
+		final String afterMy = describe(gm);
+
+		gm.setWord(new int[] { 3, 9 }, 2);
+		gm.playTurn();
+		final String afterMe = describe(gm);
+		Assert.assertEquals(LetterState.PLAYER2_SURROUNDED, gm.getLetterState(4));
+
+		gm.undoTurn();
+		Assert.assertEquals(afterMy, describe(gm));
+		Assert.assertEquals(LetterState.PLAYER1_OWNED, gm.getLetterState(4));
+		Assert.assertTrue(gm.canRedo());
+
+		gm.redoTurn();
+		Assert.assertEquals(afterMe, describe(gm));
+
+		// ME can be played again once it is taken back
+		gm.undoTurn();
+		gm.setWord(new int[] { 3, 9 }, 2);
+		Assert.assertEquals(TurnResult.SUCCESS, gm.playTurn());
+		Assert.assertEquals(afterMe, describe(gm));
+		Assert.assertFalse(gm.canRedo());
+
+		gm.undoTurn();
+		gm.undoTurn();
+		Assert.assertFalse(gm.canUndo());
+		Assert.assertEquals(0, gm.getLog().getMoveCount());
+		gm.setWord(new int[] { 3, 4 }, 2);
+		Assert.assertEquals(TurnResult.SUCCESS, gm.playTurn());
+
+		try {
+			gm.redoTurn();
+			fail();
+		} catch (IllegalStateException e) {
+			// expected
+		}
+	}
+
+	/*
+	 * Test that random games can be taken back to any earlier turn, passes
+	 * and the end of the game included, and played forward again.
+	 */
+	public void test_randomGames() {
+
+		Dawg dawg = TestGames.buildGameDawg();
+		MoveGenerator generator = new MoveGenerator(dawg);
+		Random random = new Random(11);
+
+		for (long seed = 0; seed < 20; ++seed) {
+
+			GameModel gm = new GameModel(5, 5, seed, dawg);
+			List<String> positions = new ArrayList<String>();
+			positions.add(describe(gm));
+
+			while (gm.getGameState() != GameState.GAME_OVER) {
+
+				if (gm.canUndo() && random.nextInt(5) == 0) {
+					gm.undoTurn();
+					positions.remove(positions.size() - 1);
+					Assert.assertEquals(positions.get(positions.size() - 1),
+							describe(gm));
+					continue;
+				}
+
+				List<Move> moves = generator.generateMoves(gm);
+				if (moves.isEmpty() || random.nextInt(8) == 0) {
+					gm.passTurn();
+				} else {
+					Move move = moves.get(random.nextInt(moves.size()));
+					gm.setWord(move.getTiles(), move.getLength());
+					Assert.assertEquals(TurnResult.SUCCESS, gm.playTurn());
+				}
+				positions.add(describe(gm));
+			}
+
+			for (int n = positions.size() - 1; n > 0; --n) {
+				gm.undoTurn();
+				Assert.assertEquals(positions.get(n - 1), describe(gm));
+			}
+			Assert.assertFalse(gm.canUndo());
+
+			for (int n = 1; n < positions.size(); ++n) {
+				gm.redoTurn();
+				Assert.assertEquals(positions.get(n), describe(gm));
+			}
+			Assert.assertFalse(gm.canRedo());
+		}
+	}
+}
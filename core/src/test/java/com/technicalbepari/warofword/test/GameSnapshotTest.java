@@ -0,0 +1,198 @@
+package com.technicalbepari.warofword.test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+import com.technicalbepari.warofword.model.Dawg;
+import com.technicalbepari.warofword.model.GameModel;
+import com.technicalbepari.warofword.model.GameModel.GameState;
+import com.technicalbepari.warofword.model.GameModel.Snapshot;
+import com.technicalbepari.warofword.model.GameModel.TurnResult;
+import com.technicalbepari.warofword.model.Move;
+import com.technicalbepari.warofword.model.MoveGenerator;
+import com.technicalbepari.warofword.model.PlayedWords;
+
+public class GameSnapshotTest extends TestCase {
+
+	private static String describe(GameModel gm) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < gm.getGridSize(); ++i) {
+			sb.append(gm.getLetter(i)).append(gm.getLetterState(i).ordinal());
+		}
+		sb.append(' ').append(gm.getPoints(GameModel.PLAYER1));
+		sb.append(' ').append(gm.getPoints(GameModel.PLAYER2));
+		sb.append(' ').append(gm.getGameState());
+		sb.append(' ').append(gm.getResult());
+		sb.append(' ').append(Arrays.toString(gm.getLog().toByteArray()));
+		return sb.toString();
+	}
+
+	private static String describe(Snapshot snapshot) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < snapshot.getGridSize(); ++i) {
+			sb.append(snapshot.getLetter(i)).append(
+					snapshot.getLetterState(i).ordinal());
+		}
+		sb.append(' ').append(snapshot.getPoints(GameModel.PLAYER1));
+		sb.append(' ').append(snapshot.getPoints(GameModel.PLAYER2));
+		sb.append(' ').append(snapshot.getGameState());
+		sb.append(' ').append(snapshot.getResult());
+		sb.append(' ').append(Arrays.toString(snapshot.getLog().toByteArray()));
+		return sb.toString();
+	}
+
+	private static void playRandomTurn(GameModel gm, MoveGenerator generator,
+			Random random) {
+
+		List<Move> moves = generator.generateMoves(gm);
+		if (moves.isEmpty() || random.nextInt(8) == 0) {
+			gm.passTurn();
+		} else {
+			Move move = moves.get(random.nextInt(moves.size()));
+			gm.setWord(move.getTiles(), move.getLength());
+			Assert.assertEquals(TurnResult.SUCCESS, gm.playTurn());
+		}
+	}
+
+	/*
+	 * Test that snapshots keep the position they were taken at while the game
+	 * goes on and turns are taken back, and that a game made from a snapshot
+	 * plays on the same as the game it was taken from.
+	 */
+	public void test_snapshots() {
+
+		Dawg dawg = TestGames.buildGameDawg();
+		MoveGenerator generator = new MoveGenerator(dawg);
+		Random random = new Random(5);
+
+		for (long seed = 0; seed < 20; ++seed) {
+
+			GameModel gm = new GameModel(5, 5, seed, dawg);
+			List<Snapshot> snapshots = new ArrayList<Snapshot>();
+			List<String> positions = new ArrayList<String>();
+
+			while (gm.getGameState() != GameState.GAME_OVER) {
+
+				Snapshot snapshot = gm.getSnapshot();
+				Assert.assertSame(snapshot, gm.getSnapshot());
+				snapshots.add(snapshot);
+				positions.add(describe(gm));
+
+				playRandomTurn(gm, generator, random);
+
+				if (gm.canUndo() && random.nextInt(4) == 0) {
+					gm.undoTurn();
+					Assert.assertEquals(positions.get(positions.size() - 1),
+							describe(gm));
+					playRandomTurn(gm, generator, random);
+				}
+			}
+
+			for (int n = 0; n < snapshots.size(); ++n) {
+				Assert.assertEquals(positions.get(n), describe(snapshots.get(n)));
+			}
+
+			// Play the rest of the game from a snapshot of the middle
+			final int middle = snapshots.size() / 2;
+			GameModel original = new GameModel(snapshots.get(middle));
+			GameModel copy = new GameModel(snapshots.get(middle));
+			Assert.assertEquals(positions.get(middle), describe(copy));
+			Assert.assertEquals(snapshots.get(middle).getPlayedWords()
+					.toList(), copy.getSnapshot().getPlayedWords().toList());
+
+			Random originalRandom = new Random(seed);
+			Random copyRandom = new Random(seed);
+			while (original.getGameState() != GameState.GAME_OVER) {
+				playRandomTurn(original, generator, originalRandom);
+				playRandomTurn(copy, generator, copyRandom);
+				Assert.assertEquals(describe(original), describe(copy));
+			}
+			Assert.assertEquals(positions.get(middle),
+					describe(snapshots.get(middle)));
+		}
+	}
+
+	/*
+	 * Test that a played word list shares the words before it.
+	 */
+	public void test_playedWords() {
+
+		PlayedWords first = PlayedWords.EMPTY.add("ME");
+		PlayedWords second = first.add("MY");
+
+		Assert.assertEquals(0, PlayedWords.EMPTY.size());
+		Assert.assertEquals(1, first.size());
+		Assert.assertSame(first, second.getPrevious());
+		Assert.assertEquals(Arrays.asList("ME", "MY"), second.toList());
+		Assert.assertTrue(second.contains("ME"));
+		Assert.assertFalse(first.contains("MY"));
+		Assert.assertTrue(second.containsPrefix("M"));
+		Assert.assertFalse(second.containsPrefix("Y"));
+	}
+
+	/*
+	 * Test that several threads can read the same snapshots while the game
+	 * goes on.
+	 */
+	public void test_concurrentReaders() throws Exception {
+
+		final Dawg dawg = TestGames.buildGameDawg();
+		final MoveGenerator generator = new MoveGenerator(dawg);
+		final GameModel gm = new GameModel(5, 5, 3, dawg);
+		final List<Snapshot> snapshots = new ArrayList<Snapshot>();
+		final List<String> positions = new ArrayList<String>();
+		final Random random = new Random(3);
+
+		while (gm.getGameState() != GameState.GAME_OVER) {
+			snapshots.add(gm.getSnapshot());
+			positions.add(describe(gm));
+			playRandomTurn(gm, generator, random);
+		}
+
+		final Throwable[] failure = new Throwable[1];
+		Thread[] readers = new Thread[4];
+		for (int t = 0; t < readers.length; ++t) {
+			readers[t] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						for (int n = 0; n < snapshots.size(); ++n) {
+							Snapshot snapshot = snapshots.get(n);
+							Assert.assertEquals(positions.get(n),
+									describe(snapshot));
+							GameModel game = new GameModel(snapshot);
+							generator.generateMoves(game);
+							for (int m = 0; m < snapshot.getLog()
+									.getMoveCount(); ++m) {
+								snapshot.getLog().getMove(m);
+							}
+						}
+					} catch (Throwable e) {
+						synchronized (failure) {
+							failure[0] = e;
+						}
+					}
+				}
+			});
+			readers[t].start();
+		}
+
+		// Take back the whole game while the readers run
+		while (gm.canUndo()) {
+			gm.undoTurn();
+		}
+
+		for (Thread reader : readers) {
+			reader.join();
+		}
+		synchronized (failure) {
+			if (failure[0] != null)
+				throw new AssertionError(failure[0]);
+		}
+	}
+}
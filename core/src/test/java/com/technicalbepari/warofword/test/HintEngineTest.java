@@ -0,0 +1,121 @@
+package com.technicalbepari.warofword.test;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+import com.technicalbepari.warofword.model.Dawg;
+import com.technicalbepari.warofword.model.GameModel;
+import com.technicalbepari.warofword.model.GameModel.GameState;
+import com.technicalbepari.warofword.model.GameModel.LetterState;
+import com.technicalbepari.warofword.model.GameModel.TurnResult;
+import com.technicalbepari.warofword.model.HintEngine;
+
+public class HintEngineTest extends TestCase {
+
+	private static final long TIMEOUT = 5000; // milliseconds
+
+	private static HintEngine.Hint waitForHint(HintEngine engine,
+			GameModel gm) throws InterruptedException {
+
+		final long deadline = System.currentTimeMillis() + TIMEOUT;
+		HintEngine.Hint hint = engine.getHint(gm);
+		while (hint == null && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+			hint = engine.getHint(gm);
+		}
+		return hint;
+	}
+
+	/*
+	 * After a turn, the next hint may or may not be ready yet, but it must
+	 * not be the hint for the position before, and it must be the same one
+	 * waitForHint gets.
+	 */
+	private static HintEngine.Hint waitForNextHint(HintEngine engine,
+			GameModel gm, HintEngine.Hint previous)
+			throws InterruptedException {
+
+		final HintEngine.Hint early = engine.getHint(gm);
+		final HintEngine.Hint hint = waitForHint(engine, gm);
+		Assert.assertNotNull(hint);
+		Assert.assertNotSame(previous, hint);
+		if (early != null) {
+			Assert.assertSame(hint, early);
+		}
+		return hint;
+	}
+
+	/*
+	 * "ME" with the lower E surrounds and captures the Y, so it scores the
+	 * most. After it, "MY" takes back the M.
+	 */
+	public void test_hint() throws InterruptedException {
+
+		Dawg dawg = TestGames.buildDawg("ME", "MY");
+
+		final String grid =
+				"XMY" +
+				"EXE";
+		final LetterState U = LetterState.UNPLAYED;
+		LetterState[] states = {
+				U, LetterState.PLAYER2_OWNED, LetterState.PLAYER1_OWNED,
+				U, U, U };
+
+		GameModel gm = TestGames.createModel(3, 2, grid, states,
+				GameState.PLAYER2_TURN, 1, 1, dawg);
+
+		HintEngine engine = new HintEngine(dawg);
+		try {
+			gm.setTurnListener(engine);
+			engine.update(gm);
+
+			HintEngine.Hint hint = waitForHint(engine, gm);
+			Assert.assertNotNull(hint);
+			Assert.assertEquals("ME", hint.getBestScoring().getWord());
+			Assert.assertEquals(3, hint.getBestScoring().getScore());
+			Assert.assertEquals(1, hint.getCaptures());
+			Assert.assertEquals(5, hint.getBestCapturing().getTiles()[1]);
+
+			// Playing a turn drops the hint, and starts on the next one
+			gm.setWord(hint.getBestScoring().getTiles(), 2);
+			Assert.assertEquals(TurnResult.SUCCESS, gm.playTurn());
+			hint = waitForNextHint(engine, gm, hint);
+			Assert.assertEquals("MY", hint.getBestScoring().getWord());
+			Assert.assertEquals(1, hint.getCaptures());
+
+			gm.passTurn();
+			waitForNextHint(engine, gm, hint);
+
+			engine.cancel();
+			Assert.assertNull(engine.getHint(gm));
+		} finally {
+			engine.shutdown();
+		}
+	}
+
+	/*
+	 * Test that a hint is only given for the grid it was worked out for,
+	 * although every new game starts in the same state.
+	 */
+	public void test_otherGrid() throws InterruptedException {
+
+		Dawg dawg = TestGames.buildDawg("ME", "MY");
+		GameModel first = TestGames.createModel(3, 2, "XMYEXE", dawg);
+		GameModel second = TestGames.createModel(3, 2, "MEXXYX", dawg);
+		Assert.assertEquals(first.getStateHash(), second.getStateHash());
+
+		HintEngine engine = new HintEngine(dawg);
+		try {
+			engine.update(first);
+			Assert.assertNotNull(waitForHint(engine, first));
+			Assert.assertNull(engine.getHint(second));
+
+			engine.update(second);
+			Assert.assertNotNull(waitForHint(engine, second));
+			Assert.assertNull(engine.getHint(first));
+		} finally {
+			engine.shutdown();
+		}
+	}
+
+}
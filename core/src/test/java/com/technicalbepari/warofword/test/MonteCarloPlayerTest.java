@@ -0,0 +1,81 @@
+package com.technicalbepari.warofword.test;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+import com.technicalbepari.warofword.model.Dawg;
+import com.technicalbepari.warofword.model.GameModel;
+import com.technicalbepari.warofword.model.GameModel.GameState;
+import com.technicalbepari.warofword.model.GameModel.TurnResult;
+import com.technicalbepari.warofword.model.MonteCarloPlayer;
+import com.technicalbepari.warofword.model.Move;
+
+public class MonteCarloPlayerTest extends TestCase {
+
+	/*
+	 * BED scores the most, but the opponent can then hold the game to a draw.
+	 * Only BA wins.
+	 */
+	public void test_lookAhead() {
+
+		Dawg dawg = TestGames.buildDawg("BA", "BE", "BED", "EA");
+
+		final String grid =
+				"BAD" +
+				"EBE";
+		GameModel gm = TestGames.createModel(3, 2, grid, dawg);
+
+		MonteCarloPlayer player = new MonteCarloPlayer(dawg, 2);
+		try {
+			Move move = player.chooseMove(gm, 1000);
+			Assert.assertEquals("BA", move.getWord());
+		} finally {
+			player.shutdown();
+		}
+	}
+
+	/*
+	 * Play a game out with a player on each side, checking that every chosen
+	 * move is legal and that choosing leaves the game alone.
+	 */
+	public void test_fullGame() {
+
+		Dawg dawg = TestGames.buildDawg("AT", "CAT", "CATS", "TACT", "TAT",
+				"SAT", "ACT", "ACTS", "SCAT", "TACTS");
+
+		final String grid =
+				"CATSX" +
+				"XTXAX" +
+				"XXAXX" +
+				"XSXCX" +
+				"XXXXT";
+		GameModel gm = TestGames.createModel(5, 5, grid, dawg);
+
+		MonteCarloPlayer player = new MonteCarloPlayer(dawg, 2);
+		try {
+			while (gm.getGameState() != GameState.GAME_OVER) {
+
+				final GameState state = gm.getGameState();
+				final int p1Points = gm.getPoints(GameModel.PLAYER1);
+				final int p2Points = gm.getPoints(GameModel.PLAYER2);
+
+				Move move = player.chooseMove(gm, 100);
+				Assert.assertTrue(player.getPlayoutCount() > 0);
+
+				Assert.assertEquals(state, gm.getGameState());
+				Assert.assertEquals(p1Points, gm.getPoints(GameModel.PLAYER1));
+				Assert.assertEquals(p2Points, gm.getPoints(GameModel.PLAYER2));
+
+				if (move == null) {
+					gm.passTurn();
+				} else {
+					gm.setWord(move.getTiles(), move.getLength());
+					Assert.assertEquals(TurnResult.SUCCESS, gm.playTurn());
+				}
+			}
+		} finally {
+			player.shutdown();
+		}
+	}
+
+}
@@ -0,0 +1,157 @@
+package com.technicalbepari.warofword.test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+import com.technicalbepari.warofword.model.Dawg;
+import com.technicalbepari.warofword.model.GameModel;
+import com.technicalbepari.warofword.model.GameModel.GameState;
+import com.technicalbepari.warofword.model.GameModel.LetterState;
+import com.technicalbepari.warofword.model.GameModel.TurnResult;
+import com.technicalbepari.warofword.model.Move;
+import com.technicalbepari.warofword.model.MoveGenerator;
+
+public class MoveGeneratorTest extends TestCase {
+
+	private static Set<String> words(List<Move> moves) {
+		Set<String> words = new HashSet<String>();
+		for (Move m : moves) {
+			words.add(m.getWord());
+		}
+		return words;
+	}
+
+	/*
+	 * Test that every word that can be made from the grid's letters is found,
+	 * and that played words rule out their prefixes.
+	 */
+	public void test_words() {
+
+		Dawg dawg = TestGames.buildDawg("A", "AT", "CAT", "CATS", "DOG",
+				"TACT", "TAT");
+
+		final String grid =
+				"CATSX" +
+				"XXXXX" +
+				"XXXXX" +
+				"XXXXX" +
+				"XXXXT";
+		LetterState[] states = new LetterState[grid.length()];
+		Arrays.fill(states, LetterState.UNPLAYED);
+
+		GameModel gm = TestGames.createModel(5, 5, grid, states,
+				GameState.PLAYER1_TURN, 0, 0, dawg);
+		MoveGenerator generator = new MoveGenerator(dawg);
+
+		List<Move> moves = generator.generateMoves(gm);
+		Assert.assertEquals(
+				new HashSet<String>(Arrays.asList("AT", "CAT", "CATS", "TACT", "TAT")),
+				words(moves));
+
+		// Moves come best first, and each can be played
+		for (int i = 1; i < moves.size(); ++i) {
+			Assert.assertTrue(moves.get(i - 1).getScore() >= moves.get(i).getScore());
+		}
+
+		Move cats = null;
+		for (Move m : moves) {
+			if (m.getWord().equals("CATS"))
+				cats = m;
+		}
+		Assert.assertEquals(4, cats.getScore());
+
+		gm.setWord(cats.getTiles(), cats.getLength());
+		Assert.assertEquals(TurnResult.SUCCESS, gm.playTurn());
+
+		Assert.assertEquals(
+				new HashSet<String>(Arrays.asList("AT", "TACT", "TAT")),
+				words(generator.generateMoves(gm)));
+	}
+
+	/*
+	 * When a letter appears on more than one tile, the tile that captures
+	 * should be chosen. Playing "ME" with the lower E captures the Y.
+	 */
+	public void test_tileChoice() {
+
+		Dawg dawg = TestGames.buildDawg("ME");
+
+		final String grid =
+				"XMY" +
+				"EXE";
+		final LetterState U = LetterState.UNPLAYED;
+		LetterState[] states = {
+				U, LetterState.PLAYER2_OWNED, LetterState.PLAYER1_OWNED,
+				U, U, U };
+
+		GameModel gm = TestGames.createModel(3, 2, grid, states,
+				GameState.PLAYER2_TURN, 1, 1, dawg);
+
+		List<Move> moves = new MoveGenerator(dawg).generateMoves(gm);
+		Assert.assertEquals(1, moves.size());
+
+		Move me = moves.get(0);
+		Assert.assertEquals(3, me.getScore());
+		Assert.assertEquals(1, me.getTiles()[0]);
+		Assert.assertEquals(5, me.getTiles()[1]);
+
+		// Looking for moves must not change the game
+		Assert.assertEquals(LetterState.PLAYER1_OWNED, gm.getLetterState(2));
+		Assert.assertEquals(1, gm.getPoints(GameModel.PLAYER1));
+
+		gm.setWord(me.getTiles(), me.getLength());
+		Assert.assertEquals(TurnResult.SUCCESS, gm.playTurn());
+		Assert.assertEquals(LetterState.PLAYER2_SURROUNDED, gm.getLetterState(2));
+		Assert.assertEquals(0, gm.getPoints(GameModel.PLAYER1));
+		Assert.assertEquals(3, gm.getPoints(GameModel.PLAYER2));
+	}
+
+	/*
+	 * Test that the words offered as the game goes on are exactly the ones
+	 * that playTurn accepts, which checks GameModel's rules about played
+	 * words for char arrays against its rules for the word being played.
+	 */
+	public void test_playableMatchesRules() {
+
+		Dawg dawg = TestGames.buildGameDawg();
+		MoveGenerator generator = new MoveGenerator(dawg);
+		Random random = new Random(4);
+
+		for (long seed = 0; seed < 20; ++seed) {
+
+			GameModel gm = new GameModel(5, 5, seed, dawg);
+
+			// Every word that can be made from the letters, with its tiles
+			List<Move> all = generator.generateMoves(gm);
+
+			while (gm.getGameState() != GameState.GAME_OVER) {
+
+				Set<String> accepted = new HashSet<String>();
+				for (Move move : all) {
+					GameModel copy = new GameModel(gm);
+					copy.setWord(move.getTiles(), move.getLength());
+					if (copy.playTurn() == TurnResult.SUCCESS)
+						accepted.add(move.getWord());
+				}
+
+				List<Move> moves = generator.generateMoves(gm);
+				Assert.assertEquals(accepted, words(moves));
+
+				if (moves.isEmpty()) {
+					gm.passTurn();
+				} else {
+					Move move = moves.get(random.nextInt(moves.size()));
+					gm.setWord(move.getTiles(), move.getLength());
+					Assert.assertEquals(TurnResult.SUCCESS, gm.playTurn());
+				}
+			}
+		}
+	}
+
+}
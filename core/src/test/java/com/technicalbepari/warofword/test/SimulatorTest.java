@@ -0,0 +1,58 @@
+package com.technicalbepari.warofword.test;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+import com.technicalbepari.warofword.model.Dawg;
+import com.technicalbepari.warofword.model.Simulator;
+
+public class SimulatorTest extends TestCase {
+
+	private static final String[] WORDS = { "AB", "BAD", "BE", "BED", "CAB",
+			"DAB", "EA", "ME", "MY" };
+
+	/*
+	 * Test that every game is counted, and that a seed gives the same games
+	 * however many threads play them.
+	 */
+	public void test_reproducible() throws Exception {
+
+		Dawg dawg = TestGames.buildDawg(WORDS);
+
+		Simulator.Options options = new Simulator.Options();
+		options.games = 500;
+		options.seed = 42;
+		options.player1 = "greedy";
+		options.player2 = "random";
+		options.vowels = 8;
+
+		options.threads = 1;
+		Simulator.Results single = Simulator.run(dawg, options);
+
+		options.threads = 3;
+		Simulator.Results multiple = Simulator.run(dawg, options);
+
+		Assert.assertEquals(500, single.getGames());
+		Assert.assertEquals(500, single.getPlayer1Wins()
+				+ single.getPlayer2Wins() + single.getDraws());
+
+		Assert.assertEquals(single.getPlayer1Wins(), multiple.getPlayer1Wins());
+		Assert.assertEquals(single.getPlayer2Wins(), multiple.getPlayer2Wins());
+		Assert.assertEquals(single.getTurns(), multiple.getTurns());
+		Assert.assertEquals(single.getPasses(), multiple.getPasses());
+	}
+
+	public void test_unknownStrategy() throws Exception {
+
+		Simulator.Options options = new Simulator.Options();
+		options.player2 = "clever";
+
+		try {
+			Simulator.run(TestGames.buildDawg(WORDS), options);
+			fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+}
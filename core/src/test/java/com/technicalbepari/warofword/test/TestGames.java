@@ -0,0 +1,81 @@
+package com.technicalbepari.warofword.test;
+
+import java.util.Arrays;
+
+import com.technicalbepari.warofword.model.Dawg;
+import com.technicalbepari.warofword.model.DawgBuilder;
+import com.technicalbepari.warofword.model.GameModel;
+import com.technicalbepari.warofword.model.GameModel.GameState;
+import com.technicalbepari.warofword.model.GameModel.LetterState;
+
+/**
+ * Dictionaries and games for the tests to play with.
+ *
+ * @author Andrew Smith
+ */
+final class TestGames {
+
+	/**
+	 * Short words with common letters, so that random grids have plenty of
+	 * moves and games last a good many turns.
+	 */
+	static final String[] GAME_WORDS = { "AB", "AD", "AE", "AN", "AS", "AT",
+			"BA", "BAD", "BE", "BED", "CAB", "DAB", "EA", "EAT", "ED", "EN",
+			"ES", "ET", "ME", "MY", "NE", "ON", "OS", "SEA", "SO", "TA", "TE",
+			"TEA", "TO" };
+
+	/**
+	 * @param words - the words, in any order.
+	 */
+	static Dawg buildDawg(String... words) {
+		words = words.clone();
+		Arrays.sort(words);
+		DawgBuilder builder = new DawgBuilder();
+		for (String word : words) {
+			builder.add(word);
+		}
+		return builder.build();
+	}
+
+	static Dawg buildGameDawg() {
+		return buildDawg(GAME_WORDS);
+	}
+
+	/**
+	 * @return a game on a grid with every tile unplayed, with player 1 to
+	 *         play.
+	 */
+	static GameModel createModel(int columns, int rows, String grid,
+			Dawg dawg) {
+
+		LetterState[] states = new LetterState[grid.length()];
+		Arrays.fill(states, LetterState.UNPLAYED);
+
+		return createModel(columns, rows, grid, states,
+				GameState.PLAYER1_TURN, 0, 0, dawg);
+	}
+
+	static GameModel createModel(int columns, int rows, String grid,
+			LetterState[] states, GameState gameState, int p1Points,
+			int p2Points, Dawg dawg) {
+		return new GameModel(columns, rows, grid.toCharArray(), states,
+				gameState, p1Points, p2Points, dawg);
+	}
+
+	/**
+	 * @return the letters of a game's grid.
+	 */
+	static char[] getGrid(GameModel gm) {
+		char[] grid = new char[gm.getGridSize()];
+		for (int i = 0; i < grid.length; ++i) {
+			grid[i] = gm.getLetter(i);
+		}
+		return grid;
+	}
+
+	// Suppress default constructor for noninstantiability
+	private TestGames() {
+		throw new AssertionError();
+	}
+
+}
@@ -161,6 +161,46 @@ public class WordTrieTest extends TestCase {
 
 	}
 
+	/*
+	 * Test that looking up part of a char array gives the same answers as
+	 * looking up the same letters as a string.
+	 */
+	public void test_charArrays() {
+
+		WordTrie wt = new WordTrie();
+		final String[] words = { "AB", "ABC", "ABCDE", "BED", "WORD", "WORDS" };
+		for (String word : words) {
+			wt.add(word);
+		}
+
+		final String[] probes = { "", "A", "AB", "ABC", "ABCD", "ABCDE",
+				"ABCDEF", "BE", "BED", "BEDS", "DROW", "WORD", "WORDS",
+				"WORDSX", "word", "XAB" };
+
+		for (String probe : probes) {
+
+			// Surround the letters with others, so the range matters
+			final char[] buffer = ("QZ" + probe + "Q").toCharArray();
+
+			for (int from = 0; from <= probe.length(); ++from) {
+				for (int to = from; to <= probe.length(); ++to) {
+
+					final String part = probe.substring(from, to);
+					final int offset = 2 + from;
+					final int length = to - from;
+
+					Assert.assertEquals(part, wt.contains(part),
+							wt.contains(buffer, offset, length));
+					Assert.assertEquals(part, wt.containsPrefix(part),
+							wt.containsPrefix(buffer, offset, length));
+				}
+			}
+		}
+
+		Assert.assertFalse(wt.contains(null, 0, 0));
+		Assert.assertFalse(wt.containsPrefix(null, 0, 0));
+	}
+
 	public void test_serialization() {
 		WordTrie wt = new WordTrie();
 		wt.add("WORD");